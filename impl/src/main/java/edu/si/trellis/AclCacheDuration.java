@@ -0,0 +1,24 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The number of seconds for which a node may reuse the effective ACL it found for a resource. Writes through the same
+ * node invalidate it at once, so this bounds how long writes through other nodes can go unseen. A value less than 1
+ * disables caching.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface AclCacheDuration {
+
+    /**
+     * Default duration to use.
+     */
+    public static final String value = "10";
+}
@@ -0,0 +1,98 @@
+package edu.si.trellis;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Applies an asynchronous operation to a series of inputs, keeping no more than a fixed number of operations underway
+ * at any moment and delivering each result as soon as it is available.
+ *
+ * @param <T> the type of input
+ * @param <R> the type of result
+ */
+final class BoundedFanOut<T, R> {
+
+    private final Iterator<? extends T> inputs;
+
+    private final Function<? super T, ? extends CompletionStage<? extends R>> operation;
+
+    private final BiConsumer<? super T, ? super R> action;
+
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private int inFlight = 0;
+
+    private BoundedFanOut(Iterator<? extends T> inputs,
+                    Function<? super T, ? extends CompletionStage<? extends R>> operation,
+                    BiConsumer<? super T, ? super R> action) {
+        this.inputs = inputs;
+        this.operation = operation;
+        this.action = action;
+    }
+
+    /**
+     * @param inputs the inputs to process
+     * @param maxInFlight the maximum number of operations to have underway at any moment
+     * @param operation the operation to apply to each input
+     * @param action receives each input with its result, in order of completion; may be called from many threads
+     * @return completes when every input has been processed, or exceptionally at the first failure
+     */
+    static <T, R> CompletionStage<Void> run(Iterable<? extends T> inputs, int maxInFlight,
+                    Function<? super T, ? extends CompletionStage<? extends R>> operation,
+                    BiConsumer<? super T, ? super R> action) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("Must allow at least one operation in flight!");
+        BoundedFanOut<T, R> fanOut = new BoundedFanOut<>(inputs.iterator(), operation, action);
+        for (int i = 0; i < maxInFlight; i++)
+            fanOut.next();
+        return fanOut.done;
+    }
+
+    /**
+     * Keeps one slot busy. Results that are already complete when their operation returns, as from a cache, are handled
+     * by this loop rather than by their callbacks, so that a long run of them does not deepen the stack.
+     */
+    private void next() {
+        while (true) {
+            final T input;
+            synchronized (this) {
+                if (done.isDone()) return;
+                if (!inputs.hasNext()) {
+                    if (inFlight == 0) done.complete(null);
+                    return;
+                }
+                input = inputs.next();
+                inFlight++;
+            }
+            final CompletionStage<? extends R> result;
+            try {
+                result = operation.apply(input);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+                return;
+            }
+            // whichever of this loop and the callback arrives second takes the next input
+            AtomicBoolean arrived = new AtomicBoolean();
+            result.whenComplete((r, e) -> {
+                if (e != null) done.completeExceptionally(e);
+                else deliver(input, r);
+                synchronized (this) {
+                    inFlight--;
+                }
+                if (!arrived.compareAndSet(false, true)) next();
+            });
+            if (arrived.compareAndSet(false, true)) return;
+        }
+    }
+
+    private void deliver(T input, R result) {
+        try {
+            action.accept(input, result);
+        } catch (RuntimeException e) {
+            done.completeExceptionally(e);
+        }
+    }
+}
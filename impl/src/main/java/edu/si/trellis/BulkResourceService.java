@@ -0,0 +1,45 @@
+package edu.si.trellis;
+
+import java.util.Collection;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+
+import org.apache.commons.rdf.api.IRI;
+import org.trellisldp.api.Resource;
+import org.trellisldp.api.ResourceService;
+
+/**
+ * A {@link ResourceService} that can retrieve many resources at once.
+ */
+public interface BulkResourceService extends ResourceService {
+
+    /**
+     * The default maximum number of resources {@link #getAll(Collection, BiConsumer)} retrieves concurrently.
+     */
+    int DEFAULT_MAX_IN_FLIGHT = 128;
+
+    /**
+     * Retrieves many resources, with no more than {@link #DEFAULT_MAX_IN_FLIGHT} retrievals underway at once.
+     *
+     * @param ids the {@link IRI}s of the resources to retrieve
+     * @param action receives each identifier with its resource
+     * @return whether and when all retrievals have completed
+     * @see #getAll(Collection, int, BiConsumer)
+     */
+    default CompletionStage<Void> getAll(Collection<IRI> ids, BiConsumer<IRI, Resource> action) {
+        return getAll(ids, DEFAULT_MAX_IN_FLIGHT, action);
+    }
+
+    /**
+     * Retrieves many resources, issuing the queries for each concurrently with those for others. Resources are
+     * delivered in the order in which their retrieval completes, not the order of {@code ids}, so that throughput is
+     * bounded by bandwidth rather than by latency.
+     *
+     * @param ids the {@link IRI}s of the resources to retrieve
+     * @param maxInFlight the maximum number of resources to retrieve concurrently
+     * @param action receives each identifier with its resource, or with
+     *            {@link Resource.SpecialResources#MISSING_RESOURCE} if there is none; may be called from many threads
+     * @return whether and when all retrievals have completed, completing exceptionally at the first failure
+     */
+    CompletionStage<Void> getAll(Collection<IRI> ids, int maxInFlight, BiConsumer<IRI, Resource> action);
+}
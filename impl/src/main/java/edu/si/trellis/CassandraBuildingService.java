@@ -1,10 +1,13 @@
 package edu.si.trellis;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
 
 import com.datastax.oss.driver.api.core.cql.Row;
 
 import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
 
 import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.IRI;
@@ -13,7 +16,44 @@ import org.trellisldp.api.Resource;
 
 abstract class CassandraBuildingService {
 
+    /**
+     * Reads RDF written in chunks.
+     */
+    @FunctionalInterface
+    interface ChunkReader {
+
+        /**
+         * @param id the {@link IRI} of a resource
+         * @param created the {@code created} value of the row to which the chunks belong
+         * @param count the number of chunks
+         * @return the RDF in the chunks
+         */
+        CompletionStage<Dataset> read(IRI id, UUID created, int count);
+    }
+
+    /**
+     * Builds a resource, first reading its RDF from chunks if it was written in chunks and is selected.
+     */
+    CompletionStage<Resource> build(Row metadata, Logger log, IRI id, GraphSelector graphs, ChunkReader chunks) {
+        int count = metadata == null || !graphs.content() ? 0 : DatasetColumns.chunks(metadata);
+        if (count == 0) return completedFuture(parse(metadata, log, id, graphs));
+        log.debug("Retrieving {} chunks of RDF for {}", count, id);
+        return chunks.read(id, metadata.getUuid("created"), count)
+                        .thenApply(content -> parse(metadata, log, id, graphs, content));
+    }
+
     Resource parse(Row metadata, Logger log, IRI id) {
+        return parse(metadata, log, id, GraphSelector.ALL);
+    }
+
+    Resource parse(Row metadata, Logger log, IRI id, GraphSelector graphs) {
+        return parse(metadata, log, id, graphs, null);
+    }
+
+    /**
+     * @param content the RDF of {@code metadata} other than its access-control graph, if it was written in chunks
+     */
+    Resource parse(Row metadata, Logger log, IRI id, GraphSelector graphs, Dataset content) {
         if (metadata == null) {
             log.debug("{} was not found.", id);
             return MISSING_RESOURCE;
@@ -32,7 +72,8 @@ abstract class CassandraBuildingService {
         log.debug("Found container = {} for resource {}", container, id);
         Instant modified = metadata.get("modified", Instant.class);
         log.debug("Found modified = {} for resource {}", modified, id);
-        Dataset dataset = metadata.get("quads", Dataset.class);
+        Dataset stored = content == null ? DatasetColumns.read(metadata) : DatasetColumns.read(metadata, content);
+        Dataset dataset = DatasetColumns.select(stored, graphs);
         log.debug("Found dataset = {} for resource {}", dataset, id);
         
         return new CassandraResource(id, ixnModel, hasAcl, binaryId, mimeType, container, modified, dataset);
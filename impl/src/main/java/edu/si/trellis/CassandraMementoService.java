@@ -1,6 +1,7 @@
 package edu.si.trellis;
 
 import static java.time.temporal.ChronoUnit.SECONDS;
+import static java.util.Collections.unmodifiableSortedSet;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.stream.Collectors.toCollection;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -10,10 +11,14 @@ import com.datastax.oss.driver.api.core.uuid.Uuids;
 
 import edu.si.trellis.query.rdf.GetFirstMemento;
 import edu.si.trellis.query.rdf.GetMemento;
+import edu.si.trellis.query.rdf.MementoChain;
+import edu.si.trellis.query.rdf.MementoPage;
 import edu.si.trellis.query.rdf.Mementoize;
 import edu.si.trellis.query.rdf.Mementos;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -30,8 +35,9 @@ import org.trellisldp.api.MementoService;
 import org.trellisldp.api.Resource;
 
 /**
- * A {@link MementoService} that stores Mementos in a Cassandra table.
+ * A {@link MementoService} that stores Mementos in a Cassandra table, optionally as deltas between snapshots.
  *
+ * @see MementoDeltas
  */
 public class CassandraMementoService extends CassandraBuildingService implements MementoService {
 
@@ -45,18 +51,67 @@ public class CassandraMementoService extends CassandraBuildingService implements
 
     private final GetFirstMemento getFirstMemento;
 
+    private final MementoPage mementoPage;
+
+    private final TimeMapCache timeMaps;
+
+    private final MementoDeltas deltas;
+
+    private final MementoSuppression suppression;
+
+    private final MementoSummaries summaries;
+
+    private final boolean singleCopy;
+
     @Inject
     CassandraMementoService(Mementos mementos, Mementoize mementoize, GetMemento getMemento,
-                    GetFirstMemento getFirstMemento) {
+                    GetFirstMemento getFirstMemento, MementoPage mementoPage, TimeMapCache timeMaps,
+                    MementoDeltas deltas, MementoSuppression suppression, MementoSummaries summaries,
+                    @SingleCopy boolean singleCopy) {
         this.mementos = mementos;
         this.mementoize = mementoize;
         this.getMemento = getMemento;
         this.getFirstMemento = getFirstMemento;
+        this.mementoPage = mementoPage;
+        this.timeMaps = timeMaps;
+        this.deltas = deltas;
+        this.suppression = suppression;
+        this.summaries = summaries;
+        this.singleCopy = singleCopy;
     }
 
     @Override
     public CompletionStage<Void> put(Resource r) {
+        IRI id = r.getIdentifier();
+        Instant time = r.getModified().truncatedTo(SECONDS);
+        if (singleCopy) {
+            // the resource service has already written this version as a Memento
+            timeMaps.invalidate(id);
+            return summaries.added(id, time, this::readMementos);
+        }
+        if (!suppression.enabled()) return put(r, null, time)
+                        .thenCompose(x -> summaries.added(id, time, this::readMementos))
+                        .whenComplete((x, e) -> timeMaps.invalidate(id));
+        ByteBuffer contentHash = suppression.hash(r);
+        return suppression.latest(id).thenCompose(latest -> {
+            if (suppression.unchanged(latest, contentHash)) {
+                log.debug("Skipping Memento for {} at time {}, identical to the latest", id, r.getModified());
+                return completedFuture((Void) null);
+            }
+            if (!suppression.collapses(latest, time)) return put(r, contentHash, time)
+                            .thenCompose(x -> summaries.added(id, time, this::readMementos));
+            // base any delta on the Memento before the one replaced
+            Instant replaced = latest.get("mementomodified", Instant.class);
+            return put(r, contentHash, replaced.minusSeconds(1)).thenCompose(x -> suppression.discard(id, latest))
+                            .thenCompose(x -> summaries.replacedLast(id, time, this::readMementos));
+        }).whenComplete((x, e) -> timeMaps.invalidate(id));
+    }
 
+    /**
+     * @param contentHash a hash of {@code r} to record, if any
+     * @param baseLimit the latest Memento-datetime on which to base a delta
+     */
+    private CompletionStage<Void> put(Resource r, ByteBuffer contentHash, Instant baseLimit) {
         IRI id = r.getIdentifier();
         IRI ixnModel = r.getInteractionModel();
         IRI container = r.getContainer().orElse(null);
@@ -68,18 +123,59 @@ public class CassandraMementoService extends CassandraBuildingService implements
         UUID creation = Uuids.timeBased();
 
         log.debug("Writing Memento for {} at time: {}", id, modified);
-        return mementoize.execute(ixnModel, mimeType, container, data, modified, binaryIdentifier, creation, id);
+        CompletionStage<Boolean> delta = deltas.enabled()
+                        ? deltas.append(r, contentHash, baseLimit, creation, getMemento::readChunks)
+                        : completedFuture(false);
+        return delta.thenCompose(written -> written ? completedFuture((Void) null)
+                        : mementoize.execute(ixnModel, mimeType, container, data, contentHash, modified,
+                                        binaryIdentifier, creation, id));
     }
 
-    //@formatter:off
     @Override
     public CompletionStage<SortedSet<Instant>> mementos(IRI id) {
-        return mementos.execute(id)
-                        .thenApply(AsyncResultSetUtils::stream)
-                        .thenApply(results -> results
-                                        .map(row -> row.get("modified", Instant.class))
-                                        .map(time -> time.truncatedTo(SECONDS))
-                                        .collect(toCollection(TreeSet::new)));
+        return timeMaps.get(id, this::readMementos);
+    }
+
+    private CompletionStage<SortedSet<Instant>> readMementos(IRI id) {
+        return mementos.execute(id).thenApply(CassandraMementoService::timeMap);
+    }
+
+    /**
+     * Answers what a TimeGate redirect or the {@code Link} header of a Memento needs to know of the TimeMap of a
+     * resource, in one single-row read.
+     *
+     * @param id the {@link IRI} of a resource
+     * @return the earliest and latest Memento-datetimes and the number of Mementos of {@code id}, or empty if it has
+     *         no Mementos
+     * @see MementoSummaries
+     */
+    public CompletionStage<Optional<MementoSummary>> summary(IRI id) {
+        return summaries.get(id, this::readMementos);
+    }
+
+    /**
+     * Retrieves a page of the TimeMap of a resource, reading no more of its history than that. To page back through
+     * the whole TimeMap, begin with the present as {@code until} and continue from a second before the
+     * earliest Memento-datetime of each page, until a page comes back short.
+     *
+     * @param id the {@link IRI} of a resource
+     * @param from the earliest Memento-datetime to retrieve
+     * @param until the latest Memento-datetime to retrieve
+     * @param limit the most Memento-datetimes to retrieve
+     * @return the latest {@code limit} Memento-datetimes of {@code id} from {@code from} until {@code until}
+     */
+    public CompletionStage<SortedSet<Instant>> mementos(IRI id, Instant from, Instant until, int limit) {
+        if (limit < 1) throw new IllegalArgumentException("A page must hold at least one Memento-datetime!");
+        return mementoPage.execute(id, from, until, limit).thenApply(CassandraMementoService::timeMap);
+    }
+
+    //@formatter:off
+    private static SortedSet<Instant> timeMap(AsyncResultSet results) {
+        return unmodifiableSortedSet(AsyncResultSetUtils.stream(results)
+                        .map(row -> row.get("mementomodified", Instant.class))
+                        // a partition holding only its summary has a row with no Memento
+                        .filter(Objects::nonNull)
+                        .collect(toCollection(TreeSet::new)));
     }
     //@formatter:on
 
@@ -87,10 +183,15 @@ public class CassandraMementoService extends CassandraBuildingService implements
     public CompletionStage<Resource> get(final IRI id, Instant time) {
         log.debug("Retrieving Memento for: {} at {}", id, time);
         return getMemento.execute(id, time)
+                        // a time before the first Memento gets the first
                         .thenCompose(result -> result.remaining() > 0
-                                        ? getFirstMemento.execute(id) 
-                                        : completedFuture(result))
+                                        ? completedFuture(result)
+                                        : getFirstMemento.execute(id))
                         .thenApply(AsyncResultSet::one)
-                        .thenApply(row -> parse(row, log, id));
+                        .thenCompose(row -> row != null && MementoChain.isDelta(row)
+                                        ? deltas.rebuild(row, id, getMemento::readChunks)
+                                                        .thenApply(content -> parse(row, log, id, GraphSelector.ALL,
+                                                                        content))
+                                        : build(row, log, id, GraphSelector.ALL, getMemento::readChunks));
     }
 }
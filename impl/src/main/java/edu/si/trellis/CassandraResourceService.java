@@ -1,7 +1,10 @@
 package edu.si.trellis;
 
 import static java.time.Instant.now;
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.trellisldp.api.Metadata.builder;
 import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
@@ -13,6 +16,7 @@ import static org.trellisldp.vocabulary.LDP.RDFSource;
 import static org.trellisldp.vocabulary.LDP.getSuperclassOf;
 
 import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.core.uuid.Uuids;
 
 import edu.si.trellis.query.rdf.BasicContainment;
@@ -20,30 +24,36 @@ import edu.si.trellis.query.rdf.Delete;
 import edu.si.trellis.query.rdf.Get;
 import edu.si.trellis.query.rdf.ImmutableInsert;
 import edu.si.trellis.query.rdf.ImmutableRetrieve;
+import edu.si.trellis.query.rdf.Mementoize;
 import edu.si.trellis.query.rdf.MutableInsert;
-import edu.si.trellis.query.rdf.Touch;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
-import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
 import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
 import org.slf4j.Logger;
 import org.trellisldp.api.BinaryMetadata;
 import org.trellisldp.api.Metadata;
 import org.trellisldp.api.Resource;
-import org.trellisldp.api.ResourceService;
 import org.trellisldp.api.RuntimeTrellisException;
 import org.trellisldp.api.TrellisUtils;
 import org.trellisldp.vocabulary.LDP;
@@ -54,7 +64,7 @@ import org.trellisldp.vocabulary.LDP;
  * @author ajs6f
  *
  */
-class CassandraResourceService extends CassandraBuildingService implements ResourceService {
+class CassandraResourceService extends CassandraBuildingService implements BulkResourceService {
 
     private static final Set<IRI> SUPPORTED_INTERACTION_MODELS;
 
@@ -66,6 +76,8 @@ class CassandraResourceService extends CassandraBuildingService implements Resou
 
     static final Logger log = getLogger(CassandraResourceService.class);
 
+    private static final RDF rdf = TrellisUtils.getInstance();
+
     private final Delete delete;
 
     private final Get get;
@@ -74,15 +86,27 @@ class CassandraResourceService extends CassandraBuildingService implements Resou
 
     private final MutableInsert mutableInsert;
 
-    private final Touch touch;
+    private final TouchCoalescer touch;
 
     private final BasicContainment bcontainment;
 
     private final ImmutableRetrieve immutableRetrieve;
 
+    private final ImmutableCompactor immutableCompactor;
+
+    private final EffectiveAclCache aclCache;
+
+    private final PatchDeltas deltas;
+
+    private final Mementoize mementoize;
+
+    private final boolean singleCopy;
+
     @Inject
     CassandraResourceService(Delete delete, Get get, ImmutableInsert immutableInsert, MutableInsert mutableInsert,
-                    Touch touch, ImmutableRetrieve immutableRetrieve, BasicContainment bcontainment) {
+                    TouchCoalescer touch, ImmutableRetrieve immutableRetrieve, BasicContainment bcontainment,
+                    ImmutableCompactor immutableCompactor, EffectiveAclCache aclCache, PatchDeltas deltas,
+                    Mementoize mementoize, @SingleCopy boolean singleCopy) {
         this.delete = delete;
         this.get = get;
         this.immutableInsert = immutableInsert;
@@ -90,16 +114,21 @@ class CassandraResourceService extends CassandraBuildingService implements Resou
         this.touch = touch;
         this.immutableRetrieve = immutableRetrieve;
         this.bcontainment = bcontainment;
-
+        this.immutableCompactor = immutableCompactor;
+        this.aclCache = aclCache;
+        this.deltas = deltas;
+        this.mementoize = mementoize;
+        this.singleCopy = singleCopy;
+        log.info("Using configured single-copy storage: {}", singleCopy);
     }
 
     /**
-     * Build a root container.
+     * Build a root container. Startup calls this only once every statement has been prepared, since until then its
+     * stages could wait for a statement on a driver I/O thread.
      */
-    @PostConstruct
     void initializeRoot() {
 
-        IRI rootIri = TrellisUtils.getInstance().createIRI(TRELLIS_DATA_PREFIX);
+        IRI rootIri = rdf.createIRI(TRELLIS_DATA_PREFIX);
         try {
             if (get(rootIri).toCompletableFuture().get().equals(MISSING_RESOURCE)) {
                 Metadata rootResource = builder(rootIri).interactionModel(BasicContainer).build();
@@ -115,15 +144,32 @@ class CassandraResourceService extends CassandraBuildingService implements Resou
 
     @Override
     public CompletionStage<? extends Resource> get(final IRI id) {
-        log.debug("Retrieving {}", id);
-        log.debug("Retrieving immutable data for {}", id);
-        final CompletionStage<Stream<Quad>> immutableData = immutableRetrieve.execute(id);
+        return get(id, GraphSelector.ALL);
+    }
+
+    /**
+     * Retrieves a resource with only some of its RDF, so that e.g. an access-control check need not fetch the rest.
+     * 
+     * @param id the {@link IRI} of the resource to retrieve
+     * @param graphs which of its RDF to retrieve
+     * @return the resource, or {@link Resource.SpecialResources#MISSING_RESOURCE} if there is none
+     */
+    public CompletionStage<Resource> get(final IRI id, GraphSelector graphs) {
+        log.debug("Retrieving {} with RDF: {}", id, graphs);
+        final CompletionStage<Stream<Quad>> immutableData;
+        if (graphs.content()) {
+            log.debug("Retrieving immutable data for {}", id);
+            immutableData = immutableRetrieve.execute(id, ImmutableCompactor.compactable(),
+                            uncompacted -> immutableCompactor.offer(id, uncompacted));
+        } else immutableData = completedFuture(Stream.empty());
         // get resource and add immutable tuples
         log.debug("Retrieving mutable data for {}", id);
-        final CompletionStage<Resource> resource = get.execute(id)
+        final CompletionStage<Resource> resource = get.execute(id, graphs)
                         .thenApply(AsyncResultSet::one)
-                        .thenApply(row -> parse(row, log, id))
+                        .thenCompose(row -> withLegacyAcl(row, id, graphs))
+                        .thenCompose(row -> build(row, id, graphs).thenCompose(res -> deltas.apply(row, graphs, res)))
                         .thenCombine(immutableData, this::addTuples);
+        if (!graphs.content()) return resource;
         // add containment tuples if needed
         CompletionStage<Resource> resourceWithContainment = resource
                         .thenCompose(res -> {
@@ -134,8 +180,136 @@ class CassandraResourceService extends CassandraBuildingService implements Resou
         return resourceWithContainment;
     }
 
+    /**
+     * Builds a resource, reading its content from the Memento holding it if it was written under single-copy storage.
+     */
+    private CompletionStage<Resource> build(Row row, IRI id, GraphSelector graphs) {
+        Instant memento = row == null || !graphs.content() ? null : DatasetColumns.mementoRdf(row);
+        if (memento == null) return build(row, log, id, graphs, get::readChunks);
+        log.debug("Retrieving RDF for {} from its Memento at {}", id, memento);
+        return get.readMemento(id, memento).thenApply(content -> parse(row, log, id, graphs, content));
+    }
+
+    /**
+     * A row written before the access-control graph was stored apart must be fetched whole to find that graph.
+     */
+    private CompletionStage<Row> withLegacyAcl(Row row, IRI id, GraphSelector graphs) {
+        if (row == null || graphs != GraphSelector.ACL || DatasetColumns.hasAclColumn(row)) return completedFuture(row);
+        log.debug("Retrieving all data for {} to find its access-control graph", id);
+        return get.execute(id).thenApply(AsyncResultSet::one);
+    }
+
+    /**
+     * Finds the resource whose ACL governs a resource: the nearest of the resource and its ancestors that has an ACL,
+     * retrieved with only its access-control graph. Results are cached, so that authorization on a deep hierarchy costs
+     * a single lookup.
+     * 
+     * @param id the {@link IRI} of a resource
+     * @return the resource with the governing ACL, the top of the hierarchy if none has an ACL, or
+     *         {@link Resource.SpecialResources#MISSING_RESOURCE} if the hierarchy is broken
+     * @see EffectiveAclCache
+     */
+    public CompletionStage<Resource> getEffectiveAcl(IRI id) {
+        return aclCache.get(id, this::findEffectiveAcl);
+    }
+
+    private CompletionStage<Resource> findEffectiveAcl(IRI id) {
+        long generation = aclCache.generation();
+        return get(id, GraphSelector.ACL).thenCombine(getAncestors(id, GraphSelector.ACL), (res, ancestors) -> {
+            List<Resource> chain = new ArrayList<>(ancestors.size() + 1);
+            chain.add(res);
+            chain.addAll(ancestors);
+            return chain;
+        }).thenCompose(chain -> findEffectiveAcl(chain, generation));
+    }
+
+    /**
+     * @param chain a resource followed by the ancestors named by its identifier, nearest first
+     * @param generation the {@link EffectiveAclCache#generation()} when the lookup began
+     */
+    private CompletionStage<Resource> findEffectiveAcl(List<Resource> chain, long generation) {
+        for (int i = 0; i < chain.size(); i++) {
+            Resource res = chain.get(i);
+            // rows written before hasAcl was maintained may still hold an access-control graph
+            if (MISSING_RESOURCE.equals(res) || res.hasAcl() || res.stream().findAny().isPresent())
+                return completedFuture(remember(chain, i, res, generation));
+            Optional<IRI> container = res.getContainer();
+            if (!container.isPresent()) return completedFuture(remember(chain, i, res, generation));
+            // a container other than the one its identifier names must be followed one step at a time
+            if (i + 1 == chain.size() || !container.get().equals(chain.get(i + 1).getIdentifier())) {
+                int last = i;
+                return getEffectiveAcl(container.get()).thenApply(holder -> remember(chain, last, holder, generation));
+            }
+        }
+        throw new IllegalArgumentException("No resources in hierarchy!");
+    }
+
+    /**
+     * Caches {@code holder} for the ancestors in {@code chain} up to {@code last}, which it governs as well, so that
+     * their other descendants need not fetch them again. The first resource in {@code chain} is cached by
+     * {@link #getEffectiveAcl(IRI)} itself.
+     *
+     * @return {@code holder}
+     */
+    private Resource remember(List<Resource> chain, int last, Resource holder, long generation) {
+        for (int i = 1; i <= last; i++) {
+            IRI ancestor = chain.get(i).getIdentifier();
+            if (ancestor != null) aclCache.put(ancestor, holder, generation);
+        }
+        return holder;
+    }
+
+    /**
+     * Retrieves the ancestors of a resource as named by its identifier, all concurrently, so that a deep hierarchy
+     * costs about as much to walk as a shallow one. Each ancestor is named by a prefix of the resource's path, which is
+     * where Trellis places containers; a caller that must follow {@link Resource#getContainer()} exactly should check
+     * each link.
+     * 
+     * @param id the {@link IRI} of a resource
+     * @param graphs which RDF of each ancestor to retrieve
+     * @return the ancestors of {@code id}, nearest first and ending with the root container, each
+     *         {@link Resource.SpecialResources#MISSING_RESOURCE} if there is none
+     * @see #ancestors(IRI)
+     */
+    public CompletionStage<List<Resource>> getAncestors(IRI id, GraphSelector graphs) {
+        List<IRI> ancestors = ancestors(id);
+        log.debug("Retrieving {} ancestors of {} with RDF: {}", ancestors.size(), id, graphs);
+        Map<IRI, Resource> retrieved = new ConcurrentHashMap<>(ancestors.size());
+        return BoundedFanOut.<IRI, Resource> run(ancestors, DEFAULT_MAX_IN_FLIGHT, a -> get(a, graphs), retrieved::put)
+                        .thenApply(x -> ancestors.stream().map(retrieved::get).collect(toList()));
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @return the identifiers of the containers above {@code id} according to its path, nearest first and ending with
+     *         the root container, or none if {@code id} is the root or lies outside this repository
+     */
+    static List<IRI> ancestors(IRI id) {
+        String iri = id.getIRIString();
+        List<IRI> ancestors = new ArrayList<>();
+        if (!iri.startsWith(TRELLIS_DATA_PREFIX)) return ancestors;
+        String path = iri.substring(TRELLIS_DATA_PREFIX.length());
+        if (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+        if (path.isEmpty()) return ancestors;
+        for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1))
+            ancestors.add(rdf.createIRI(TRELLIS_DATA_PREFIX + path.substring(0, slash)));
+        ancestors.add(rdf.createIRI(TRELLIS_DATA_PREFIX));
+        return ancestors;
+    }
+
+    @Override
+    public CompletionStage<Void> getAll(Collection<IRI> ids, int maxInFlight, BiConsumer<IRI, Resource> action) {
+        log.debug("Retrieving {} resources with at most {} in flight", ids.size(), maxInFlight);
+        return BoundedFanOut.<IRI, Resource> run(ids, maxInFlight, this::get, action);
+    }
+
+    /**
+     * Adds tuples from other tables without checking them against the resource's own, from which they differ.
+     */
     private Resource addTuples(Resource resource, Stream<Quad> additionalTuples) {
-        additionalTuples.forEach(resource.dataset()::add);
+        Dataset dataset = resource.dataset();
+        if (dataset instanceof CompactDataset) ((CompactDataset) dataset).addAll(additionalTuples);
+        else additionalTuples.forEach(dataset::add);
         return resource;
     }
 
@@ -165,18 +339,39 @@ class CassandraResourceService extends CassandraBuildingService implements Resou
     @Override
     public CompletionStage<Void> replace(Metadata meta, Dataset data) {
         log.debug("Replacing {} with interaction model {}", meta.getIdentifier(), meta.getInteractionModel());
-        return write(meta, data);
+        // a single copy is written whole each time
+        if (!deltas.enabled() || singleCopy || data == null) return write(meta, data);
+        IRI id = meta.getIdentifier();
+        return get.execute(id).thenApply(AsyncResultSet::one).thenCompose(row -> {
+            if (row == null) return write(meta, data);
+            return build(row, id, GraphSelector.ALL)
+                            .thenCompose(stored -> deltas.append(row, stored, meta, data))
+                            .thenCompose(appended -> {
+                                if (!appended) return rewrite(row, meta, data);
+                                aclCache.invalidate(id, false);
+                                return completedFuture((Void) null);
+                            });
+        });
+    }
+
+    /**
+     * Writes a resource whole, discarding any deltas of the row it replaces.
+     */
+    private CompletionStage<Void> rewrite(Row previous, Metadata meta, Dataset data) {
+        UUID creation = Uuids.timeBased();
+        return write(meta, data, creation).thenCompose(x -> deltas.discard(previous, meta.getIdentifier(), creation));
     }
 
     @Override
     public CompletionStage<Void> delete(Metadata meta) {
         log.debug("Deleting {}", meta.getIdentifier());
-        return delete.execute(meta.getIdentifier());
+        return delete.execute(meta.getIdentifier())
+                        .thenRun(() -> aclCache.invalidate(meta.getIdentifier(), false));
     }
 
     @Override
     public CompletionStage<Void> touch(IRI id) {
-        return touch.execute(now(), id);
+        return touch.touch(id, now());
     }
 
     @Override
@@ -185,6 +380,10 @@ class CassandraResourceService extends CassandraBuildingService implements Resou
     }
 
     private CompletionStage<Void> write(Metadata meta, Dataset data) {
+        return write(meta, data, Uuids.timeBased());
+    }
+
+    private CompletionStage<Void> write(Metadata meta, Dataset data, UUID creation) {
         IRI id = meta.getIdentifier();
         IRI ixnModel = meta.getInteractionModel();
         IRI container = meta.getContainer().orElse(null);
@@ -194,6 +393,16 @@ class CassandraResourceService extends CassandraBuildingService implements Resou
         String mimeType = binary.flatMap(BinaryMetadata::getMimeType).orElse(null);
         Instant now = now();
 
-        return mutableInsert.execute(ixnModel, mimeType, container, data, now, binaryIdentifier, Uuids.timeBased(), id);
+        boolean aclWritten = data != null && data.stream().anyMatch(GraphSelector::isAcl);
+        final CompletionStage<Void> written;
+        if (singleCopy) {
+            log.debug("Writing RDF for {} only to its Memento", id);
+            // the Memento first, so that the row never points to a Memento not yet written
+            written = mementoize.execute(ixnModel, mimeType, container, data, null, now, binaryIdentifier, creation, id)
+                            .thenCompose(x -> mutableInsert.executeSingleCopy(ixnModel, mimeType, container, data,
+                                            now, binaryIdentifier, creation, id, now.truncatedTo(SECONDS)));
+        } else written = mutableInsert.execute(ixnModel, mimeType, container, data, now, binaryIdentifier, creation,
+                        id);
+        return written.thenRun(() -> aclCache.invalidate(id, aclWritten));
     }
 }
@@ -0,0 +1,190 @@
+package edu.si.trellis;
+
+import static java.util.stream.Collectors.joining;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.jena.JenaRDF;
+
+/**
+ * A {@link Dataset} held in a plain array, for RDF that is read out of Cassandra, streamed once and thrown away. The
+ * array is only ever appended to, as RDF is read into it. Any mutation through the {@link Dataset} interface, or asking
+ * for a {@link Graph} view, copies it into a Jena dataset, which then serves every later call.
+ * <p>
+ * Not thread-safe.
+ */
+class CompactDataset implements Dataset {
+
+    private static final JenaRDF rdf = new JenaRDF();
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Quad[] quads = new Quad[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * Membership of {@link #quads}, built only when first needed by {@link #contains(Quad)}.
+     */
+    private Set<Quad> index;
+
+    /**
+     * Replaces {@link #quads} once a mutation needs a full dataset.
+     */
+    private Dataset upgraded;
+
+    /**
+     * Adds a quad without checking whether it is already present.
+     *
+     * @param quad a quad known not to be in this dataset, e.g. because it comes from a serialization of a set of quads
+     */
+    void append(Quad quad) {
+        if (upgraded != null) upgraded.add(quad);
+        else {
+            store(quad);
+            if (index != null) index.add(quad);
+        }
+    }
+
+    /**
+     * Adds quads without checking whether they are already present, nor building an index to check with.
+     *
+     * @param more quads known not to be in this dataset, or whose duplication does not matter to the reader
+     */
+    void addAll(Stream<? extends Quad> more) {
+        if (upgraded != null) {
+            more.forEach(upgraded::add);
+            return;
+        }
+        Quad[] added = more.toArray(Quad[]::new);
+        if (size + added.length > quads.length)
+            quads = Arrays.copyOf(quads, Math.max(size * 2, size + added.length));
+        System.arraycopy(added, 0, quads, size, added.length);
+        size += added.length;
+        if (index != null) index.addAll(Arrays.asList(added));
+    }
+
+    private void store(Quad quad) {
+        if (size == quads.length) quads = Arrays.copyOf(quads, size * 2);
+        quads[size++] = quad;
+    }
+
+    private Set<Quad> index() {
+        if (index == null) {
+            index = new HashSet<>(size * 2);
+            for (int i = 0; i < size; i++) index.add(quads[i]);
+        }
+        return index;
+    }
+
+    private Dataset upgrade() {
+        if (upgraded == null) {
+            upgraded = rdf.createDataset();
+            for (int i = 0; i < size; i++) upgraded.add(quads[i]);
+            quads = null;
+            index = null;
+            size = 0;
+        }
+        return upgraded;
+    }
+
+    @Override
+    public void add(Quad quad) {
+        upgrade().add(quad);
+    }
+
+    @Override
+    public void add(BlankNodeOrIRI graphName, BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+        add(rdf.createQuad(graphName, subject, predicate, object));
+    }
+
+    @Override
+    public boolean contains(Quad quad) {
+        return upgraded != null ? upgraded.contains(quad) : index().contains(quad);
+    }
+
+    @Override
+    public boolean contains(Optional<BlankNodeOrIRI> graphName, BlankNodeOrIRI subject, IRI predicate,
+                    RDFTerm object) {
+        if (upgraded != null) return upgraded.contains(graphName, subject, predicate, object);
+        return stream(graphName, subject, predicate, object).findAny().isPresent();
+    }
+
+    @Override
+    public Graph getGraph() {
+        return upgrade().getGraph();
+    }
+
+    @Override
+    public Optional<Graph> getGraph(BlankNodeOrIRI graphName) {
+        return upgrade().getGraph(graphName);
+    }
+
+    @Override
+    public Stream<BlankNodeOrIRI> getGraphNames() {
+        if (upgraded != null) return upgraded.getGraphNames();
+        return stream().map(Quad::getGraphName).filter(Optional::isPresent).map(Optional::get).distinct();
+    }
+
+    @Override
+    public void remove(Quad quad) {
+        upgrade().remove(quad);
+    }
+
+    @Override
+    public void remove(Optional<BlankNodeOrIRI> graphName, BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+        upgrade().remove(graphName, subject, predicate, object);
+    }
+
+    @Override
+    public void clear() {
+        if (upgraded != null) upgraded.clear();
+        else {
+            upgraded = rdf.createDataset();
+            quads = null;
+            index = null;
+            size = 0;
+        }
+    }
+
+    @Override
+    public long size() {
+        return upgraded != null ? upgraded.size() : size;
+    }
+
+    @Override
+    public Stream<? extends Quad> stream() {
+        return upgraded != null ? upgraded.stream() : Arrays.stream(quads, 0, size);
+    }
+
+    @Override
+    public Stream<? extends Quad> stream(Optional<BlankNodeOrIRI> graphName, BlankNodeOrIRI subject, IRI predicate,
+                    RDFTerm object) {
+        if (upgraded != null) return upgraded.stream(graphName, subject, predicate, object);
+        return Arrays.stream(quads, 0, size)
+                        .filter(q -> graphName == null || graphName.equals(q.getGraphName()))
+                        .filter(q -> subject == null || subject.equals(q.getSubject()))
+                        .filter(q -> predicate == null || predicate.equals(q.getPredicate()))
+                        .filter(q -> object == null || object.equals(q.getObject()));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (upgraded != null) upgraded.close();
+    }
+
+    @Override
+    public String toString() {
+        return stream().map(Quad::toString).collect(joining("\n"));
+    }
+}
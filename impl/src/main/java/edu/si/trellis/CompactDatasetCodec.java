@@ -0,0 +1,82 @@
+package edu.si.trellis;
+
+import static com.datastax.oss.driver.api.core.type.DataTypes.BLOB;
+import static edu.si.trellis.DatasetCodec.DATASET_CODEC;
+
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodecs;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.jena.JenaRDF;
+
+/**
+ * (De)serializes Commons RDF {@link Dataset}s (out of)into Cassandra blob fields using {@link CompactQuads}, with the
+ * current {@link TermDictionary}. Fields that hold N-Quads instead are still read.
+ *
+ */
+class CompactDatasetCodec extends CassandraCodec<Dataset> {
+
+    static final GenericType<Dataset> DATASET_TYPE = GenericType.of(Dataset.class);
+
+    private static final JenaRDF rdf = new JenaRDF();
+
+    private final TermDictionaries dictionaries;
+
+    /**
+     * @param dictionaries the dictionaries with which to read and write
+     */
+    CompactDatasetCodec(TermDictionaries dictionaries) {
+        this.dictionaries = dictionaries;
+    }
+
+    @Override
+    public DataType getCqlType() {
+        return BLOB;
+    }
+
+    @Override
+    public GenericType<Dataset> getJavaType() {
+        return DATASET_TYPE;
+    }
+
+    @Override
+    public ByteBuffer encode(Dataset dataset, ProtocolVersion protocolVersion) {
+        if (dataset == null || dataset.size() == 0) return null;
+        return ByteBuffer.wrap(CompactQuads.write(dataset.stream(), dictionaries.current()));
+    }
+
+    @Override
+    public Dataset decode(ByteBuffer buffer, ProtocolVersion protocolVersion) {
+        if (buffer == null || buffer.remaining() == 0) return new CompactDataset();
+        if (!CompactQuads.isCompact(buffer)) return DATASET_CODEC.decode(buffer, protocolVersion);
+        CompactDataset dataset = new CompactDataset();
+        // serialized from a set of quads, so there are no duplicates to check for
+        CompactQuads.read(buffer, rdf, dictionaries::get, dataset::append);
+        return dataset;
+    }
+
+    /**
+     * @param stream RDF in the compact binary serialization, which is read to its end but not closed
+     * @return the RDF in {@code stream}
+     */
+    Dataset decode(InputStream stream) {
+        CompactDataset dataset = new CompactDataset();
+        CompactQuads.read(stream, rdf, dictionaries::get, dataset::append);
+        return dataset;
+    }
+
+    @Override
+    public Dataset parse(String value) {
+        return decode(TypeCodecs.BLOB.parse(value), null);
+    }
+
+    @Override
+    public String format(Dataset dataset) {
+        return TypeCodecs.BLOB.format(encode(dataset, null));
+    }
+}
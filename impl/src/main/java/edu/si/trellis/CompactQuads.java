@@ -0,0 +1,322 @@
+package edu.si.trellis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.BlankNode;
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Literal;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.api.RDFTerm;
+
+/**
+ * A compact binary serialization of RDF quads. Each distinct term is written once, in a table at the head of the
+ * serialization, and each quad is written as indexes into that table:
+ * 
+ * <pre>
+ * serialization := VERSION_1 body | VERSION_2 dictionary(varint) body
+ * body          := termCount(varint) term* quadCount(varint) quad*
+ * term          := IRI string | BLANK_NODE | STRING lexical | LANG_STRING lexical lang | TYPED lexical datatype(varint)
+ *                | DICTIONARY id(varint)
+ * quad          := graph(varint, 0 for the default graph, otherwise term index + 1) subject predicate object (varints)
+ * string        := length(varint) UTF-8 bytes
+ * </pre>
+ * 
+ * The second version can refer to IRIs by their ids in a shared {@link TermDictionary}, named by its version.
+ * <p>
+ * The leading version byte cannot begin an N-Quads document, so the two serializations can share a column.
+ */
+final class CompactQuads {
+
+    /**
+     * Marks the first version of this serialization.
+     */
+    static final byte VERSION_1 = 1;
+
+    /**
+     * Marks the version of this serialization that uses a {@link TermDictionary}.
+     */
+    static final byte VERSION_2 = 2;
+
+    private static final byte IRI_TERM = 0, BLANK_NODE_TERM = 1, STRING_TERM = 2, LANG_STRING_TERM = 3,
+                    TYPED_LITERAL_TERM = 4, DICTIONARY_TERM = 5;
+
+    private static final String XSD_STRING = "http://www.w3.org/2001/XMLSchema#string";
+
+    private CompactQuads() {}
+
+    /**
+     * @param buffer serialized RDF
+     * @return whether {@code buffer} holds this serialization, as opposed to N-Quads
+     */
+    static boolean isCompact(ByteBuffer buffer) {
+        if (buffer.remaining() == 0) return false;
+        byte version = buffer.get(buffer.position());
+        return version == VERSION_1 || version == VERSION_2;
+    }
+
+    /**
+     * @param quads the quads to serialize
+     * @return the serialization of {@code quads}, with no dictionary
+     */
+    static byte[] write(Stream<? extends Quad> quads) {
+        return write(quads, null);
+    }
+
+    /**
+     * @param quads the quads to serialize
+     * @param dictionary the dictionary to use, or {@code null} for none
+     * @return the serialization of {@code quads}
+     */
+    static byte[] write(Stream<? extends Quad> quads, TermDictionary dictionary) {
+        List<? extends Quad> toWrite = quads.collect(toList());
+        Map<RDFTerm, Integer> indexes = new HashMap<>();
+        ByteArrayOutputStream terms = new ByteArrayOutputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeVarInt(body, toWrite.size());
+        for (Quad q : toWrite) {
+            writeVarInt(body, q.getGraphName().map(g -> index(g, indexes, terms, dictionary) + 1).orElse(0));
+            writeVarInt(body, index(q.getSubject(), indexes, terms, dictionary));
+            writeVarInt(body, index(q.getPredicate(), indexes, terms, dictionary));
+            writeVarInt(body, index(q.getObject(), indexes, terms, dictionary));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(terms.size() + body.size() + 11);
+        if (dictionary == null) out.write(VERSION_1);
+        else {
+            out.write(VERSION_2);
+            writeVarInt(out, dictionary.version());
+        }
+        writeVarInt(out, indexes.size());
+        out.write(terms.toByteArray(), 0, terms.size());
+        out.write(body.toByteArray(), 0, body.size());
+        return out.toByteArray();
+    }
+
+    /**
+     * Finds the index of a term, adding the term to the table if it is not there already.
+     */
+    private static int index(RDFTerm term, Map<RDFTerm, Integer> indexes, ByteArrayOutputStream terms,
+                    TermDictionary dictionary) {
+        Integer index = indexes.get(term);
+        if (index != null) return index;
+        if (term instanceof IRI) {
+            Integer id = dictionary == null ? null : dictionary.id((IRI) term);
+            if (id != null) {
+                terms.write(DICTIONARY_TERM);
+                writeVarInt(terms, id);
+            } else {
+                terms.write(IRI_TERM);
+                writeString(terms, ((IRI) term).getIRIString());
+            }
+        } else if (term instanceof BlankNode) terms.write(BLANK_NODE_TERM);
+        else {
+            Literal literal = (Literal) term;
+            if (literal.getLanguageTag().isPresent()) {
+                terms.write(LANG_STRING_TERM);
+                writeString(terms, literal.getLexicalForm());
+                writeString(terms, literal.getLanguageTag().get());
+            } else if (XSD_STRING.equals(literal.getDatatype().getIRIString())) {
+                terms.write(STRING_TERM);
+                writeString(terms, literal.getLexicalForm());
+            } else {
+                // the datatype must precede the literal in the table
+                int datatype = index(literal.getDatatype(), indexes, terms, dictionary);
+                terms.write(TYPED_LITERAL_TERM);
+                writeString(terms, literal.getLexicalForm());
+                writeVarInt(terms, datatype);
+            }
+        }
+        index = indexes.size();
+        indexes.put(term, index);
+        return index;
+    }
+
+    /**
+     * Deserializes quads without copying {@code buffer}, the position of which is not changed.
+     * 
+     * @param buffer serialized RDF
+     * @param rdf the factory with which to create RDF terms
+     * @param dictionaries finds a {@link TermDictionary} by its version
+     * @param sink receives each quad deserialized
+     */
+    static void read(ByteBuffer buffer, RDF rdf, IntFunction<TermDictionary> dictionaries, Consumer<Quad> sink) {
+        read(new BufferInput(buffer.duplicate()), rdf, dictionaries, sink);
+    }
+
+    /**
+     * Deserializes quads as they are read, so that the serialization need never be held whole.
+     * 
+     * @param stream serialized RDF, which is read to its end but not closed
+     * @param rdf the factory with which to create RDF terms
+     * @param dictionaries finds a {@link TermDictionary} by its version
+     * @param sink receives each quad deserialized
+     * @throws UncheckedIOException if {@code stream} cannot be read
+     */
+    static void read(InputStream stream, RDF rdf, IntFunction<TermDictionary> dictionaries, Consumer<Quad> sink) {
+        read(new StreamInput(stream), rdf, dictionaries, sink);
+    }
+
+    private static void read(Input in, RDF rdf, IntFunction<TermDictionary> dictionaries, Consumer<Quad> sink) {
+        byte version = in.get();
+        final TermDictionary dictionary;
+        switch (version) {
+        case VERSION_1:
+            dictionary = null;
+            break;
+        case VERSION_2:
+            dictionary = dictionaries.apply(readVarInt(in));
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown compact quads version: " + version);
+        }
+        RDFTerm[] terms = new RDFTerm[readVarInt(in)];
+        for (int i = 0; i < terms.length; i++)
+            terms[i] = readTerm(in, rdf, terms, dictionary);
+        int quadCount = readVarInt(in);
+        for (int i = 0; i < quadCount; i++) {
+            int graph = readVarInt(in);
+            BlankNodeOrIRI graphName = graph == 0 ? null : (BlankNodeOrIRI) terms[graph - 1];
+            BlankNodeOrIRI subject = (BlankNodeOrIRI) terms[readVarInt(in)];
+            IRI predicate = (IRI) terms[readVarInt(in)];
+            sink.accept(rdf.createQuad(graphName, subject, predicate, terms[readVarInt(in)]));
+        }
+    }
+
+    private static RDFTerm readTerm(Input in, RDF rdf, RDFTerm[] terms, TermDictionary dictionary) {
+        byte kind = in.get();
+        switch (kind) {
+        case IRI_TERM:
+            return rdf.createIRI(readString(in));
+        case BLANK_NODE_TERM:
+            return rdf.createBlankNode();
+        case STRING_TERM:
+            return rdf.createLiteral(readString(in));
+        case LANG_STRING_TERM:
+            String lexicalForm = readString(in);
+            return rdf.createLiteral(lexicalForm, readString(in));
+        case TYPED_LITERAL_TERM:
+            String lexical = readString(in);
+            return rdf.createLiteral(lexical, (IRI) terms[readVarInt(in)]);
+        case DICTIONARY_TERM:
+            if (dictionary == null) throw new IllegalArgumentException("Dictionary term without a dictionary!");
+            return dictionary.term(readVarInt(in));
+        default:
+            throw new IllegalArgumentException("Unknown compact quads term kind: " + kind);
+        }
+    }
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static int readVarInt(Input in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer!");
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(Input in) {
+        return in.string(readVarInt(in));
+    }
+
+    /**
+     * A source of serialized bytes.
+     */
+    private interface Input {
+
+        byte get();
+
+        String string(int length);
+    }
+
+    private static final class BufferInput implements Input {
+
+        private final ByteBuffer in;
+
+        private BufferInput(ByteBuffer in) {
+            this.in = in;
+        }
+
+        @Override
+        public byte get() {
+            return in.get();
+        }
+
+        @Override
+        public String string(int length) {
+            final String value;
+            if (in.hasArray()) value = new String(in.array(), in.arrayOffset() + in.position(), length, UTF_8);
+            else {
+                byte[] bytes = new byte[length];
+                in.duplicate().get(bytes);
+                value = new String(bytes, UTF_8);
+            }
+            in.position(in.position() + length);
+            return value;
+        }
+    }
+
+    private static final class StreamInput implements Input {
+
+        private final InputStream in;
+
+        private StreamInput(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public byte get() {
+            try {
+                int b = in.read();
+                if (b < 0) throw new IllegalArgumentException("Truncated compact quads!");
+                return (byte) b;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public String string(int length) {
+            byte[] bytes = new byte[length];
+            try {
+                for (int read = 0; read < length;) {
+                    int n = in.read(bytes, read, length - read);
+                    if (n < 0) throw new IllegalArgumentException("Truncated compact quads!");
+                    read += n;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new String(bytes, UTF_8);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package edu.si.trellis;
 import static com.datastax.oss.driver.api.core.type.DataTypes.TEXT;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.jena.riot.Lang.NQUADS;
-import static org.apache.jena.riot.RDFDataMgr.read;
 import static org.apache.jena.riot.RDFDataMgr.writeQuads;
 
 import com.datastax.oss.driver.api.core.ProtocolVersion;
@@ -13,12 +12,24 @@ import com.datastax.oss.driver.api.core.type.reflect.GenericType;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
 import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
 import org.apache.commons.rdf.jena.JenaRDF;
-import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RDFParserBuilder;
+import org.apache.jena.riot.system.ErrorHandlerFactory;
+import org.apache.jena.riot.system.StreamRDFBase;
 
 class DatasetCodec extends CassandraCodec<Dataset> {
 
@@ -28,6 +39,23 @@ class DatasetCodec extends CassandraCodec<Dataset> {
 
     private static final JenaRDF rdf = new JenaRDF();
 
+    /**
+     * Parser setup for stored N-Quads, which were written by this codec and so need not be checked. No factory for RDF
+     * terms is shared, so each parse still scopes its own blank node labels.
+     */
+    private static final RDFParserBuilder TRUSTED_NQUADS = RDFParser.create()
+                    .lang(NQUADS)
+                    .checking(false)
+                    .errorHandler(ErrorHandlerFactory.errorHandlerNoWarnings);
+
+    /**
+     * Parser setup for N-Quads from elsewhere.
+     */
+    private static final RDFParserBuilder CHECKED_NQUADS = RDFParser.create()
+                    .lang(NQUADS)
+                    .checking(true)
+                    .errorHandler(ErrorHandlerFactory.errorHandlerStd);
+
     @Override
     public DataType getCqlType() {
         return TEXT;
@@ -53,22 +81,55 @@ class DatasetCodec extends CassandraCodec<Dataset> {
         }
     }
 
+    /**
+     * Parses straight from {@code buffer}, without copying it or changing its position.
+     */
     @Override
     public Dataset decode(ByteBuffer buffer, ProtocolVersion protocolVersion) {
-        if (buffer == null) return rdf.createDataset();
-        return fromNQuads(bytesFromBuffer(buffer));
+        if (buffer == null) return new CompactDataset();
+        CompactDataset dataset = new CompactDataset();
+        // serialized from a set of quads, so there are no duplicates to check for
+        fromNQuads(TRUSTED_NQUADS, new ByteBufferInputStream(buffer.duplicate()), dataset::append);
+        return dataset;
+    }
+
+    private static void fromNQuads(RDFParserBuilder parser, InputStream nQuads, Consumer<Quad> sink) {
+        parser.clone().source(nQuads).parse(new StreamRDFBase() {
+
+            @Override
+            public void triple(Triple triple) {
+                sink.accept(rdf.createQuad(null, subject(triple.getSubject()), predicate(triple.getPredicate()),
+                                rdf.asRDFTerm(triple.getObject())));
+            }
+
+            @Override
+            public void quad(org.apache.jena.sparql.core.Quad quad) {
+                BlankNodeOrIRI graphName = quad.isTriple() || quad.isDefaultGraph() ? null
+                                : (BlankNodeOrIRI) rdf.asRDFTerm(quad.getGraph());
+                sink.accept(rdf.createQuad(graphName, subject(quad.getSubject()), predicate(quad.getPredicate()),
+                                rdf.asRDFTerm(quad.getObject())));
+            }
+        });
+    }
+
+    private static BlankNodeOrIRI subject(Node node) {
+        return (BlankNodeOrIRI) rdf.asRDFTerm(node);
     }
 
-    private Dataset fromNQuads(byte[] bytes) {
-        org.apache.jena.query.Dataset dataset = DatasetFactory.create();
-        read(dataset, new ByteArrayInputStream(bytes), null, NQUADS);
-        return rdf.asDataset(dataset);
+    private static IRI predicate(Node node) {
+        return (IRI) rdf.asRDFTerm(node);
     }
 
     @Override
     public Dataset parse(String quads) {
-        if (quads == null || quads.isEmpty()) return rdf.createDataset();
-        return fromNQuads(quads.getBytes(UTF_8));
+        CompactDataset dataset = new CompactDataset();
+        if (quads == null || quads.isEmpty()) return dataset;
+        // text from elsewhere may repeat a quad
+        Set<Quad> seen = new HashSet<>();
+        fromNQuads(CHECKED_NQUADS, new ByteArrayInputStream(quads.getBytes(UTF_8)), quad -> {
+            if (seen.add(quad)) dataset.append(quad);
+        });
+        return dataset;
     }
 
     @Override
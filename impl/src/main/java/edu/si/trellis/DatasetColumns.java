@@ -0,0 +1,211 @@
+package edu.si.trellis;
+
+import static com.datastax.oss.driver.api.core.type.DataTypes.BLOB;
+
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.Quad;
+
+/**
+ * Reads and writes RDF in rows. The access-control graph is written to its own column, so that it can be read without
+ * the rest, and the rest is written in the compact binary serialization. RDF too large for one cell is written in
+ * chunks to a table of its own, and the row records how many.
+ *
+ * @see CompactDatasetCodec
+ * @see GraphSelector
+ */
+public final class DatasetColumns {
+
+    /**
+     * The legacy column holding RDF as N-Quads text.
+     */
+    public static final String QUADS = "quads";
+
+    /**
+     * The column holding RDF in the compact binary serialization, without the access-control graph in rows that have
+     * an {@link #ACL_QUADS} value.
+     */
+    public static final String COMPACT_QUADS = "compactQuads";
+
+    /**
+     * The column holding the access-control graph. It is empty, rather than {@code null}, for a row written with no
+     * access-control graph, because {@code null} marks a row written before this column, whose access-control graph
+     * is in {@link #COMPACT_QUADS} or {@link #QUADS}.
+     */
+    public static final String ACL_QUADS = "aclQuads";
+
+    /**
+     * The column recording whether a resource has an access-control graph.
+     */
+    public static final String HAS_ACL = "hasAcl";
+
+    /**
+     * The column recording how many chunks the content of a row was written in, or {@code null} if it is in
+     * {@link #COMPACT_QUADS}. Chunks are keyed by the {@code identifier} and {@code created} of the row.
+     */
+    public static final String RDF_CHUNKS = "rdfChunks";
+
+    /**
+     * The column recording how many deltas have been written for a row since its RDF was written whole.
+     *
+     * @see PatchDeltas
+     */
+    public static final String DELTAS = "deltas";
+
+    /**
+     * The column recording, for a row whose content was written only to a Memento, the Memento-datetime of that
+     * Memento, or {@code null} if the content is in the row.
+     *
+     * @see SingleCopy
+     */
+    public static final String MEMENTO_RDF = "mementoRdf";
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private DatasetColumns() {}
+
+    /**
+     * @param row a row with any of the columns {@link #QUADS}, {@link #COMPACT_QUADS} and {@link #ACL_QUADS}, whose
+     *            content was not written in chunks
+     * @return the RDF in {@code row}
+     */
+    public static Dataset read(Row row) {
+        return read(row, readContent(row));
+    }
+
+    /**
+     * @param row a row whose content was written in chunks, with its {@link #ACL_QUADS}
+     * @param content the content of {@code row}, read from its chunks
+     * @return the RDF in {@code row}
+     */
+    public static Dataset read(Row row, Dataset content) {
+        Dataset dataset = content;
+        if (hasAclColumn(row))
+            // the graphs are disjoint
+            row.get(ACL_QUADS, Dataset.class).stream().forEach(appender(dataset));
+        return dataset;
+    }
+
+    /**
+     * @param row a row with any of the columns {@link #QUADS} and {@link #COMPACT_QUADS}, whose content was not written
+     *            in chunks
+     * @return the RDF in {@code row} but for any access-control graph in {@link #ACL_QUADS}
+     */
+    public static Dataset readContent(Row row) {
+        if (has(row, COMPACT_QUADS) && !row.isNull(COMPACT_QUADS)) return row.get(COMPACT_QUADS, Dataset.class);
+        if (has(row, QUADS)) return row.get(QUADS, Dataset.class);
+        return new CompactDataset();
+    }
+
+    /**
+     * @param row a row
+     * @return whether {@code row} was written with a separate access-control graph
+     */
+    public static boolean hasAclColumn(Row row) {
+        return has(row, ACL_QUADS) && !row.isNull(ACL_QUADS);
+    }
+
+    /**
+     * @param row a row
+     * @return the number of chunks the content of {@code row} was written in, or 0 if it was written in the row
+     */
+    public static int chunks(Row row) {
+        return has(row, RDF_CHUNKS) && !row.isNull(RDF_CHUNKS) ? row.getInt(RDF_CHUNKS) : 0;
+    }
+
+    /**
+     * @param row a row
+     * @return the number of deltas written for {@code row}
+     */
+    public static int deltas(Row row) {
+        return has(row, DELTAS) && !row.isNull(DELTAS) ? row.getInt(DELTAS) : 0;
+    }
+
+    /**
+     * @param row a row
+     * @return the Memento-datetime of the Memento holding the content of {@code row}, or {@code null} if it is not in
+     *         a Memento
+     */
+    public static Instant mementoRdf(Row row) {
+        return has(row, MEMENTO_RDF) ? row.get(MEMENTO_RDF, Instant.class) : null;
+    }
+
+    /**
+     * @param chunks the chunks of some content, in order
+     * @param codecs the codecs of the session from which the chunks were read
+     * @return that content
+     */
+    public static Dataset decode(InputStream chunks, CodecRegistry codecs) {
+        return codec(codecs).decode(chunks);
+    }
+
+    /**
+     * @param codecs the codecs of a session
+     * @return the {@link CompactDatasetCodec} among them, which knows the term dictionaries of that session
+     */
+    private static CompactDatasetCodec codec(CodecRegistry codecs) {
+        TypeCodec<Dataset> codec = codecs.codecFor(BLOB, CompactDatasetCodec.DATASET_TYPE);
+        if (codec instanceof CompactDatasetCodec) return (CompactDatasetCodec) codec;
+        throw new IllegalStateException("No compact RDF codec is registered!");
+    }
+
+    private static boolean has(Row row, String column) {
+        return row.getColumnDefinitions().contains(column);
+    }
+
+    /**
+     * @param data RDF, if any
+     * @param codecs the codecs of the session to which {@code data} is to be written
+     * @return all of {@code data} but the access-control graph, serialized for {@link #COMPACT_QUADS}, or {@code null}
+     *         if there is none
+     */
+    public static ByteBuffer content(Dataset data, CodecRegistry codecs) {
+        return data == null ? null : codec(codecs).encode(select(data, GraphSelector.CONTENT), null);
+    }
+
+    /**
+     * Binds {@code data} to {@code statement}, which must have {@link #COMPACT_QUADS}, {@link #ACL_QUADS},
+     * {@link #HAS_ACL} and {@link #RDF_CHUNKS} markers.
+     *
+     * @param statement a statement that writes RDF
+     * @param data the RDF to write, if any
+     * @param content {@code data} serialized by {@link #content(Dataset)}
+     * @param chunks the number of chunks {@code content} has been written in, or 0 to write it in the row
+     * @return {@code statement} with the RDF bound
+     */
+    public static BoundStatement bind(BoundStatement statement, Dataset data, ByteBuffer content, int chunks) {
+        Dataset acl = data == null ? null : select(data, GraphSelector.ACL);
+        boolean hasAcl = acl != null && acl.size() > 0;
+        BoundStatement bound = statement.setBoolean(HAS_ACL, hasAcl);
+        // write nulls explicitly, so as to overwrite an earlier version of the row
+        bound = chunks > 0 ? bound.setToNull(COMPACT_QUADS).setInt(RDF_CHUNKS, chunks)
+                        : bound.setBytesUnsafe(COMPACT_QUADS, content).setToNull(RDF_CHUNKS);
+        // mark the row as having its access-control graph apart, even when there is none
+        return hasAcl ? bound.set(ACL_QUADS, acl, Dataset.class) : bound.setBytesUnsafe(ACL_QUADS, EMPTY.duplicate());
+    }
+
+    /**
+     * @param data RDF
+     * @param graphs which graphs to keep
+     * @return the selected graphs of {@code data}, which is itself returned if all are selected
+     */
+    public static Dataset select(Dataset data, GraphSelector graphs) {
+        if (graphs == GraphSelector.ALL) return data;
+        CompactDataset selected = new CompactDataset();
+        data.stream().filter(graphs::test).forEach(selected::append);
+        return selected;
+    }
+
+    private static Consumer<Quad> appender(Dataset dataset) {
+        return dataset instanceof CompactDataset ? ((CompactDataset) dataset)::append : dataset::add;
+    }
+}
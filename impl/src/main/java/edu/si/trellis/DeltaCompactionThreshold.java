@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The number of deltas a resource may accumulate before its next replacement is written whole, compacting them. A
+ * value less than 1 disables delta storage, so that every replacement is written whole.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface DeltaCompactionThreshold {
+
+    /**
+     * Default threshold to use.
+     */
+    public static final String value = "0";
+}
@@ -0,0 +1,131 @@
+package edu.si.trellis;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+import org.trellisldp.api.Resource;
+
+/**
+ * Remembers, for each resource, the resource whose ACL governs it, so that authorization on a deep hierarchy need not
+ * walk the hierarchy every time.
+ * <p>
+ * Writing a resource forgets what was found for it. Writing an ACL, or writing a resource found to govern others,
+ * forgets everything, since any descendant may have been governed by it. A lookup underway during a write is not
+ * remembered, nor is anything it found for other resources along the way.
+ */
+class EffectiveAclCache {
+
+    private static final Logger log = getLogger(EffectiveAclCache.class);
+
+    /**
+     * The most resources remembered at once. When the cache fills, it is emptied and starts again.
+     */
+    static final int MAXIMUM_SIZE = 10_000;
+
+    private final long durationNanos;
+
+    private final Map<IRI, Entry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Resources found to govern others: those holding ACLs, and the top of the hierarchy.
+     */
+    private final Set<IRI> holders = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Advanced by every invalidation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param seconds how long to remember an effective ACL
+     */
+    @Inject
+    EffectiveAclCache(@AclCacheDuration int seconds) {
+        this.durationNanos = SECONDS.toNanos(seconds);
+        log.info("Using configured effective ACL cache duration: {} seconds", seconds);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param lookup finds the resource whose ACL governs a resource
+     * @return the resource whose ACL governs {@code id}
+     */
+    CompletionStage<Resource> get(IRI id, Function<IRI, CompletionStage<Resource>> lookup) {
+        if (durationNanos <= 0) return lookup.apply(id);
+        Entry cached = cache.get(id);
+        if (cached != null && nanoTime() - cached.expires < 0) return cached.acl;
+        if (cache.size() >= MAXIMUM_SIZE) cache.clear();
+        long started = generation.get();
+        Entry entry = new Entry(lookup.apply(id), nanoTime() + durationNanos);
+        cache.put(id, entry);
+        entry.acl.whenComplete((holder, e) -> {
+            if (e != null || generation.get() != started) cache.remove(id, entry);
+            else if (holder.getIdentifier() != null) holders.add(holder.getIdentifier());
+        });
+        return entry.acl;
+    }
+
+    /**
+     * @return the current generation, to be passed to {@link #put(IRI, Resource, long)} by a lookup that finds the
+     *         effective ACLs of further resources along the way
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Remembers an effective ACL found while looking up that of another resource, unless there has been a write
+     * since the lookup began.
+     *
+     * @param id the {@link IRI} of a resource
+     * @param holder the resource whose ACL governs {@code id}
+     * @param started the {@link #generation()} when the lookup began
+     */
+    void put(IRI id, Resource holder, long started) {
+        if (durationNanos <= 0) return;
+        if (cache.size() >= MAXIMUM_SIZE) cache.clear();
+        // record the holder first, so that a write to it from now on forgets this entry too
+        if (holder.getIdentifier() != null) holders.add(holder.getIdentifier());
+        Entry entry = new Entry(completedFuture(holder), nanoTime() + durationNanos);
+        cache.put(id, entry);
+        if (generation.get() != started) cache.remove(id, entry);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource that has been written
+     * @param aclWritten whether an ACL was written to it
+     */
+    void invalidate(IRI id, boolean aclWritten) {
+        generation.incrementAndGet();
+        if (aclWritten || holders.remove(id)) {
+            log.debug("Forgetting all effective ACLs after a write to the ACL of {}", id);
+            cache.clear();
+            holders.clear();
+        } else cache.remove(id);
+    }
+
+    private static final class Entry {
+
+        private final CompletionStage<Resource> acl;
+
+        private final long expires;
+
+        private Entry(CompletionStage<Resource> acl, long expires) {
+            this.acl = acl;
+            this.expires = expires;
+        }
+    }
+}
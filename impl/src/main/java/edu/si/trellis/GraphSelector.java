@@ -0,0 +1,65 @@
+package edu.si.trellis;
+
+import static org.trellisldp.vocabulary.Trellis.PreferAccessControl;
+
+import org.apache.commons.rdf.api.Quad;
+
+/**
+ * Which of its RDF to retrieve with a resource. The access-control graph is stored apart from the rest of a resource's
+ * RDF, so either can be fetched without the other.
+ */
+public enum GraphSelector {
+
+    /**
+     * All RDF.
+     */
+    ALL(true, true),
+
+    /**
+     * Only the access-control graph.
+     */
+    ACL(true, false),
+
+    /**
+     * All RDF but the access-control graph.
+     */
+    CONTENT(false, true),
+
+    /**
+     * No RDF; only metadata such as the interaction model.
+     */
+    METADATA(false, false);
+
+    private final boolean acl, content;
+
+    private GraphSelector(boolean acl, boolean content) {
+        this.acl = acl;
+        this.content = content;
+    }
+
+    /**
+     * @return whether the access-control graph is selected
+     */
+    public boolean acl() {
+        return acl;
+    }
+
+    /**
+     * @return whether RDF other than the access-control graph is selected
+     */
+    public boolean content() {
+        return content;
+    }
+
+    /**
+     * @param quad a quad of a resource
+     * @return whether it is selected
+     */
+    public boolean test(Quad quad) {
+        return isAcl(quad) ? acl : content;
+    }
+
+    static boolean isAcl(Quad quad) {
+        return quad.getGraphName().filter(PreferAccessControl::equals).isPresent();
+    }
+}
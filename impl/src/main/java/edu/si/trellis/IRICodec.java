@@ -3,19 +3,33 @@ package edu.si.trellis;
 import static com.datastax.oss.driver.api.core.type.DataTypes.TEXT;
 import static java.nio.ByteBuffer.wrap;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
 
 import com.datastax.oss.driver.api.core.ProtocolVersion;
 import com.datastax.oss.driver.api.core.type.DataType;
 import com.datastax.oss.driver.api.core.type.reflect.GenericType;
 
 import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.RDF;
 import org.trellisldp.api.TrellisUtils;
+import org.trellisldp.vocabulary.LDP;
 
 /**
  * (De)serializes Commons RDF {@link IRI}s (out of)into Cassandra fields.
+ * <p>
+ * Decoded IRIs are interned, because a small number of values (interaction models, popular containers) recur in nearly
+ * every row. Lookups are keyed on the driver's own buffer, so a hit allocates nothing.
+ * <p>
+ * {@link #COMPACT_IRI_CODEC} writes LDP interaction models as short codes ({@code @4} for {@code ldp:BasicContainer})
+ * and IRIs under {@link TrellisUtils#TRELLIS_DATA_PREFIX} relative to it ({@code /a/b} for
+ * {@code trellis:data/a/b}). Neither form can be an absolute IRI, so every instance reads both forms.
  * 
  * @author ajs6f
  *
@@ -25,14 +39,59 @@ class IRICodec extends CassandraCodec<IRI> {
     private static final GenericType<IRI> IRI_TYPE = GenericType.of(IRI.class);
 
     /**
-     * Singleton instance.
+     * Instance that writes IRIs in full.
      */
-    static final IRICodec IRI_CODEC = new IRICodec();
+    static final IRICodec IRI_CODEC = new IRICodec(false);
 
-    protected static final int CACHE_MAXIMUM_SIZE = 10 ^ 6;
+    /**
+     * Instance that writes IRIs in compact form. Switching to it requires existing rows to be rewritten, since their
+     * keys change.
+     *
+     * @see IRIMigrator
+     */
+    static final IRICodec COMPACT_IRI_CODEC = new IRICodec(true);
+
+    /**
+     * The most IRIs interned at once. When the cache fills, it is emptied and starts again, so that values that have
+     * stopped recurring do not stay forever.
+     */
+    protected static final int CACHE_MAXIMUM_SIZE = 100_000;
 
     protected static final RDF rdf = TrellisUtils.getInstance();
 
+    private static final char MODEL_CODE = '@', RELATIVE = '/';
+
+    /**
+     * Interaction models, in the order of their codes. Append only: the position of each is stored.
+     */
+    private static final List<IRI> MODELS = asList(LDP.Resource, LDP.RDFSource, LDP.NonRDFSource, LDP.Container,
+                    LDP.BasicContainer, LDP.DirectContainer, LDP.IndirectContainer);
+
+    /**
+     * Interaction models in both forms, which are never evicted.
+     */
+    private static final Map<ByteBuffer, IRI> interactionModels = new HashMap<>();
+
+    private static final Map<IRI, String> modelCodes = new HashMap<>();
+
+    static {
+        for (int i = 0; i < MODELS.size(); i++) {
+            IRI model = MODELS.get(i);
+            String code = MODEL_CODE + Integer.toString(i);
+            modelCodes.put(model, code);
+            interactionModels.put(wrap(model.getIRIString().getBytes(UTF_8)), model);
+            interactionModels.put(wrap(code.getBytes(UTF_8)), model);
+        }
+    }
+
+    private final Map<ByteBuffer, IRI> cache = new ConcurrentHashMap<>();
+
+    private final boolean compact;
+
+    private IRICodec(boolean compact) {
+        this.compact = compact;
+    }
+
     @Override
     public DataType getCqlType() {
         return TEXT;
@@ -50,17 +109,56 @@ class IRICodec extends CassandraCodec<IRI> {
 
     @Override
     public ByteBuffer encode(IRI iri, ProtocolVersion protocolVersion) {
-        return iri != null ? wrap(format(iri).getBytes(UTF_8)) : null;
+        if (iri == null) return null;
+        return wrap((compact ? compact(iri) : iri.getIRIString()).getBytes(UTF_8));
+    }
+
+    private static String compact(IRI iri) {
+        String code = modelCodes.get(iri);
+        if (code != null) return code;
+        String iriString = iri.getIRIString();
+        return iriString.startsWith(TRELLIS_DATA_PREFIX)
+                        ? RELATIVE + iriString.substring(TRELLIS_DATA_PREFIX.length())
+                        : iriString;
     }
 
     @Override
     public IRI decode(ByteBuffer bytes, ProtocolVersion protocolVersion) {
-        return bytes == null ? null : parse(new String(bytesFromBuffer(bytes), UTF_8));
+        if (bytes == null) return null;
+        IRI model = interactionModels.get(bytes);
+        if (model != null) return model;
+        IRI cached = cache.get(bytes);
+        if (cached != null) return cached;
+        // copy the key out, because the driver may reuse its buffer
+        byte[] key = new byte[bytes.remaining()];
+        bytes.duplicate().get(key);
+        IRI iri = parse(new String(key, UTF_8));
+        if (iri == null) return null;
+        if (cache.size() >= CACHE_MAXIMUM_SIZE) cache.clear();
+        IRI raced = cache.putIfAbsent(wrap(key), iri);
+        return raced != null ? raced : iri;
     }
 
     @Override
     public IRI parse(String v) {
         if (v == null || v.isEmpty()) return null;
-        return rdf.createIRI(v);
+        switch (v.charAt(0)) {
+        case MODEL_CODE:
+            return model(v);
+        case RELATIVE:
+            return rdf.createIRI(TRELLIS_DATA_PREFIX + v.substring(1));
+        default:
+            return rdf.createIRI(v);
+        }
+    }
+
+    private static IRI model(String code) {
+        try {
+            int index = Integer.parseInt(code.substring(1));
+            if (index >= 0 && index < MODELS.size()) return MODELS.get(index);
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Unknown interaction model code: " + code + "!");
     }
 }
@@ -0,0 +1,103 @@
+package edu.si.trellis;
+
+import static edu.si.trellis.IRICodec.COMPACT_IRI_CODEC;
+import static edu.si.trellis.IRICodec.IRI_CODEC;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.metadata.schema.ColumnMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
+
+import edu.si.trellis.query.QueryContext;
+import edu.si.trellis.query.Rekey;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Rewrites stored IRIs into the compact form written by {@link IRICodec#COMPACT_IRI_CODEC}. Because identifiers are
+ * partition keys, alone or with other columns, each partition is copied to its new key and the old one deleted.
+ * Resources are invisible under compact encoding until they have been migrated, so this should run to completion
+ * before requests are served.
+ */
+public class IRIMigrator {
+
+    private static final Logger log = getLogger(IRIMigrator.class);
+
+    private static final CqlIdentifier IDENTIFIER = CqlIdentifier.fromCql("identifier");
+
+    /**
+     * Columns that hold IRIs.
+     */
+    private static final List<String> IRI_COLUMNS = asList("identifier", "interactionModel", "container",
+                    "binaryIdentifier");
+
+    private final List<Rekey> tables;
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use for rewriting rows
+     */
+    @Inject
+    public IRIMigrator(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        CqlSession session = context.session();
+        KeyspaceMetadata keyspace = session.getKeyspace().flatMap(session.getMetadata()::getKeyspace)
+                        .orElseThrow(() -> new IllegalStateException("No keyspace in use!"));
+        // every table partitioned by identifier, leaving views to follow their base tables
+        this.tables = keyspace.getTables().values().stream()
+                        .filter(table -> partitionKey(table).contains(IDENTIFIER))
+                        .map(table -> new Rekey(context, consistency, table.getName().asCql(true), partitionKey(table),
+                                        IRI_COLUMNS))
+                        .collect(toList());
+    }
+
+    private static List<CqlIdentifier> partitionKey(TableMetadata table) {
+        return table.getPartitionKey().stream().map(ColumnMetadata::getName).collect(toList());
+    }
+
+    /**
+     * Migrates every table, blocking until done.
+     *
+     * @return the number of partitions migrated
+     */
+    public long migrate() {
+        return tables.stream().mapToLong(IRIMigrator::migrate).sum();
+    }
+
+    private static long migrate(Rekey table) {
+        log.info("Migrating IRIs in table {} to compact form", table.table());
+        long migrated = 0;
+        List<ByteBuffer> partition = null;
+        for (Row row : table.execute()) {
+            ByteBuffer identifier = row.getBytesUnsafe("identifier");
+            if (identifier.equals(recode(identifier))) continue;
+            List<ByteBuffer> key = table.partition(row);
+            if (partition != null && !partition.equals(key)) {
+                table.delete(partition).toCompletableFuture().join();
+                migrated++;
+            }
+            partition = key;
+            table.execute(row, IRIMigrator::recode).toCompletableFuture().join();
+        }
+        if (partition != null) {
+            table.delete(partition).toCompletableFuture().join();
+            migrated++;
+        }
+        log.info("Migrated {} partitions in table {}", migrated, table.table());
+        return migrated;
+    }
+
+    private static ByteBuffer recode(ByteBuffer iri) {
+        return COMPACT_IRI_CODEC.encode(IRI_CODEC.decode(iri, null), null);
+    }
+}
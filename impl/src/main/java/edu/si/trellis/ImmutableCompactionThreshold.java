@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The number of uncompacted rows of immutable data for a resource that will trigger a roll-up of those rows into a
+ * snapshot. A value less than 1 disables compaction.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ImmutableCompactionThreshold {
+
+    /**
+     * Default threshold to use.
+     */
+    public static final String value = "100";
+}
@@ -0,0 +1,115 @@
+package edu.si.trellis;
+
+import static java.time.Instant.now;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import edu.si.trellis.query.rdf.CompactImmutable;
+import edu.si.trellis.query.rdf.ImmutableRetrieve;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
+import org.slf4j.Logger;
+import org.trellisldp.api.TrellisUtils;
+
+/**
+ * Rolls up the immutable data of a resource into a snapshot in the background, once enough rows have accumulated, so
+ * that the cost of retrieving immutable data stays flat as its history grows.
+ */
+class ImmutableCompactor {
+
+    private static final Logger log = getLogger(ImmutableCompactor.class);
+
+    private static final RDF rdf = TrellisUtils.getInstance();
+
+    /**
+     * Rows younger than this are left in place, to allow for clock skew between writers.
+     */
+    static final Duration GRACE_PERIOD = Duration.ofMinutes(1);
+
+    private final ImmutableRetrieve immutableRetrieve;
+
+    private final CompactImmutable compactImmutable;
+
+    private final int threshold;
+
+    private final Set<IRI> inProgress = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param immutableRetrieve a {@link ImmutableRetrieve} query to use
+     * @param compactImmutable a {@link CompactImmutable} query to use
+     * @param threshold the number of uncompacted rows that triggers compaction
+     */
+    @Inject
+    ImmutableCompactor(ImmutableRetrieve immutableRetrieve, CompactImmutable compactImmutable,
+                    @ImmutableCompactionThreshold int threshold) {
+        this.immutableRetrieve = immutableRetrieve;
+        this.compactImmutable = compactImmutable;
+        this.threshold = threshold;
+        log.info("Using configured immutable data compaction threshold: {}", threshold);
+    }
+
+    /**
+     * @return the time up to which (inclusive) rows may be compacted now, rows after it being within the grace period
+     */
+    static Instant compactable() {
+        return now().minus(GRACE_PERIOD);
+    }
+
+    /**
+     * Schedules compaction for a resource if enough uncompacted rows were found for it and no compaction for it is
+     * already underway.
+     * 
+     * @param id the {@link IRI} of a resource
+     * @param uncompacted how many uncompacted rows of immutable data, recorded at or before {@link #compactable()},
+     *            were found for {@code id}
+     */
+    void offer(IRI id, int uncompacted) {
+        if (threshold < 1 || uncompacted < threshold || !inProgress.add(id)) return;
+        log.debug("Compacting {} rows of immutable data for {}", uncompacted, id);
+        compact(id).whenComplete((v, e) -> {
+            inProgress.remove(id);
+            if (e != null) log.warn("Failed to compact immutable data for {}!", id, e);
+        });
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource, the immutable data of which is to be compacted
+     * @return whether and when compaction succeeds
+     */
+    CompletionStage<Void> compact(IRI id) {
+        return compact(id, compactable());
+    }
+
+    /**
+     * Compaction is safe to run on many nodes at once, because a snapshot never replaces a later one.
+     *
+     * @param id the {@link IRI} of a resource, the immutable data of which is to be compacted
+     * @param through the time up to which (inclusive) immutable data is to be compacted
+     * @return whether and when compaction succeeds
+     */
+    CompletionStage<Void> compact(IRI id, Instant through) {
+        return immutableRetrieve.execute(id, through)
+                        .thenApply(ImmutableCompactor::toDataset)
+                        .thenCompose(snapshot -> compactImmutable.execute(id, snapshot, through))
+                        .thenAccept(recorded -> {
+                            if (!recorded) log.debug("A later snapshot of {} was already recorded", id);
+                        });
+    }
+
+    private static Dataset toDataset(Stream<Quad> quads) {
+        Dataset dataset = rdf.createDataset();
+        quads.forEach(dataset::add);
+        return dataset;
+    }
+}
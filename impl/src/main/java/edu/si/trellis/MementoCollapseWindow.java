@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The number of seconds into which the Mementos of a resource are collapsed: a Memento replaces the latest Memento of
+ * its resource when both fall in the same window, counted from the epoch. A value less than 2 collapses nothing.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface MementoCollapseWindow {
+
+    /**
+     * Default window to use.
+     */
+    public static final String value = "0";
+}
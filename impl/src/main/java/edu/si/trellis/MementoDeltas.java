@@ -0,0 +1,166 @@
+package edu.si.trellis;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+
+import edu.si.trellis.CassandraBuildingService.ChunkReader;
+import edu.si.trellis.query.rdf.MementoChain;
+import edu.si.trellis.query.rdf.Mementoize;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.slf4j.Logger;
+import org.trellisldp.api.BinaryMetadata;
+import org.trellisldp.api.Resource;
+
+/**
+ * Stores Mementos as periodic snapshots, with the Mementos between them as deltas against the Memento before each, so
+ * that a resource whose versions differ by a few quads does not store every version whole. A Memento written as a
+ * delta is rebuilt from the nearest snapshot before it.
+ * <p>
+ * A Memento is written whole when {@link MementoSnapshotInterval} Mementos have passed since the last snapshot, when it
+ * replaces a Memento with the same Memento-datetime, when blank nodes are involved, whose identity does not survive
+ * serialization, and when the delta would be larger than half of the Memento.
+ */
+class MementoDeltas {
+
+    private static final Logger log = getLogger(MementoDeltas.class);
+
+    private final MementoChain chain;
+
+    private final Mementoize mementoize;
+
+    private final int interval;
+
+    /**
+     * @param chain a {@link MementoChain} query to use
+     * @param mementoize a {@link Mementoize} query to use
+     * @param interval how often to write a snapshot, or less than 2 to write only snapshots
+     */
+    @Inject
+    MementoDeltas(MementoChain chain, Mementoize mementoize, @MementoSnapshotInterval int interval) {
+        this.chain = chain;
+        this.mementoize = mementoize;
+        this.interval = interval;
+        log.info("Using configured Memento snapshot interval: {}", interval);
+    }
+
+    /**
+     * @return whether Mementos may be stored as deltas
+     */
+    boolean enabled() {
+        return interval > 1;
+    }
+
+    /**
+     * @param row a Memento written as a delta
+     * @param id the {@link IRI} of its resource
+     * @param chunks reads RDF written in chunks
+     * @return the RDF of the Memento
+     */
+    CompletionStage<Dataset> rebuild(Row row, IRI id, ChunkReader chunks) {
+        return chain.execute(id, row.get("mementomodified", Instant.class))
+                        .thenCompose(rows -> rebuild(rows, id, chunks));
+    }
+
+    private static CompletionStage<Dataset> rebuild(List<Row> rows, IRI id, ChunkReader chunks) {
+        Row snapshot = rows.get(rows.size() - 1);
+        log.debug("Rebuilding a Memento of {} from a snapshot and {} deltas", id, rows.size() - 1);
+        int count = DatasetColumns.chunks(snapshot);
+        CompletionStage<Dataset> base = count == 0 ? completedFuture(DatasetColumns.read(snapshot))
+                        : chunks.read(id, snapshot.getUuid("created"), count)
+                                        .thenApply(content -> DatasetColumns.read(snapshot, content));
+        return base.thenApply(dataset -> {
+            for (int i = rows.size() - 2; i >= 0; i--) {
+                rows.get(i).get("removals", Dataset.class).stream().forEach(dataset::remove);
+                rows.get(i).get("additions", Dataset.class).stream().forEach(dataset::add);
+            }
+            return dataset;
+        });
+    }
+
+    /**
+     * Rewrites a Memento written as a delta whole, so that the Mementos on which it depends can be deleted.
+     *
+     * @param id the {@link IRI} of a resource
+     * @param time the Memento-datetime of a Memento of {@code id}
+     * @param chunks reads RDF written in chunks
+     * @return whether and when the Memento has been rewritten
+     */
+    CompletionStage<Void> snapshot(IRI id, Instant time, ChunkReader chunks) {
+        return chain.execute(id, time).thenCompose(rows -> {
+            Row row = rows.isEmpty() ? null : rows.get(0);
+            if (row == null || !MementoChain.isDelta(row) || !time.equals(row.get("mementomodified", Instant.class)))
+                return completedFuture(null);
+            log.debug("Rewriting the Memento of {} at {} whole", id, time);
+            return rebuild(rows, id, chunks).thenCompose(data -> mementoize.execute(
+                            row.get("interactionModel", IRI.class), row.getString("mimeType"),
+                            row.get("container", IRI.class), data, row.getBytesUnsafe("contentHash"),
+                            row.get("modified", Instant.class),
+                            row.get("binaryIdentifier", IRI.class), Uuids.timeBased(), id));
+        });
+    }
+
+    /**
+     * Records a Memento as a delta, if that is worthwhile.
+     *
+     * @param resource the version of a resource to record
+     * @param contentHash a hash of that version, if any
+     * @param baseLimit the latest Memento-datetime on which to base the delta
+     * @param creation a time-based (version 1) UUID for the moment the Memento is created
+     * @param chunks reads RDF written in chunks
+     * @return whether and when the delta was written, or {@code false} if the Memento should be written whole
+     */
+    CompletionStage<Boolean> append(Resource resource, ByteBuffer contentHash, Instant baseLimit, UUID creation,
+                    ChunkReader chunks) {
+        IRI id = resource.getIdentifier();
+        Instant time = resource.getModified().truncatedTo(SECONDS);
+        return chain.execute(id, baseLimit).thenCompose(rows -> {
+            if (rows.isEmpty()) return completedFuture(false);
+            Row latest = rows.get(0);
+            Instant base = latest.get("mementomodified", Instant.class);
+            int since = MementoChain.isDelta(latest) ? latest.getInt("sinceSnapshot") : 0;
+            // a Memento at the same time replaces the latest, and so cannot be based on it
+            if (since + 1 >= interval || !base.isBefore(time)) return completedFuture(false);
+            return rebuild(rows, id, chunks)
+                            .thenCompose(before -> append(resource, contentHash, before, base, since + 1, creation));
+        });
+    }
+
+    private CompletionStage<Boolean> append(Resource resource, ByteBuffer contentHash, Dataset stored, Instant base,
+                    int sinceSnapshot, UUID creation) {
+        IRI id = resource.getIdentifier();
+        Set<Quad> before = PatchDeltas.collect(stored.stream());
+        Set<Quad> after = PatchDeltas.collect(resource.dataset().stream());
+        if (PatchDeltas.hasBlankNodes(before) || PatchDeltas.hasBlankNodes(after)) return completedFuture(false);
+        CompactDataset additions = new CompactDataset(), removals = new CompactDataset();
+        after.stream().filter(q -> !before.contains(q)).forEach(additions::append);
+        before.stream().filter(q -> !after.contains(q)).forEach(removals::append);
+        if (additions.size() + removals.size() > after.size() / 2) return completedFuture(false);
+        log.debug("Writing Memento of {} as a delta of {} additions and {} removals", id, additions.size(),
+                        removals.size());
+
+        Optional<BinaryMetadata> binary = resource.getBinaryMetadata();
+        IRI binaryIdentifier = binary.map(BinaryMetadata::getIdentifier).orElse(null);
+        String mimeType = binary.flatMap(BinaryMetadata::getMimeType).orElse(null);
+        boolean hasAcl = after.stream().anyMatch(GraphSelector::isAcl);
+        return mementoize.executeDelta(resource.getInteractionModel(), mimeType, resource.getContainer().orElse(null),
+                        hasAcl, contentHash, additions, removals, base, sinceSnapshot, resource.getModified(),
+                        binaryIdentifier, creation, id).thenApply(x -> true);
+    }
+}
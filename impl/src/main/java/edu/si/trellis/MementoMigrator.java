@@ -0,0 +1,120 @@
+package edu.si.trellis;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.function.Function.identity;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.query.QueryContext;
+import edu.si.trellis.query.rdf.CopyMementos;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Copies Mementos from the legacy {@code mementodata} table, clustered by {@code created}, into the {@code mementos}
+ * table, clustered by Memento-datetime so that datetime negotiation is one slice read. Mementos are invisible until
+ * they have been copied, so this should run to completion before requests are served. The legacy table is left for an
+ * operator to drop.
+ * <p>
+ * Partitions are copied concurrently, up to {@link #PARTITIONS_IN_FLIGHT} at once, so that the copy is bounded by
+ * throughput rather than by the latency of each conditional write. The rows of one partition are copied in the order
+ * scanned, on which {@link CopyMementos} relies to choose among rows that share a Memento-datetime.
+ */
+public class MementoMigrator {
+
+    private static final Logger log = getLogger(MementoMigrator.class);
+
+    /**
+     * The maximum number of partitions to copy at once.
+     */
+    static final int PARTITIONS_IN_FLIGHT = 64;
+
+    private final CopyMementos copy;
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use for copying rows
+     */
+    @Inject
+    public MementoMigrator(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        this.copy = new CopyMementos(context, consistency);
+    }
+
+    /**
+     * Copies every legacy Memento, blocking until done.
+     *
+     * @return the number of Mementos copied
+     */
+    public long migrate() {
+        log.info("Copying Mementos into the table clustered by Memento-datetime");
+        AtomicLong seen = new AtomicLong(), copied = new AtomicLong();
+        // paging through the scan blocks, which must not happen on a driver thread
+        ExecutorService worker = newSingleThreadExecutor();
+        Iterable<List<Row>> partitions = () -> new Partitions(copy.execute().iterator());
+        try {
+            BoundedFanOut.run(partitions, PARTITIONS_IN_FLIGHT, partition -> copy(partition, worker),
+                            (partition, count) -> {
+                                seen.addAndGet(partition.size());
+                                copied.addAndGet(count);
+                            }).toCompletableFuture().join();
+        } finally {
+            worker.shutdown();
+        }
+        log.info("Copied {} of {} legacy Mementos", copied, seen);
+        return copied.get();
+    }
+
+    private CompletionStage<Integer> copy(List<Row> partition, ExecutorService worker) {
+        CompletionStage<Integer> copying = completedFuture(0);
+        for (Row row : partition)
+            copying = copying.thenComposeAsync(n -> copy.execute(row).thenApply(applied -> applied ? n + 1 : n),
+                            worker);
+        return copying.thenApplyAsync(identity(), worker);
+    }
+
+    /**
+     * Groups the rows of a scan, in which each partition is contiguous, by partition.
+     */
+    private static final class Partitions implements Iterator<List<Row>> {
+
+        private final Iterator<Row> rows;
+
+        private Row next;
+
+        private Partitions(Iterator<Row> rows) {
+            this.rows = rows;
+            this.next = rows.hasNext() ? rows.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public List<Row> next() {
+            if (next == null) throw new NoSuchElementException();
+            List<Row> partition = new ArrayList<>();
+            ByteBuffer identifier = next.getBytesUnsafe("identifier");
+            do {
+                partition.add(next);
+                next = rows.hasNext() ? rows.next() : null;
+            } while (next != null && identifier.equals(next.getBytesUnsafe("identifier")));
+            return partition;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package edu.si.trellis;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.query.rdf.DeleteMementos;
+import edu.si.trellis.query.rdf.GetMemento;
+import edu.si.trellis.query.rdf.MementoChain;
+import edu.si.trellis.query.rdf.ScanMementos;
+import edu.si.trellis.query.rdf.UpdateMementoSummary;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+
+/**
+ * Deletes the Mementos that {@link MementoRetentionPolicy retention policies} drop, in the background and at a limited
+ * rate, scanning the Mementos of every resource through the token ring. Each run of consecutive dropped Mementos is
+ * deleted with one range tombstone. A kept Memento written as a delta against a dropped Memento is first rewritten
+ * whole. The {@link MementoSummary} of a resource that loses Mementos is discarded, to be recounted when next asked
+ * for.
+ */
+public class MementoRetention {
+
+    private static final Logger log = getLogger(MementoRetention.class);
+
+    private final ScanMementos scan;
+
+    private final DeleteMementos delete;
+
+    private final GetMemento getMemento;
+
+    private final MementoDeltas deltas;
+
+    private final UpdateMementoSummary summary;
+
+    private final Executor worker = newSingleThreadExecutor();
+
+    /**
+     * @param scan a {@link ScanMementos} query to use
+     * @param delete a {@link DeleteMementos} query to use
+     * @param getMemento a {@link GetMemento} query to use for reading chunks
+     * @param deltas for rewriting Mementos written as deltas
+     * @param summary an {@link UpdateMementoSummary} query to use for discarding summaries
+     */
+    @Inject
+    public MementoRetention(ScanMementos scan, DeleteMementos delete, GetMemento getMemento, MementoDeltas deltas,
+                    UpdateMementoSummary summary) {
+        this.scan = scan;
+        this.delete = delete;
+        this.getMemento = getMemento;
+        this.deltas = deltas;
+        this.summary = summary;
+    }
+
+    /**
+     * @param defaults the policy for resources not under any of {@code overrides}
+     * @param overrides policies for resources under given prefixes, the longest matching prefix applying
+     * @param rowsPerSecond the maximum number of Mementos to examine per second
+     * @return the number of Mementos deleted
+     */
+    public CompletionStage<Long> enforce(MementoRetentionPolicy defaults, Map<String, MementoRetentionPolicy> overrides,
+                    int rowsPerSecond) {
+        if (rowsPerSecond < 1) throw new IllegalArgumentException("Rate must be at least one row per second!");
+        return supplyAsync(() -> enforceAll(defaults, overrides, rowsPerSecond), worker);
+    }
+
+    private long enforceAll(MementoRetentionPolicy defaults, Map<String, MementoRetentionPolicy> overrides,
+                    int rowsPerSecond) {
+        log.info("Enforcing Memento retention at up to {} rows per second", rowsPerSecond);
+        final long start = nanoTime();
+        final Instant now = Instant.now();
+        long seen = 0, deleted = 0;
+        IRI id = null;
+        List<Row> partition = new ArrayList<>();
+        for (Row row : scan.execute()) {
+            IRI rowId = row.get("identifier", IRI.class);
+            if (!rowId.equals(id)) {
+                if (id != null) deleted += enforce(id, partition, policy(id, defaults, overrides), now);
+                id = rowId;
+                partition.clear();
+            }
+            partition.add(row);
+            long wait = start + ++seen * SECONDS.toNanos(1) / rowsPerSecond - nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+        }
+        if (id != null) deleted += enforce(id, partition, policy(id, defaults, overrides), now);
+        log.info("Deleted {} of {} Mementos under retention policies", deleted, seen);
+        return deleted;
+    }
+
+    private static MementoRetentionPolicy policy(IRI id, MementoRetentionPolicy defaults,
+                    Map<String, MementoRetentionPolicy> overrides) {
+        String iri = id.getIRIString();
+        String longest = null;
+        for (String prefix : overrides.keySet())
+            if (iri.startsWith(prefix) && (longest == null || prefix.length() > longest.length())) longest = prefix;
+        return longest == null ? defaults : overrides.get(longest);
+    }
+
+    /**
+     * @param rows the Mementos of {@code id}, latest first
+     * @return the number deleted
+     */
+    private long enforce(IRI id, List<Row> rows, MementoRetentionPolicy policy, Instant now) {
+        if (policy.keepsAll()) return 0;
+        // a partition holding only its summary has a row with no Memento
+        rows.removeIf(row -> row.isNull("mementomodified"));
+        List<Instant> times = new ArrayList<>(rows.size());
+        rows.forEach(row -> times.add(row.get("mementomodified", Instant.class)));
+        Set<Instant> expired = new HashSet<>(policy.expired(times, now));
+        if (expired.isEmpty()) return 0;
+        log.debug("Deleting {} of {} Mementos of {}", expired.size(), rows.size(), id);
+
+        // rewrite whole, oldest first, any kept delta whose base is going
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            Row row = rows.get(i);
+            if (!expired.contains(times.get(i)) && MementoChain.isDelta(row)
+                            && expired.contains(row.get("base", Instant.class)))
+                deltas.snapshot(id, times.get(i), getMemento::readChunks).toCompletableFuture().join();
+        }
+        for (int i = 0; i < rows.size(); i++)
+            if (expired.contains(times.get(i)) && DatasetColumns.chunks(rows.get(i)) > 0)
+                delete.deleteChunks(id, rows.get(i).getUuid("created")).toCompletableFuture().join();
+        // each run of consecutive expired Mementos goes with one range deletion
+        int i = 0;
+        while (i < rows.size()) {
+            if (!expired.contains(times.get(i))) {
+                i++;
+                continue;
+            }
+            Instant until = times.get(i), from = until;
+            while (i < rows.size() && expired.contains(times.get(i)))
+                from = times.get(i++);
+            delete.execute(id, from, until).toCompletableFuture().join();
+        }
+        summary.clear(id).toCompletableFuture().join();
+        return expired.size();
+    }
+}
@@ -0,0 +1,121 @@
+package edu.si.trellis;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which Mementos of a resource to keep. A policy may keep only the latest so many Mementos, keep only the latest
+ * Memento of each day among those older than so many days, and drop Mementos older than so many days. The latest
+ * Memento of a resource is always kept.
+ * <p>
+ * A policy is written as comma-separated settings, for example {@code keepLast=100,dailyAfter=30,maxAge=365}, where
+ * ages are in days. An empty policy keeps every Memento.
+ *
+ * @see MementoRetention
+ */
+public final class MementoRetentionPolicy {
+
+    /**
+     * Keeps every Memento.
+     */
+    public static final MementoRetentionPolicy KEEP_ALL = new MementoRetentionPolicy(0, null, null);
+
+    private final int keepLast;
+
+    private final Duration dailyAfter;
+
+    private final Duration maxAge;
+
+    private MementoRetentionPolicy(int keepLast, Duration dailyAfter, Duration maxAge) {
+        this.keepLast = keepLast;
+        this.dailyAfter = dailyAfter;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @param policy a policy as written in configuration
+     * @return that policy
+     * @throws IllegalArgumentException if {@code policy} cannot be read
+     */
+    public static MementoRetentionPolicy parse(String policy) {
+        int keepLast = 0;
+        Duration dailyAfter = null, maxAge = null;
+        for (String setting : policy.split(",")) {
+            if (setting.trim().isEmpty()) continue;
+            String[] parts = setting.split("=", 2);
+            if (parts.length < 2) throw new IllegalArgumentException("No value for Memento retention " + setting + "!");
+            int value;
+            try {
+                value = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad value for Memento retention " + setting + "!", e);
+            }
+            if (value < 1) throw new IllegalArgumentException("Memento retention " + setting + " must be positive!");
+            switch (parts[0].trim()) {
+            case "keepLast":
+                keepLast = value;
+                break;
+            case "dailyAfter":
+                dailyAfter = Duration.ofDays(value);
+                break;
+            case "maxAge":
+                maxAge = Duration.ofDays(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown Memento retention setting " + parts[0] + "!");
+            }
+        }
+        return new MementoRetentionPolicy(keepLast, dailyAfter, maxAge);
+    }
+
+    /**
+     * @param overrides policies for resources under given prefixes, written as a prefix and a policy separated by
+     *            whitespace, separated by semicolons
+     * @return the policy for each prefix
+     * @throws IllegalArgumentException if {@code overrides} cannot be read
+     */
+    public static Map<String, MementoRetentionPolicy> parseOverrides(String overrides) {
+        Map<String, MementoRetentionPolicy> policies = new HashMap<>();
+        for (String override : overrides.split(";")) {
+            if (override.trim().isEmpty()) continue;
+            String[] parts = override.trim().split("\\s+", 2);
+            policies.put(parts[0], parts.length < 2 ? KEEP_ALL : parse(parts[1]));
+        }
+        return policies;
+    }
+
+    /**
+     * @return whether this policy keeps every Memento
+     */
+    public boolean keepsAll() {
+        return keepLast == 0 && dailyAfter == null && maxAge == null;
+    }
+
+    /**
+     * @param mementos the Memento-datetimes of a resource, latest first
+     * @param now the present
+     * @return those Memento-datetimes that this policy drops, latest first
+     */
+    public List<Instant> expired(List<Instant> mementos, Instant now) {
+        List<Instant> expired = new ArrayList<>();
+        Set<Instant> keptDays = new HashSet<>();
+        for (int i = 0; i < mementos.size(); i++) {
+            Instant time = mementos.get(i);
+            Instant day = time.truncatedTo(DAYS);
+            boolean drop = i > 0 && (keepLast > 0 && i >= keepLast
+                            || maxAge != null && time.isBefore(now.minus(maxAge))
+                            || dailyAfter != null && time.isBefore(now.minus(dailyAfter)) && keptDays.contains(day));
+            if (drop) expired.add(time);
+            else keptDays.add(day);
+        }
+        return expired;
+    }
+}
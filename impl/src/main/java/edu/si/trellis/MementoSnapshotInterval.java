@@ -0,0 +1,24 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * How often a Memento is written whole, as a snapshot: with an interval of N, up to N - 1 Mementos after each snapshot
+ * are written as deltas against the Memento before them. Longer intervals store less and read more to rebuild a
+ * Memento. A value less than 2 writes every Memento whole.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface MementoSnapshotInterval {
+
+    /**
+     * Default interval to use.
+     */
+    public static final String value = "1";
+}
@@ -0,0 +1,141 @@
+package edu.si.trellis;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.query.rdf.GetMementoSummary;
+import edu.si.trellis.query.rdf.UpdateMementoSummary;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+
+/**
+ * Keeps the {@link MementoSummary} of each resource in static columns of its Memento partition, so that it can be read
+ * in one single-row read. Each update is conditional on the count it replaces and is retried a few times on conflict,
+ * after which the summary is discarded. A resource with no summary, as for one whose Mementos predate summaries or
+ * whose summary was discarded, is recounted from its TimeMap when next asked for.
+ */
+class MementoSummaries {
+
+    private static final Logger log = getLogger(MementoSummaries.class);
+
+    /**
+     * How many times to try a conditional update before giving up and discarding the summary.
+     */
+    static final int ATTEMPTS = 5;
+
+    private final GetMementoSummary getSummary;
+
+    private final UpdateMementoSummary updateSummary;
+
+    /**
+     * @param getSummary a {@link GetMementoSummary} query to use
+     * @param updateSummary an {@link UpdateMementoSummary} query to use
+     */
+    @Inject
+    MementoSummaries(GetMementoSummary getSummary, UpdateMementoSummary updateSummary) {
+        this.getSummary = getSummary;
+        this.updateSummary = updateSummary;
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param timeMap reads the whole TimeMap of a resource, for recounting
+     * @return the summary of the Mementos of {@code id}, or empty if it has none
+     */
+    CompletionStage<Optional<MementoSummary>> get(IRI id, Function<IRI, CompletionStage<SortedSet<Instant>>> timeMap) {
+        return getSummary.execute(id).thenApply(AsyncResultSet::one).thenCompose(row -> {
+            MementoSummary stored = summary(row);
+            return stored != null ? completedFuture(Optional.of(stored)) : recount(id, timeMap);
+        });
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param time the Memento-datetime of a Memento just written
+     * @param timeMap reads the whole TimeMap of a resource, for recounting
+     * @return whether and when the summary has been updated
+     */
+    CompletionStage<Void> added(IRI id, Instant time, Function<IRI, CompletionStage<SortedSet<Instant>>> timeMap) {
+        return update(id, s -> s.with(time), timeMap, ATTEMPTS);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param time the Memento-datetime of a Memento just written in place of the latest Memento
+     * @param timeMap reads the whole TimeMap of a resource, for recounting
+     * @return whether and when the summary has been updated
+     */
+    CompletionStage<Void> replacedLast(IRI id, Instant time,
+                    Function<IRI, CompletionStage<SortedSet<Instant>>> timeMap) {
+        return update(id, s -> s.replacingLast(time), timeMap, ATTEMPTS);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource some of whose Mementos have been deleted
+     * @return whether and when its summary has been discarded
+     */
+    CompletionStage<Void> discard(IRI id) {
+        return updateSummary.clear(id);
+    }
+
+    /**
+     * Applies a change to the stored summary, or recounts if there is none, since the Memento changed is then already
+     * in the TimeMap.
+     */
+    private CompletionStage<Void> update(IRI id, UnaryOperator<MementoSummary> change,
+                    Function<IRI, CompletionStage<SortedSet<Instant>>> timeMap, int attempts) {
+        return getSummary.execute(id).thenApply(AsyncResultSet::one).thenCompose(row -> {
+            MementoSummary stored = summary(row);
+            CompletionStage<Boolean> applied;
+            if (stored == null) applied = timeMap.apply(id).thenCompose(times -> store(id, times));
+            else {
+                MementoSummary changed = change.apply(stored);
+                applied = updateSummary.execute(id, changed.first(), changed.last(), changed.count(), stored.count());
+            }
+            return applied.thenCompose(done -> {
+                if (done) return completedFuture((Void) null);
+                if (attempts > 1) return update(id, change, timeMap, attempts - 1);
+                log.debug("Discarding Memento summary of {} after repeated conflicts", id);
+                return discard(id);
+            });
+        });
+    }
+
+    private CompletionStage<Optional<MementoSummary>> recount(IRI id,
+                    Function<IRI, CompletionStage<SortedSet<Instant>>> timeMap) {
+        log.debug("Recounting Mementos of {}", id);
+        return timeMap.apply(id).thenCompose(times -> store(id, times).thenApply(
+                        x -> times.isEmpty() ? Optional.<MementoSummary> empty() : Optional.of(summary(times))));
+    }
+
+    /**
+     * @return {@code false} if a summary has been stored meanwhile, so that {@code times} was not
+     */
+    private CompletionStage<Boolean> store(IRI id, SortedSet<Instant> times) {
+        if (times.isEmpty()) return completedFuture(true);
+        return updateSummary.execute(id, times.first(), times.last(), times.size(), null);
+    }
+
+    private static MementoSummary summary(SortedSet<Instant> times) {
+        return new MementoSummary(times.first(), times.last(), times.size());
+    }
+
+    private static MementoSummary summary(Row row) {
+        if (row == null || row.isNull("mementoCount")) return null;
+        return new MementoSummary(row.get("firstMemento", Instant.class), row.get("lastMemento", Instant.class),
+                        row.getInt("mementoCount"));
+    }
+}
@@ -0,0 +1,71 @@
+package edu.si.trellis;
+
+import java.time.Instant;
+
+/**
+ * The earliest and latest Memento-datetimes of a resource and how many Mementos it has, as needed for a TimeGate
+ * redirect or the {@code Link} header of a Memento, without reading its TimeMap.
+ *
+ * @see CassandraMementoService#summary(org.apache.commons.rdf.api.IRI)
+ */
+public final class MementoSummary {
+
+    private final Instant first, last;
+
+    private final int count;
+
+    /**
+     * @param first the earliest Memento-datetime
+     * @param last the latest Memento-datetime
+     * @param count the number of Mementos
+     */
+    public MementoSummary(Instant first, Instant last, int count) {
+        this.first = first;
+        this.last = last;
+        this.count = count;
+    }
+
+    /**
+     * @return the earliest Memento-datetime
+     */
+    public Instant first() {
+        return first;
+    }
+
+    /**
+     * @return the latest Memento-datetime
+     */
+    public Instant last() {
+        return last;
+    }
+
+    /**
+     * @return the number of Mementos
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @param time the Memento-datetime of a Memento written since this summary
+     * @return this summary with that Memento, which is counted unless it replaced the earliest or latest Memento
+     */
+    MementoSummary with(Instant time) {
+        boolean replacing = time.equals(first) || time.equals(last);
+        return new MementoSummary(time.isBefore(first) ? time : first, time.isAfter(last) ? time : last,
+                        replacing ? count : count + 1);
+    }
+
+    /**
+     * @param time the Memento-datetime of a Memento written in place of the latest Memento
+     * @return this summary with the latest Memento so replaced
+     */
+    MementoSummary replacingLast(Instant time) {
+        return count == 1 ? new MementoSummary(time, time, 1) : new MementoSummary(first, time, count);
+    }
+
+    @Override
+    public String toString() {
+        return "MementoSummary [first=" + first + ", last=" + last + ", count=" + count + "]";
+    }
+}
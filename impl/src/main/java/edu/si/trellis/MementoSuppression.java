@@ -0,0 +1,158 @@
+package edu.si.trellis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.stream.Collectors.toList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.query.rdf.DeleteMementos;
+import edu.si.trellis.query.rdf.LatestMemento;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.slf4j.Logger;
+import org.trellisldp.api.BinaryMetadata;
+import org.trellisldp.api.Resource;
+
+/**
+ * Suppresses redundant Mementos, as written by automated edits and by changes to containment. A Memento identical to
+ * the latest, by a hash of its content and metadata, may be skipped, and a Memento may replace the latest when both
+ * fall in the same {@link MementoCollapseWindow}.
+ */
+class MementoSuppression {
+
+    private static final Logger log = getLogger(MementoSuppression.class);
+
+    private final LatestMemento latestMemento;
+
+    private final DeleteMementos delete;
+
+    private final boolean skipUnchanged;
+
+    private final long window;
+
+    /**
+     * @param latestMemento a {@link LatestMemento} query to use
+     * @param delete a {@link DeleteMementos} query to use
+     * @param skipUnchanged whether to skip Mementos identical to the latest
+     * @param window the number of seconds into which to collapse Mementos
+     */
+    @Inject
+    MementoSuppression(LatestMemento latestMemento, DeleteMementos delete,
+                    @SkipUnchangedMementos boolean skipUnchanged, @MementoCollapseWindow int window) {
+        this.latestMemento = latestMemento;
+        this.delete = delete;
+        this.skipUnchanged = skipUnchanged;
+        this.window = window;
+        log.info("Using configured Memento suppression: skip unchanged {}, collapse window {} seconds", skipUnchanged,
+                        window);
+    }
+
+    /**
+     * @return whether any Mementos may be suppressed
+     */
+    boolean enabled() {
+        return skipUnchanged || window > 1;
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @return the latest Memento of {@code id}, or {@code null} if there is none
+     */
+    CompletionStage<Row> latest(IRI id) {
+        // a partition that holds only its summary yields a row with no Memento in it
+        return latestMemento.execute(id).thenApply(AsyncResultSet::one)
+                        .thenApply(row -> row == null || row.isNull("mementomodified") ? null : row);
+    }
+
+    /**
+     * @param resource a version of a resource
+     * @return a hash of that version, for comparison with Mementos, or {@code null} if unchanged Mementos are not
+     *         skipped
+     */
+    ByteBuffer hash(Resource resource) {
+        return skipUnchanged ? contentHash(resource) : null;
+    }
+
+    /**
+     * @param latest the latest Memento of a resource, if any
+     * @param contentHash the hash of a new version of the resource
+     * @return whether the new version is identical to {@code latest}
+     */
+    boolean unchanged(Row latest, ByteBuffer contentHash) {
+        return skipUnchanged && latest != null && contentHash.equals(latest.getBytesUnsafe("contentHash"));
+    }
+
+    /**
+     * @param latest the latest Memento of a resource, if any
+     * @param time the Memento-datetime of a new Memento of the resource
+     * @return whether the new Memento should replace {@code latest}
+     */
+    boolean collapses(Row latest, Instant time) {
+        if (window <= 1 || latest == null) return false;
+        Instant previous = latest.get("mementomodified", Instant.class);
+        return previous.isBefore(time) && previous.getEpochSecond() / window == time.getEpochSecond() / window;
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param replaced a Memento of {@code id} that has been replaced
+     * @return whether and when {@code replaced} has been deleted
+     */
+    CompletionStage<Void> discard(IRI id, Row replaced) {
+        Instant time = replaced.get("mementomodified", Instant.class);
+        log.debug("Collapsing the Memento of {} at {} into a later one", id, time);
+        CompletionStage<Void> chunks = DatasetColumns.chunks(replaced) > 0
+                        ? delete.deleteChunks(id, replaced.getUuid("created"))
+                        : completedFuture(null);
+        return chunks.thenCompose(x -> delete.execute(id, time, time));
+    }
+
+    /**
+     * Hashes the metadata and quads of a resource, in an order that does not depend on the order of the quads. Blank
+     * nodes are hashed by label, so a resource with blank nodes may seem changed when it is not.
+     */
+    static ByteBuffer contentHash(Resource resource) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No SHA-256 in this JVM!", e);
+        }
+        update(digest, resource.getInteractionModel());
+        update(digest, resource.getContainer().orElse(null));
+        update(digest, resource.getBinaryMetadata().map(BinaryMetadata::getIdentifier).orElse(null));
+        update(digest, resource.getBinaryMetadata().flatMap(BinaryMetadata::getMimeType).orElse(null));
+        List<String> quads = resource.dataset().stream().map(MementoSuppression::nquad).sorted().collect(toList());
+        quads.forEach(quad -> update(digest, quad));
+        return ByteBuffer.wrap(digest.digest());
+    }
+
+    private static String nquad(Quad quad) {
+        return quad.getSubject().ntriplesString() + ' ' + quad.getPredicate().ntriplesString() + ' '
+                        + quad.getObject().ntriplesString()
+                        + quad.getGraphName().map(g -> ' ' + g.ntriplesString()).orElse("");
+    }
+
+    private static void update(MessageDigest digest, RDFTerm term) {
+        update(digest, term == null ? null : term.ntriplesString());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        // delimit each value, so that values cannot run together
+        digest.update(value == null ? new byte[] { 0 } : (value + '\n').getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,175 @@
+package edu.si.trellis;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.stream.Collectors.toSet;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+
+import edu.si.trellis.query.rdf.AppendDelta;
+import edu.si.trellis.query.rdf.DeleteDeltas;
+import edu.si.trellis.query.rdf.GetDeltas;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.BlankNode;
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.slf4j.Logger;
+import org.trellisldp.api.BinaryMetadata;
+import org.trellisldp.api.Metadata;
+import org.trellisldp.api.Resource;
+
+/**
+ * Stores a replacement of the RDF of a resource as a delta against what is stored, when the change is much smaller than
+ * the RDF, as for a small PATCH to a large resource. Deltas are applied in order on read. Once a resource has
+ * {@link DeltaCompactionThreshold} deltas, its next replacement is written whole, which compacts them. Deltas are
+ * counted as they are read, since the count recorded in the row is written without a condition and so may fall
+ * behind under concurrent replacements.
+ * <p>
+ * Changes to the access-control graph, and changes involving blank nodes, whose identity does not survive
+ * serialization, are always written whole.
+ */
+class PatchDeltas {
+
+    private static final Logger log = getLogger(PatchDeltas.class);
+
+    private final GetDeltas getDeltas;
+
+    private final AppendDelta appendDelta;
+
+    private final DeleteDeltas deleteDeltas;
+
+    private final int threshold;
+
+    /**
+     * @param getDeltas a {@link GetDeltas} query to use
+     * @param appendDelta an {@link AppendDelta} query to use
+     * @param deleteDeltas a {@link DeleteDeltas} query to use
+     * @param threshold the number of deltas that triggers compaction, or less than 1 to store no deltas
+     */
+    @Inject
+    PatchDeltas(GetDeltas getDeltas, AppendDelta appendDelta, DeleteDeltas deleteDeltas,
+                    @DeltaCompactionThreshold int threshold) {
+        this.getDeltas = getDeltas;
+        this.appendDelta = appendDelta;
+        this.deleteDeltas = deleteDeltas;
+        this.threshold = threshold;
+        log.info("Using configured delta compaction threshold: {}", threshold);
+    }
+
+    /**
+     * @return whether replacements may be stored as deltas
+     */
+    boolean enabled() {
+        return threshold > 0;
+    }
+
+    /**
+     * @param row the row from which {@code resource} was built
+     * @param graphs which RDF {@code resource} was built with
+     * @param resource a resource
+     * @return {@code resource}, with the deltas written for {@code row} applied to its RDF
+     */
+    CompletionStage<Resource> apply(Row row, GraphSelector graphs, Resource resource) {
+        if (row == null || !graphs.content()) return completedFuture(resource);
+        return applyAll(row, resource).thenApply(count -> resource);
+    }
+
+    /**
+     * @return the number of deltas applied, counted from the deltas themselves, since concurrent appends may each
+     *         have recorded the same count in the row
+     */
+    private CompletionStage<Integer> applyAll(Row row, Resource resource) {
+        int recorded = DatasetColumns.deltas(row);
+        if (recorded == 0) return completedFuture(0);
+        IRI id = resource.getIdentifier();
+        log.debug("Applying deltas to {}, recorded as {}", id, recorded);
+        return getDeltas.execute(id, row.getUuid("created"))
+                        .thenApply(AsyncResultSetUtils::stream)
+                        .thenApply(deltas -> {
+                            Dataset dataset = resource.dataset();
+                            int count = 0;
+                            for (Iterator<Row> i = deltas.iterator(); i.hasNext(); count++) {
+                                Row delta = i.next();
+                                delta.get("removals", Dataset.class).stream().forEach(dataset::remove);
+                                delta.get("additions", Dataset.class).stream().forEach(dataset::add);
+                            }
+                            return count;
+                        });
+    }
+
+    /**
+     * Records a replacement as a delta, if that is worthwhile.
+     * 
+     * @param row the row of the resource
+     * @param stored the resource as stored, with all of its RDF, to which the deltas written for {@code row} are
+     *            applied here
+     * @param meta the metadata of the replacement
+     * @param data the RDF of the replacement
+     * @return whether and when the delta was written, or {@code false} if {@code data} should be written whole
+     */
+    CompletionStage<Boolean> append(Row row, Resource stored, Metadata meta, Dataset data) {
+        return applyAll(row, stored).thenCompose(count -> append(count, stored, meta, data));
+    }
+
+    private CompletionStage<Boolean> append(int count, Resource stored, Metadata meta, Dataset data) {
+        IRI id = meta.getIdentifier();
+        if (count + 1 >= threshold) {
+            log.debug("Compacting {} deltas of {}", count, id);
+            return completedFuture(false);
+        }
+        Set<Quad> before = collect(stored.dataset().stream()), after = collect(data.stream());
+        if (!acl(before).equals(acl(after)) || hasBlankNodes(before) || hasBlankNodes(after))
+            return completedFuture(false);
+        CompactDataset additions = new CompactDataset(), removals = new CompactDataset();
+        after.stream().filter(q -> !before.contains(q)).forEach(additions::append);
+        before.stream().filter(q -> !after.contains(q)).forEach(removals::append);
+        if (additions.size() + removals.size() > after.size() / 2) return completedFuture(false);
+        log.debug("Writing delta of {} additions and {} removals to {}", additions.size(), removals.size(), id);
+
+        Optional<BinaryMetadata> binary = meta.getBinary();
+        IRI binaryIdentifier = binary.map(BinaryMetadata::getIdentifier).orElse(null);
+        String mimeType = binary.flatMap(BinaryMetadata::getMimeType).orElse(null);
+        return appendDelta.execute(id, additions, removals, count + 1, meta.getInteractionModel(), mimeType,
+                        meta.getContainer().orElse(null), Instant.now(), binaryIdentifier, Uuids.timeBased())
+                        .thenApply(x -> true);
+    }
+
+    /**
+     * @param row the row of a resource before it was written whole, if any
+     * @param id the {@link IRI} of the resource
+     * @param base the {@code created} value of the row that replaced {@code row}
+     * @return whether and when the deltas superseded by that row have been deleted
+     */
+    CompletionStage<Void> discard(Row row, IRI id, UUID base) {
+        if (row == null || DatasetColumns.deltas(row) == 0) return completedFuture(null);
+        return deleteDeltas.execute(id, base);
+    }
+
+    static Set<Quad> collect(Stream<? extends Quad> quads) {
+        return quads.collect(toSet());
+    }
+
+    private static Set<Quad> acl(Set<Quad> quads) {
+        Set<Quad> acl = new HashSet<>();
+        quads.stream().filter(GraphSelector::isAcl).forEach(acl::add);
+        return acl;
+    }
+
+    static boolean hasBlankNodes(Set<Quad> quads) {
+        return quads.stream().anyMatch(q -> q.getSubject() instanceof BlankNode || q.getObject() instanceof BlankNode
+                        || q.getGraphName().filter(BlankNode.class::isInstance).isPresent());
+    }
+}
@@ -0,0 +1,69 @@
+package edu.si.trellis;
+
+import static java.lang.System.nanoTime;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.query.QueryContext;
+import edu.si.trellis.query.rdf.Reencode;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Migrates stored RDF from N-Quads text to the compact binary serialization, in the background and at a limited rate.
+ *
+ * @see CompactDatasetCodec
+ */
+public class QuadsReencoder {
+
+    private static final Logger log = getLogger(QuadsReencoder.class);
+
+    private final List<Reencode> tables;
+
+    private final Executor worker = newSingleThreadExecutor();
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use for rewriting rows
+     */
+    @Inject
+    public QuadsReencoder(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        this.tables = asList(Reencode.mutable(context, consistency), Reencode.mementos(context, consistency),
+                        Reencode.immutable(context, consistency), Reencode.immutableSnapshots(context, consistency));
+    }
+
+    /**
+     * @param rowsPerSecond the maximum number of rows to examine per second
+     * @return the number of rows migrated
+     */
+    public CompletionStage<Long> reencode(int rowsPerSecond) {
+        if (rowsPerSecond < 1) throw new IllegalArgumentException("Rate must be at least one row per second!");
+        return supplyAsync(() -> tables.stream().mapToLong(table -> reencode(table, rowsPerSecond)).sum(), worker);
+    }
+
+    private static long reencode(Reencode table, int rowsPerSecond) {
+        log.info("Re-encoding RDF in table {} at up to {} rows per second", table.table(), rowsPerSecond);
+        final long start = nanoTime();
+        long seen = 0, migrated = 0;
+        for (Row row : table.execute()) {
+            if (table.execute(row).toCompletableFuture().join()) migrated++;
+            long wait = start + ++seen * SECONDS.toNanos(1) / rowsPerSecond - nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+        }
+        log.info("Re-encoded {} of {} rows in table {}", migrated, seen, table.table());
+        return migrated;
+    }
+}
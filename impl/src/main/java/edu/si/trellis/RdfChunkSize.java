@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The size in bytes above which the serialized RDF of a resource is written in chunks rather than in one cell.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface RdfChunkSize {
+
+    /**
+     * Default chunk size to use.
+     */
+    public static final String value = "1048576";
+}
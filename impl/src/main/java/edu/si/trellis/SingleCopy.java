@@ -0,0 +1,26 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * Whether to write the RDF of each version of a resource only once, as its latest Memento, with the row of the
+ * resource pointing to that Memento instead of holding a second copy. Mementos are then always written whole, and
+ * written with each version of a resource rather than when Trellis asks for them.
+ *
+ * @see DatasetColumns#MEMENTO_RDF
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface SingleCopy {
+
+    /**
+     * Default setting to use.
+     */
+    public static final String value = "false";
+}
@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * Whether to skip a Memento identical to the latest Memento of its resource, as when only its modified time has
+ * changed.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface SkipUnchangedMementos {
+
+    /**
+     * Default setting to use.
+     */
+    public static final String value = "false";
+}
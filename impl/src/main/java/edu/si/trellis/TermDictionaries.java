@@ -0,0 +1,102 @@
+package edu.si.trellis;
+
+import static edu.si.trellis.TermDictionary.BUILTIN;
+import static java.util.stream.Collectors.toList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.query.rdf.GetTermDictionaries;
+import edu.si.trellis.query.rdf.InsertTermDictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+
+/**
+ * The versions of {@link TermDictionary} known to a session, and the one with which to write. A
+ * {@link CompactDatasetCodec} is given one before its session is built, and it is loaded once the session is up.
+ * <p>
+ * To introduce a new version, insert it into the {@code termdictionary} table, restart every node so that all can read
+ * it, and only then configure nodes to write with it.
+ */
+final class TermDictionaries {
+
+    private static final Logger log = getLogger(TermDictionaries.class);
+
+    private final Map<Integer, TermDictionary> versions = new ConcurrentHashMap<>();
+
+    private volatile TermDictionary current = BUILTIN;
+
+    /**
+     * Knows only the built-in dictionary until {@link #load(GetTermDictionaries, InsertTermDictionary) loaded}.
+     */
+    TermDictionaries() {
+        versions.put(BUILTIN.version(), BUILTIN);
+    }
+
+    /**
+     * @return the dictionary with which to write
+     */
+    TermDictionary current() {
+        return current;
+    }
+
+    /**
+     * @param version a version of dictionary
+     * @return that version
+     */
+    TermDictionary get(int version) {
+        TermDictionary dictionary = versions.get(version);
+        if (dictionary == null) throw new IllegalArgumentException("Unknown term dictionary version " + version + "!");
+        return dictionary;
+    }
+
+    /**
+     * @param version the version of dictionary with which to write, which must already be known
+     */
+    void use(int version) {
+        current = get(version);
+        log.info("Writing RDF with term dictionary version {}", version);
+    }
+
+    /**
+     * Learns every version recorded in Cassandra, first recording the built-in dictionary if it is not yet recorded
+     * whole.
+     * 
+     * @param get a query for all versions
+     * @param insert a query to record a version
+     */
+    void load(GetTermDictionaries get, InsertTermDictionary insert) {
+        Map<Integer, TreeMap<Integer, String>> found = read(get);
+        List<String> builtin = BUILTIN.terms().stream().map(IRI::getIRIString).collect(toList());
+        if (!builtin.equals(new ArrayList<>(found.getOrDefault(BUILTIN.version(), new TreeMap<>()).values()))) {
+            log.info("Recording built-in term dictionary version {}", BUILTIN.version());
+            insert.execute(BUILTIN.version(), BUILTIN.terms()).toCompletableFuture().join();
+            found = read(get);
+        }
+        found.forEach((version, terms) -> {
+            if (versions.containsKey(version)) return;
+            if (!terms.isEmpty() && terms.lastKey() != terms.size() - 1)
+                throw new IllegalStateException("Term dictionary version " + version + " is missing entries!");
+            versions.put(version, new TermDictionary(version, new ArrayList<>(terms.values())));
+            log.info("Loaded term dictionary version {} with {} terms", version, terms.size());
+        });
+    }
+
+    /**
+     * @return the terms of every version recorded, by version and then by id
+     */
+    private static Map<Integer, TreeMap<Integer, String>> read(GetTermDictionaries get) {
+        Map<Integer, TreeMap<Integer, String>> found = new TreeMap<>();
+        for (Row row : get.execute())
+            found.computeIfAbsent(row.getInt("version"), v -> new TreeMap<>()).put(row.getInt("id"),
+                            row.getString("term"));
+        return found;
+    }
+}
@@ -0,0 +1,189 @@
+package edu.si.trellis;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.jena.JenaRDF;
+
+/**
+ * A numbered list of frequently used IRIs, which {@link CompactQuads} can write as their ids instead of spelling them
+ * out. A version of a dictionary never changes once rows have been written with it.
+ */
+final class TermDictionary {
+
+    private static final JenaRDF rdf = new JenaRDF();
+
+    /**
+     * The dictionary compiled into this software, which every node therefore knows.
+     */
+    static final TermDictionary BUILTIN = new TermDictionary(1, asList(
+                    // RDF, RDFS, OWL
+                    "http://www.w3.org/1999/02/22-rdf-syntax-ns#type",
+                    "http://www.w3.org/1999/02/22-rdf-syntax-ns#value",
+                    "http://www.w3.org/2000/01/rdf-schema#label",
+                    "http://www.w3.org/2000/01/rdf-schema#comment",
+                    "http://www.w3.org/2000/01/rdf-schema#seeAlso",
+                    "http://www.w3.org/2002/07/owl#sameAs",
+                    // XSD
+                    "http://www.w3.org/2001/XMLSchema#dateTime",
+                    "http://www.w3.org/2001/XMLSchema#date",
+                    "http://www.w3.org/2001/XMLSchema#integer",
+                    "http://www.w3.org/2001/XMLSchema#int",
+                    "http://www.w3.org/2001/XMLSchema#long",
+                    "http://www.w3.org/2001/XMLSchema#decimal",
+                    "http://www.w3.org/2001/XMLSchema#double",
+                    "http://www.w3.org/2001/XMLSchema#boolean",
+                    "http://www.w3.org/2001/XMLSchema#anyURI",
+                    // Dublin Core
+                    "http://purl.org/dc/terms/title",
+                    "http://purl.org/dc/terms/description",
+                    "http://purl.org/dc/terms/identifier",
+                    "http://purl.org/dc/terms/creator",
+                    "http://purl.org/dc/terms/contributor",
+                    "http://purl.org/dc/terms/publisher",
+                    "http://purl.org/dc/terms/created",
+                    "http://purl.org/dc/terms/modified",
+                    "http://purl.org/dc/terms/date",
+                    "http://purl.org/dc/terms/subject",
+                    "http://purl.org/dc/terms/type",
+                    "http://purl.org/dc/terms/format",
+                    "http://purl.org/dc/terms/extent",
+                    "http://purl.org/dc/terms/language",
+                    "http://purl.org/dc/terms/rights",
+                    "http://purl.org/dc/terms/license",
+                    "http://purl.org/dc/terms/source",
+                    "http://purl.org/dc/terms/relation",
+                    "http://purl.org/dc/terms/isPartOf",
+                    "http://purl.org/dc/terms/hasPart",
+                    "http://purl.org/dc/terms/spatial",
+                    "http://purl.org/dc/terms/temporal",
+                    "http://purl.org/dc/elements/1.1/title",
+                    "http://purl.org/dc/elements/1.1/creator",
+                    "http://purl.org/dc/elements/1.1/subject",
+                    "http://purl.org/dc/elements/1.1/description",
+                    "http://purl.org/dc/elements/1.1/date",
+                    "http://purl.org/dc/elements/1.1/identifier",
+                    "http://purl.org/dc/elements/1.1/format",
+                    "http://purl.org/dc/elements/1.1/rights",
+                    // LDP
+                    "http://www.w3.org/ns/ldp#contains",
+                    "http://www.w3.org/ns/ldp#member",
+                    "http://www.w3.org/ns/ldp#membershipResource",
+                    "http://www.w3.org/ns/ldp#hasMemberRelation",
+                    "http://www.w3.org/ns/ldp#isMemberOfRelation",
+                    "http://www.w3.org/ns/ldp#insertedContentRelation",
+                    "http://www.w3.org/ns/ldp#MemberSubject",
+                    "http://www.w3.org/ns/ldp#Resource",
+                    "http://www.w3.org/ns/ldp#RDFSource",
+                    "http://www.w3.org/ns/ldp#NonRDFSource",
+                    "http://www.w3.org/ns/ldp#Container",
+                    "http://www.w3.org/ns/ldp#BasicContainer",
+                    "http://www.w3.org/ns/ldp#DirectContainer",
+                    "http://www.w3.org/ns/ldp#IndirectContainer",
+                    "http://www.w3.org/ns/ldp#PreferContainment",
+                    "http://www.w3.org/ns/ldp#PreferMembership",
+                    // PCDM
+                    "http://pcdm.org/models#Object",
+                    "http://pcdm.org/models#Collection",
+                    "http://pcdm.org/models#File",
+                    "http://pcdm.org/models#hasMember",
+                    "http://pcdm.org/models#memberOf",
+                    "http://pcdm.org/models#hasFile",
+                    "http://pcdm.org/models#fileOf",
+                    "http://pcdm.org/models#hasRelatedObject",
+                    "http://pcdm.org/models#relatedObjectOf",
+                    // Web Access Control
+                    "http://www.w3.org/ns/auth/acl#Authorization",
+                    "http://www.w3.org/ns/auth/acl#accessTo",
+                    "http://www.w3.org/ns/auth/acl#default",
+                    "http://www.w3.org/ns/auth/acl#agent",
+                    "http://www.w3.org/ns/auth/acl#agentClass",
+                    "http://www.w3.org/ns/auth/acl#agentGroup",
+                    "http://www.w3.org/ns/auth/acl#mode",
+                    "http://www.w3.org/ns/auth/acl#Read",
+                    "http://www.w3.org/ns/auth/acl#Write",
+                    "http://www.w3.org/ns/auth/acl#Append",
+                    "http://www.w3.org/ns/auth/acl#Control",
+                    "http://xmlns.com/foaf/0.1/Agent",
+                    // audit
+                    "http://www.w3.org/ns/prov#Activity",
+                    "http://www.w3.org/ns/prov#wasGeneratedBy",
+                    "http://www.w3.org/ns/prov#wasAssociatedWith",
+                    "http://www.w3.org/ns/prov#startedAtTime",
+                    "http://www.w3.org/ns/prov#atTime",
+                    "http://www.w3.org/ns/activitystreams#Create",
+                    "http://www.w3.org/ns/activitystreams#Update",
+                    "http://www.w3.org/ns/activitystreams#Delete",
+                    // Trellis
+                    "http://www.trellisldp.org/ns/trellis#PreferUserManaged",
+                    "http://www.trellisldp.org/ns/trellis#PreferServerManaged",
+                    "http://www.trellisldp.org/ns/trellis#PreferAudit",
+                    "http://www.trellisldp.org/ns/trellis#PreferAccessControl",
+                    "http://www.trellisldp.org/ns/trellis#AdministratorAgent",
+                    "http://www.trellisldp.org/ns/trellis#AnonymousAgent",
+                    // SKOS, schema.org
+                    "http://www.w3.org/2004/02/skos/core#prefLabel",
+                    "http://www.w3.org/2004/02/skos/core#altLabel",
+                    "http://www.w3.org/2004/02/skos/core#note",
+                    "http://schema.org/name",
+                    "http://schema.org/description"));
+
+    private final int version;
+
+    private final List<IRI> terms;
+
+    private final Map<String, Integer> ids;
+
+    /**
+     * @param version the version of this dictionary
+     * @param terms the IRIs in this dictionary, each at the position of its id
+     */
+    TermDictionary(int version, List<String> terms) {
+        this.version = version;
+        List<IRI> iris = new ArrayList<>(terms.size());
+        this.ids = new HashMap<>(terms.size() * 2);
+        for (String term : terms) {
+            ids.put(term, iris.size());
+            iris.add(rdf.createIRI(term));
+        }
+        this.terms = unmodifiableList(iris);
+    }
+
+    /**
+     * @return the version of this dictionary
+     */
+    int version() {
+        return version;
+    }
+
+    /**
+     * @return the IRIs in this dictionary, each at the position of its id
+     */
+    List<IRI> terms() {
+        return terms;
+    }
+
+    /**
+     * @param iri an IRI
+     * @return the id of {@code iri}, or {@code null} if it is not in this dictionary
+     */
+    Integer id(IRI iri) {
+        return ids.get(iri.getIRIString());
+    }
+
+    /**
+     * @param id the id of an IRI in this dictionary
+     * @return that IRI
+     */
+    IRI term(int id) {
+        if (id < 0 || id >= terms.size())
+            throw new IllegalArgumentException("No term " + id + " in term dictionary version " + version + "!");
+        return terms.get(id);
+    }
+}
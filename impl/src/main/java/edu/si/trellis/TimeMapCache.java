@@ -0,0 +1,91 @@
+package edu.si.trellis;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+
+/**
+ * Remembers the TimeMap of each resource, so that TimeMap and TimeGate requests for a resource with a long history need
+ * not read all of it every time.
+ * <p>
+ * Writing a Memento forgets the TimeMap of its resource. A read underway during a write is not remembered.
+ */
+class TimeMapCache {
+
+    private static final Logger log = getLogger(TimeMapCache.class);
+
+    /**
+     * The most resources remembered at once. When the cache fills, it is emptied and starts again.
+     */
+    static final int MAXIMUM_SIZE = 1_000;
+
+    private final long durationNanos;
+
+    private final Map<IRI, Entry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Advanced by every invalidation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param seconds how long to remember a TimeMap
+     */
+    @Inject
+    TimeMapCache(@TimeMapCacheDuration int seconds) {
+        this.durationNanos = SECONDS.toNanos(seconds);
+        log.info("Using configured TimeMap cache duration: {} seconds", seconds);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param read reads the TimeMap of a resource, which must not be modified afterwards
+     * @return the TimeMap of {@code id}
+     */
+    CompletionStage<SortedSet<Instant>> get(IRI id, Function<IRI, CompletionStage<SortedSet<Instant>>> read) {
+        if (durationNanos <= 0) return read.apply(id);
+        Entry cached = cache.get(id);
+        if (cached != null && nanoTime() - cached.expires < 0) return cached.timeMap;
+        if (cache.size() >= MAXIMUM_SIZE) cache.clear();
+        long started = generation.get();
+        Entry entry = new Entry(read.apply(id), nanoTime() + durationNanos);
+        cache.put(id, entry);
+        entry.timeMap.whenComplete((timeMap, e) -> {
+            if (e != null || generation.get() != started) cache.remove(id, entry);
+        });
+        return entry.timeMap;
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource a Memento of which has been written
+     */
+    void invalidate(IRI id) {
+        generation.incrementAndGet();
+        cache.remove(id);
+    }
+
+    private static final class Entry {
+
+        private final CompletionStage<SortedSet<Instant>> timeMap;
+
+        private final long expires;
+
+        private Entry(CompletionStage<SortedSet<Instant>> timeMap, long expires) {
+            this.timeMap = timeMap;
+            this.expires = expires;
+        }
+    }
+}
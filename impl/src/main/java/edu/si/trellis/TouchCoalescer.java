@@ -0,0 +1,116 @@
+package edu.si.trellis;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import edu.si.trellis.query.rdf.Touch;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+
+/**
+ * Merges touches to the same resource, as a container receives from each child created in or deleted from it, so that a
+ * container being filled quickly is not rewritten for every child.
+ * <p>
+ * The first touch to a resource is written at once and opens a window. Touches during the window are merged into one
+ * write of the latest of their times when it closes, which is when they complete. So a resource touched now and then
+ * is touched with no delay.
+ * <p>
+ * A merged touch is written up to a window after its time, perhaps after the resource has been replaced with a later
+ * modified time. {@link Touch} timestamps each write with its time, not with when it is sent, so the later modified
+ * time prevails and the modified time of a resource does not go backwards.
+ */
+class TouchCoalescer {
+
+    private static final Logger log = getLogger(TouchCoalescer.class);
+
+    private static final ScheduledExecutorService scheduler = newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "trellis-cassandra-touch-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Touch touch;
+
+    private final long windowMillis;
+
+    private final Map<IRI, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * @param touch a {@link Touch} query to use
+     * @param windowMillis the number of milliseconds over which to merge touches
+     */
+    @Inject
+    TouchCoalescer(Touch touch, @TouchWindow int windowMillis) {
+        this.touch = touch;
+        this.windowMillis = windowMillis;
+        log.info("Using configured touch window: {} ms", windowMillis);
+    }
+
+    /**
+     * @param id the {@link IRI} of the resource to touch
+     * @param time its new modified time
+     * @return whether and when a modified time no earlier than {@code time} has been written
+     */
+    CompletionStage<Void> touch(IRI id, Instant time) {
+        if (windowMillis <= 0) return touch.execute(time, id);
+        while (true) {
+            Window window = new Window();
+            Window open = windows.putIfAbsent(id, window);
+            if (open == null) {
+                scheduler.schedule(() -> close(id, window), windowMillis, MILLISECONDS);
+                return touch.execute(time, id);
+            }
+            CompletionStage<Void> merged = open.merge(time);
+            if (merged != null) return merged;
+            // that window has just closed, so open another
+        }
+    }
+
+    private void close(IRI id, Window window) {
+        windows.remove(id, window);
+        Instant latest = window.close();
+        if (latest == null) return;
+        log.debug("Writing merged touches to {}", id);
+        touch.execute(latest, id).whenComplete((x, e) -> {
+            if (e == null) window.merged.complete(null);
+            else window.merged.completeExceptionally(e);
+        });
+    }
+
+    private static final class Window {
+
+        private final CompletableFuture<Void> merged = new CompletableFuture<>();
+
+        private Instant latest;
+
+        private boolean closed = false;
+
+        /**
+         * @return when the merged touch is written, or {@code null} if this window has closed
+         */
+        private synchronized CompletionStage<Void> merge(Instant time) {
+            if (closed) return null;
+            if (latest == null || time.isAfter(latest)) latest = time;
+            return merged;
+        }
+
+        /**
+         * @return the latest time merged, or {@code null} if none was
+         */
+        private synchronized Instant close() {
+            closed = true;
+            return latest;
+        }
+    }
+}
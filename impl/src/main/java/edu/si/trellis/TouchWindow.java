@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The number of milliseconds over which touches to the same resource are merged into one write. A value less than 1
+ * writes every touch.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface TouchWindow {
+
+    /**
+     * Default window to use.
+     */
+    public static final String value = "100";
+}
@@ -1,22 +1,28 @@
 package edu.si.trellis.query;
 
+import static com.datastax.oss.driver.api.core.cql.DefaultBatchType.UNLOGGED;
+import static java.util.concurrent.CompletableFuture.allOf;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Statement;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 
 /**
- * A context for queries run against Cassandra. All requests to Cassandra should go through a subclass.
+ * A context for queries run against Cassandra. All requests to Cassandra should go through a subclass, and run under
+ * its {@link ExecutionProfiles execution profile}.
  *
  */
 public abstract class CassandraQuery {
@@ -28,6 +34,12 @@ public abstract class CassandraQuery {
      */
     protected final CqlSession session;
 
+    private final ExecutionProfiles executionProfiles;
+
+    private final WriteBatcher writeBatcher;
+
+    private final PreparedStatements preparedStatements;
+
     /**
      * 
      */
@@ -38,46 +50,99 @@ public abstract class CassandraQuery {
     protected final Executor writeWorkers = newCachedThreadPool(), readWorkers = newCachedThreadPool(),
                     readBinaryWorkers = newCachedThreadPool();
 
-    private final PreparedStatement preparedStatement;
+    private final LazyPreparedStatement preparedStatement;
 
     private final ConsistencyLevel consistency;
 
     /**
+     * Waits for the statement that underlies this query to be prepared only if startup is not yet over.
+     *
      * @return the {@link PreparedStatement} that underlies this query
      */
     protected PreparedStatement preparedStatement() {
-        return preparedStatement;
+        return preparedStatement.get();
+    }
+
+    /**
+     * Begins preparing a statement, without waiting for it during startup, so that queries built together prepare
+     * their statements together. Identical CQL is prepared once.
+     *
+     * @param cql a CQL statement
+     * @return {@code cql}, to be prepared
+     * @see PreparedStatements
+     */
+    protected LazyPreparedStatement prepare(String cql) {
+        return preparedStatements.prepare(cql);
     }
 
     /**
-     * @param session a {@link Session} to the Cassandra cluster
+     * @param context the {@link QueryContext} in which to query
      * @param queryString the CQL string for this query
      * @param consistency the {@link ConsistencyLevel} to use for executions of this query
      */
-    public CassandraQuery(CqlSession session, String queryString, ConsistencyLevel consistency) {
-        this.session = session;
-        this.preparedStatement = session.prepare(queryString);
+    public CassandraQuery(QueryContext context, String queryString, ConsistencyLevel consistency) {
+        this.session = context.session();
+        this.executionProfiles = context.executionProfiles();
+        this.writeBatcher = context.writeBatcher();
+        this.preparedStatements = context.preparedStatements();
+        this.preparedStatement = prepare(queryString);
         this.consistency = consistency;
     }
 
     /**
      * @param statement the CQL statement to execute
      * @return when and whether the statement completed
+     * @see WriteBatcher
      */
     protected CompletionStage<Void> executeWrite(BoundStatement statement) {
         String queryString = statement.getPreparedStatement().getQuery();
         log.debug("Executing CQL write: {}", queryString);
-        BoundStatement consistentStatement = statement.setConsistencyLevel(consistency);
-        return session.executeAsync(consistentStatement)
+        BoundStatement consistentStatement = profiled(statement, true);
+        return writeBatcher.execute(session, consistentStatement)
                         .thenAccept(r -> log.debug("Executed CQL write: {}", queryString));
     }
 
+    /**
+     * Executes writes that share a partition key, though perhaps in different tables, as one unlogged batch, so that
+     * they cost one round trip. Writes too large together for a batch are executed separately.
+     * 
+     * @param statements the CQL statements to execute
+     * @return when and whether the statements completed
+     */
+    protected CompletionStage<Void> executeBatch(BoundStatement... statements) {
+        if (!WriteBatcher.fitInBatch(statements)) {
+            CompletableFuture<?>[] writes = new CompletableFuture<?>[statements.length];
+            for (int i = 0; i < statements.length; i++)
+                writes[i] = executeWrite(statements[i]).toCompletableFuture();
+            return allOf(writes);
+        }
+        log.debug("Executing batch of {} CQL writes", statements.length);
+        for (BoundStatement statement : statements)
+            writeBatcher.flush(session, statement);
+        BatchStatement batch = profiled(BatchStatement.newInstance(UNLOGGED, statements), true);
+        return session.executeAsync(batch).thenAccept(r -> log.debug("Executed batch of CQL writes"));
+    }
+
+    /**
+     * @param statement the conditional CQL statement to execute
+     * @return whether the statement was applied
+     */
+    protected CompletionStage<Boolean> executeConditionalWrite(BoundStatement statement) {
+        String queryString = statement.getPreparedStatement().getQuery();
+        log.debug("Executing conditional CQL write: {}", queryString);
+        // a conditional write is never safe to repeat
+        BoundStatement consistentStatement = profiled(statement, true).setIdempotent(false);
+        writeBatcher.flush(session, consistentStatement);
+        return session.executeAsync(consistentStatement)
+                        .thenApply(AsyncResultSet::wasApplied);
+    }
+
     /**
      * @param statement the CQL statement to execute
      * @return the results of that statement
      */
     protected CompletionStage<AsyncResultSet> executeRead(BoundStatement statement) {
-        return session.executeAsync(statement);
+        return session.executeAsync(profiled(statement, false));
     }
 
     /**
@@ -85,6 +150,16 @@ public abstract class CassandraQuery {
      * @return the results of that statement
      */
     protected ResultSet executeSyncRead(BoundStatement statement) {
-        return session.execute(statement);
+        return session.execute(profiled(statement, false));
+    }
+
+    /**
+     * @param statement a statement this query is about to execute
+     * @param write whether {@code statement} writes
+     * @return {@code statement} under the execution profile of this query and with its consistency
+     * @see ExecutionProfiles
+     */
+    protected <S extends Statement<S>> S profiled(S statement, boolean write) {
+        return executionProfiles.apply(statement, getClass(), write, consistency);
     }
 }
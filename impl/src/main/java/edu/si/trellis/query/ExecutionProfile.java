@@ -0,0 +1,145 @@
+package edu.si.trellis.query;
+
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.REQUEST_CONSISTENCY;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.REQUEST_DEFAULT_IDEMPOTENCE;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.REQUEST_PAGE_SIZE;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.REQUEST_TIMEOUT;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.SPECULATIVE_EXECUTION_DELAY;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.SPECULATIVE_EXECUTION_MAX;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.SPECULATIVE_EXECUTION_POLICY_CLASS;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.DefaultConsistencyLevel;
+import com.datastax.oss.driver.api.core.config.ProgrammaticDriverConfigLoaderBuilder;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Driver settings for the queries run under one named execution profile: consistency, request timeout, page size,
+ * idempotence and speculative execution. Settings not given are inherited from the driver's default profile.
+ * <p>
+ * A profile is written as comma-separated settings, for example
+ * {@code consistency=LOCAL_QUORUM,timeout=500,pageSize=100,idempotent=true,speculativeExecutions=2}, where times are in
+ * milliseconds. The settings are {@code consistency}, {@code timeout}, {@code pageSize}, {@code idempotent},
+ * {@code speculativeExecutions} and {@code speculativeDelay}. Speculative executions are only sent for idempotent
+ * requests.
+ *
+ * @see ExecutionProfiles
+ */
+public final class ExecutionProfile {
+
+    /**
+     * The speculative-execution delay used if none is given.
+     */
+    static final Duration DEFAULT_SPECULATIVE_DELAY = Duration.ofMillis(100);
+
+    private ConsistencyLevel consistency;
+
+    private Duration timeout;
+
+    private int pageSize;
+
+    private Boolean idempotent;
+
+    private int speculativeExecutions;
+
+    private Duration speculativeDelay = DEFAULT_SPECULATIVE_DELAY;
+
+    private ExecutionProfile() {}
+
+    /**
+     * @param profile a profile as written in configuration
+     * @return that profile
+     * @throws IllegalArgumentException if {@code profile} cannot be read
+     */
+    public static ExecutionProfile parse(String profile) {
+        ExecutionProfile parsed = new ExecutionProfile();
+        for (String setting : profile.split(",")) {
+            if (setting.trim().isEmpty()) continue;
+            String[] parts = setting.split("=", 2);
+            if (parts.length < 2) throw new IllegalArgumentException("No value for execution profile " + setting + "!");
+            String value = parts[1].trim();
+            switch (parts[0].trim()) {
+            case "consistency":
+                parsed.consistency = DefaultConsistencyLevel.valueOf(value);
+                break;
+            case "timeout":
+                parsed.timeout = Duration.ofMillis(positive(setting, value));
+                break;
+            case "pageSize":
+                parsed.pageSize = positive(setting, value);
+                break;
+            case "idempotent":
+                parsed.idempotent = Boolean.parseBoolean(value);
+                break;
+            case "speculativeExecutions":
+                parsed.speculativeExecutions = positive(setting, value);
+                break;
+            case "speculativeDelay":
+                parsed.speculativeDelay = Duration.ofMillis(positive(setting, value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown execution profile setting " + parts[0] + "!");
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * @param profiles profiles written as a name and a profile separated by whitespace, separated by semicolons
+     * @return the profile for each name
+     * @throws IllegalArgumentException if {@code profiles} cannot be read
+     * @see ExecutionProfiles#name(Class)
+     */
+    public static Map<String, ExecutionProfile> parseAll(String profiles) {
+        Map<String, ExecutionProfile> parsed = new HashMap<>();
+        for (String profile : profiles.split(";")) {
+            if (profile.trim().isEmpty()) continue;
+            String[] parts = profile.trim().split("\\s+", 2);
+            parsed.put(parts[0], parse(parts.length < 2 ? "" : parts[1]));
+        }
+        return parsed;
+    }
+
+    private static int positive(String setting, String value) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad value for execution profile " + setting + "!", e);
+        }
+        if (parsed < 1) throw new IllegalArgumentException("Execution profile " + setting + " must be positive!");
+        return parsed;
+    }
+
+    /**
+     * @return the consistency this profile requires, or {@code null} to leave it to each query
+     */
+    public ConsistencyLevel consistency() {
+        return consistency;
+    }
+
+    /**
+     * Adds this profile to a driver configuration.
+     *
+     * @param name the name of this profile
+     * @param config the configuration to which to add it
+     * @return {@code config}
+     */
+    ProgrammaticDriverConfigLoaderBuilder configure(String name, ProgrammaticDriverConfigLoaderBuilder config) {
+        config.startProfile(name);
+        if (consistency != null) config.withString(REQUEST_CONSISTENCY, consistency.name());
+        if (timeout != null) config.withDuration(REQUEST_TIMEOUT, timeout);
+        if (pageSize > 0) config.withInt(REQUEST_PAGE_SIZE, pageSize);
+        if (idempotent != null) config.withBoolean(REQUEST_DEFAULT_IDEMPOTENCE, idempotent);
+        if (speculativeExecutions > 0) {
+            config.withString(SPECULATIVE_EXECUTION_POLICY_CLASS, "ConstantSpeculativeExecutionPolicy");
+            // the driver counts the first execution too
+            config.withInt(SPECULATIVE_EXECUTION_MAX, speculativeExecutions + 1);
+            config.withDuration(SPECULATIVE_EXECUTION_DELAY, speculativeDelay);
+        }
+        return config.endProfile();
+    }
+}
@@ -0,0 +1,94 @@
+package edu.si.trellis.query;
+
+import static java.util.Collections.unmodifiableMap;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import com.datastax.oss.driver.api.core.config.ProgrammaticDriverConfigLoaderBuilder;
+import com.datastax.oss.driver.api.core.cql.Statement;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+
+/**
+ * The driver execution profiles under which queries run, so that e.g. large scans and hot point reads can be tuned
+ * apart. A query runs under the profile named for its class, if there is one, as by {@link #name(Class)}; otherwise
+ * under the profile {@value #READ} or {@value #WRITE}, as it reads or writes, if there is one; otherwise under the
+ * driver's default profile. A consistency set by a profile overrides that configured for the query.
+ * <p>
+ * {@link WriteBatcher} groups into one batch only writes that run under the same profile.
+ *
+ * @see ExecutionProfile
+ */
+public final class ExecutionProfiles {
+
+    private static final Logger log = getLogger(ExecutionProfiles.class);
+
+    /**
+     * The profile for reads by queries with no profile of their own.
+     */
+    public static final String READ = "read";
+
+    /**
+     * The profile for writes by queries with no profile of their own.
+     */
+    public static final String WRITE = "write";
+
+    private final Map<String, ExecutionProfile> profiles;
+
+    private final Map<Class<?>, String> names = new ConcurrentHashMap<>();
+
+    /**
+     * Queries must run with a session built with {@link #configure(ProgrammaticDriverConfigLoaderBuilder)}.
+     *
+     * @param profiles the profiles to use, by name
+     */
+    public ExecutionProfiles(Map<String, ExecutionProfile> profiles) {
+        log.info("Using execution profiles: {}", profiles.keySet());
+        this.profiles = unmodifiableMap(new HashMap<>(profiles));
+    }
+
+    /**
+     * @param config a driver configuration, as from {@link DriverConfigLoader#programmaticBuilder()}
+     * @return {@code config} with the profiles in use
+     */
+    public ProgrammaticDriverConfigLoaderBuilder configure(ProgrammaticDriverConfigLoaderBuilder config) {
+        profiles.forEach((name, profile) -> profile.configure(name, config));
+        return config;
+    }
+
+    /**
+     * Names a profile for a query class by the last part of its package and its simple name, joined by a hyphen, as
+     * for example {@code rdf-Get} or {@code binary-Read}. A query class directly in this package is named by its simple
+     * name alone.
+     *
+     * @param query a query class
+     * @return the name of the profile for {@code query}
+     */
+    public static String name(Class<?> query) {
+        String pkg = query.getPackage().getName();
+        if (pkg.equals(ExecutionProfiles.class.getPackage().getName())) return query.getSimpleName();
+        return pkg.substring(pkg.lastIndexOf('.') + 1) + "-" + query.getSimpleName();
+    }
+
+    /**
+     * @param statement a statement about to be executed
+     * @param query the class of the query executing it
+     * @param write whether {@code statement} writes
+     * @param consistency the consistency configured for the query
+     * @return {@code statement} under its profile and with its consistency
+     */
+    <S extends Statement<S>> S apply(S statement, Class<?> query, boolean write, ConsistencyLevel consistency) {
+        String name = names.computeIfAbsent(query, ExecutionProfiles::name);
+        if (!profiles.containsKey(name)) name = write ? WRITE : READ;
+        ExecutionProfile profile = profiles.get(name);
+        if (profile == null) return statement.setConsistencyLevel(consistency);
+        ConsistencyLevel required = profile.consistency();
+        return statement.setExecutionProfileName(name)
+                        .setConsistencyLevel(required == null ? consistency : required);
+    }
+}
@@ -0,0 +1,43 @@
+package edu.si.trellis.query;
+
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A statement that is being prepared, or has been. Only before {@link PreparedStatements#awaitAll() startup} is over
+ * can using it wait for its preparation.
+ *
+ * @see PreparedStatements
+ */
+public final class LazyPreparedStatement {
+
+    private final CompletableFuture<PreparedStatement> preparation;
+
+    LazyPreparedStatement(CompletableFuture<PreparedStatement> preparation) {
+        this.preparation = preparation;
+    }
+
+    /**
+     * @return the prepared statement
+     */
+    public PreparedStatement get() {
+        try {
+            return preparation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * @param values values for the bind markers of this statement, in order
+     * @return this statement with those values bound
+     * @see PreparedStatement#bind(Object...)
+     */
+    public BoundStatement bind(Object... values) {
+        return get().bind(values);
+    }
+}
@@ -0,0 +1,81 @@
+package edu.si.trellis.query;
+
+import static java.util.concurrent.CompletableFuture.allOf;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+
+/**
+ * Prepares statements asynchronously, once for each distinct CQL string in a session, so that the queries built at
+ * startup prepare their statements concurrently rather than one after another, and queries that share a statement
+ * share one preparation.
+ * <p>
+ * Once startup has waited for them all with {@link #awaitAll()}, no statement is still being prepared, so binding one
+ * never waits, as on a driver thread it must not. Statements first asked for after that are prepared before they are
+ * handed out, on the thread building the query that asks for them; one that fails then is forgotten, so that it is
+ * tried again when next asked for.
+ * <p>
+ * Statements prepared here are re-prepared by the driver itself on nodes that come back up, or that answer that they
+ * do not know a statement.
+ */
+public final class PreparedStatements {
+
+    private static final Logger log = getLogger(PreparedStatements.class);
+
+    private final CqlSession session;
+
+    private final Map<String, CompletableFuture<PreparedStatement>> statements = new ConcurrentHashMap<>();
+
+    private volatile boolean started = false;
+
+    /**
+     * @param session the session in which to prepare statements
+     */
+    PreparedStatements(CqlSession session) {
+        this.session = session;
+    }
+
+    /**
+     * @param cql a CQL statement
+     * @return {@code cql}, to be prepared, or prepared already if startup is over
+     */
+    LazyPreparedStatement prepare(String cql) {
+        CompletableFuture<PreparedStatement> preparation = statements.computeIfAbsent(cql, q -> {
+            log.debug("Preparing CQL: {}", q);
+            return session.prepareAsync(q).toCompletableFuture();
+        });
+        LazyPreparedStatement statement = new LazyPreparedStatement(preparation);
+        if (started) {
+            preparation.whenComplete((prepared, e) -> {
+                if (e != null) statements.remove(cql, preparation);
+            });
+            statement.get();
+        }
+        return statement;
+    }
+
+    /**
+     * Waits for every statement asked for so far to be prepared. Statements asked for afterwards are prepared at once.
+     *
+     * @return the number of statements prepared
+     * @throws IllegalStateException if any statement could not be prepared
+     */
+    public int awaitAll() {
+        started = true;
+        CompletableFuture<?>[] preparations = statements.values().toArray(new CompletableFuture<?>[0]);
+        try {
+            allOf(preparations).join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Could not prepare CQL statements!", e.getCause());
+        }
+        return preparations.length;
+    }
+}
@@ -0,0 +1,51 @@
+package edu.si.trellis.query;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+
+/**
+ * What every {@link CassandraQuery} shares: the session to Cassandra, and the machinery through which queries use it.
+ */
+public final class QueryContext {
+
+    private final CqlSession session;
+
+    private final ExecutionProfiles executionProfiles;
+
+    private final WriteBatcher writeBatcher;
+
+    private final PreparedStatements preparedStatements;
+
+    /**
+     * @param session a {@link CqlSession} to the Cassandra cluster
+     * @param executionProfiles the profiles under which queries run, with which {@code session} was configured
+     * @param writeBatcher groups the writes of all queries using {@code session}
+     */
+    public QueryContext(CqlSession session, ExecutionProfiles executionProfiles, WriteBatcher writeBatcher) {
+        this.session = session;
+        this.executionProfiles = executionProfiles;
+        this.writeBatcher = writeBatcher;
+        this.preparedStatements = new PreparedStatements(session);
+    }
+
+    /**
+     * @return the {@link CqlSession} to the Cassandra cluster
+     */
+    public CqlSession session() {
+        return session;
+    }
+
+    /**
+     * @return the statements prepared for queries in {@link #session()}
+     */
+    public PreparedStatements preparedStatements() {
+        return preparedStatements;
+    }
+
+    ExecutionProfiles executionProfiles() {
+        return executionProfiles;
+    }
+
+    WriteBatcher writeBatcher() {
+        return writeBatcher;
+    }
+}
@@ -0,0 +1,132 @@
+package edu.si.trellis.query;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A query that copies the rows of one table partitioned by {@code identifier}, alone or with other columns, to new
+ * keys, column by column as raw bytes, so that it works for any such table.
+ */
+public class Rekey extends CassandraQuery {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final String table;
+
+    private final List<CqlIdentifier> partitionKey;
+
+    private final Set<CqlIdentifier> recodedColumns;
+
+    private final LazyPreparedStatement delete;
+
+    /**
+     * Built from the columns of the first row copied.
+     */
+    private PreparedStatement insert;
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use
+     * @param table the table to rekey
+     * @param partitionKey the partition key columns of {@code table}, in order, which must include {@code identifier}
+     * @param recodedColumns the columns to recode in each row, including {@code identifier}
+     */
+    public Rekey(QueryContext context, ConsistencyLevel consistency, String table, List<CqlIdentifier> partitionKey,
+                    Collection<String> recodedColumns) {
+        super(context, "SELECT * FROM " + table + " ;", consistency);
+        this.table = table;
+        this.partitionKey = partitionKey;
+        this.recodedColumns = recodedColumns.stream().map(CqlIdentifier::fromCql).collect(toSet());
+        // a partition is deleted by its whole key
+        this.delete = prepare("DELETE FROM " + table + " WHERE "
+                        + partitionKey.stream().map(c -> c.asCql(true) + " = ?").collect(joining(" AND ")) + " ;");
+    }
+
+    /**
+     * @return the table this query rekeys
+     */
+    public String table() {
+        return table;
+    }
+
+    /**
+     * Scans the table, blocking to page through it. Rows of each partition arrive together.
+     *
+     * @return every row in the table
+     */
+    public ResultSet execute() {
+        return executeSyncRead(preparedStatement().bind().setPageSize(PAGE_SIZE));
+    }
+
+    /**
+     * Writes a copy of {@code row} with its recoded columns passed through {@code recode}. The original is left in
+     * place; see {@link #delete(List)}.
+     *
+     * @param row a row from {@link #execute()}
+     * @param recode the new serialization for a value of a recoded column
+     * @return whether and when the copy has been written
+     */
+    public CompletionStage<Void> execute(Row row, UnaryOperator<ByteBuffer> recode) {
+        ColumnDefinitions columns = row.getColumnDefinitions();
+        BoundStatement statement = insert(columns).bind();
+        for (int i = 0; i < columns.size(); i++) {
+            ByteBuffer value = row.getBytesUnsafe(i);
+            // leave nulls unset, so as not to write tombstones
+            if (value == null) continue;
+            if (recodedColumns.contains(columns.get(i).getName())) value = recode.apply(value);
+            statement = statement.setBytesUnsafe(i, value);
+        }
+        return executeWrite(statement);
+    }
+
+    private synchronized PreparedStatement insert(ColumnDefinitions columns) {
+        if (insert == null) {
+            String names = stream(columns).map(c -> c.getName().asCql(true)).collect(joining(", "));
+            String markers = stream(columns).map(c -> "?").collect(joining(", "));
+            insert = prepare("INSERT INTO " + table + " (" + names + ") VALUES (" + markers + ") ;").get();
+        }
+        return insert;
+    }
+
+    private static Stream<ColumnDefinition> stream(ColumnDefinitions columns) {
+        return StreamSupport.stream(columns.spliterator(), false);
+    }
+
+    /**
+     * @param row a row from {@link #execute()}
+     * @return the serialized partition key of {@code row}, as it was read
+     */
+    public List<ByteBuffer> partition(Row row) {
+        return partitionKey.stream().map(row::getBytesUnsafe).collect(toList());
+    }
+
+    /**
+     * @param partition the serialized key of a partition to delete, as from {@link #partition(Row)}
+     * @return whether and when it has been deleted
+     */
+    public CompletionStage<Void> delete(List<ByteBuffer> partition) {
+        BoundStatement statement = delete.bind();
+        for (int i = 0; i < partition.size(); i++)
+            statement = statement.setBytesUnsafe(i, partition.get(i));
+        return executeWrite(statement);
+    }
+}
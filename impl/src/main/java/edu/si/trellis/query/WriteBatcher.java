@@ -0,0 +1,230 @@
+package edu.si.trellis.query;
+
+import static com.datastax.oss.driver.api.core.cql.DefaultBatchType.UNLOGGED;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.Statement;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.slf4j.Logger;
+
+/**
+ * Groups writes to the same partition key that arrive within a short window into one unlogged batch, so that the
+ * several writes of one logical operation, such as the row, audit and Memento of a resource, which are keyed alike
+ * though in different tables, cost one round trip to the replicas that own that key. Writes with no routing key, or
+ * alone in their window, are sent as they are.
+ * <p>
+ * Every statement in a batch is written with the one timestamp of the batch, so two writes to the same row in one
+ * batch would no longer be ordered as they were made: a delete would shadow the insert that followed it. A batch
+ * therefore takes at most one write to each table, and one with the same consistency and execution profile. A write
+ * that cannot join the batch held for its partition sends that batch first and waits for another, and a write that is
+ * sent apart from the batches sends any held for its partition first, so that held writes never take a later
+ * timestamp than writes made after them. This relies on the driver's default client-side timestamps, which are taken
+ * as each request is sent.
+ * <p>
+ * Waiting for company delays each write by up to the window, so batching is off until a window is set. Batches are
+ * kept under {@link #MAX_BATCH_BYTES}, well below the size at which Cassandra by default rejects a batch.
+ */
+public final class WriteBatcher {
+
+    private static final Logger log = getLogger(WriteBatcher.class);
+
+    /**
+     * The largest batch this class makes, in bytes of bound values.
+     */
+    public static final int MAX_BATCH_BYTES = 32 * 1024;
+
+    private static final ScheduledExecutorService flusher = newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "trellis-cassandra-write-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long windowMillis;
+
+    private final Map<Key, Pending> pending = new ConcurrentHashMap<>();
+
+    /**
+     * @param windowMillis how long to hold a write for others to the same partition, or 0 to send each write at once
+     */
+    public WriteBatcher(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * @param session the session with which to write
+     * @param statement a write, with its consistency level set
+     * @return whether and when it has been written, alone or in a batch
+     */
+    public CompletionStage<Void> execute(CqlSession session, BoundStatement statement) {
+        ByteBuffer routingKey = statement.getRoutingKey();
+        ColumnDefinitions variables = statement.getPreparedStatement().getVariableDefinitions();
+        if (windowMillis <= 0 || routingKey == null || variables.size() == 0) return send(session, statement);
+        Key key = new Key(statement.getRoutingKeyspace(), routingKey);
+        int size = size(statement);
+        if (size > MAX_BATCH_BYTES) {
+            flush(session, key);
+            return send(session, statement);
+        }
+        CqlIdentifier table = variables.get(0).getTable();
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        while (true) {
+            Pending batch = pending.computeIfAbsent(key, k -> schedule(session, k));
+            Added added = batch.add(statement, table, size, written);
+            if (added == Added.YES) return written;
+            // send a batch that cannot take this write ahead of it; a batch that has been sent is closed
+            if (added == Added.NO) flush(session, key, batch);
+        }
+    }
+
+    /**
+     * Sends at once any writes held for the partition of a write that is to be sent apart from them, so that they do
+     * not take a later timestamp than it.
+     *
+     * @param session the session with which to write
+     * @param statement a write about to be sent without this class
+     */
+    public void flush(CqlSession session, BoundStatement statement) {
+        ByteBuffer routingKey = statement.getRoutingKey();
+        if (windowMillis > 0 && routingKey != null)
+            flush(session, new Key(statement.getRoutingKeyspace(), routingKey));
+    }
+
+    /**
+     * @param statements writes
+     * @return whether {@code statements} are small enough to send as one batch
+     */
+    public static boolean fitInBatch(BoundStatement... statements) {
+        int size = 0;
+        for (BoundStatement statement : statements)
+            size += size(statement);
+        return size <= MAX_BATCH_BYTES;
+    }
+
+    private static int size(BoundStatement statement) {
+        int size = 0;
+        for (ByteBuffer value : statement.getValues())
+            if (value != null) size += value.remaining();
+        return size;
+    }
+
+    private static CompletionStage<Void> send(CqlSession session, BoundStatement statement) {
+        return session.executeAsync(statement).thenApply(r -> null);
+    }
+
+    private Pending schedule(CqlSession session, Key key) {
+        Pending batch = new Pending();
+        flusher.schedule(() -> flush(session, key, batch), windowMillis, MILLISECONDS);
+        return batch;
+    }
+
+    private void flush(CqlSession session, Key key) {
+        Pending batch = pending.get(key);
+        if (batch != null) flush(session, key, batch);
+    }
+
+    private void flush(CqlSession session, Key key, Pending batch) {
+        pending.remove(key, batch);
+        List<BoundStatement> statements = batch.close();
+        // sent already, or never used
+        if (statements == null || statements.isEmpty()) return;
+        final Statement<?> toSend;
+        if (statements.size() == 1) toSend = statements.get(0);
+        else {
+            log.debug("Sending {} writes to one partition as a batch", statements.size());
+            BoundStatement first = statements.get(0);
+            toSend = BatchStatement.newInstance(UNLOGGED).addAll(statements)
+                            .setConsistencyLevel(first.getConsistencyLevel())
+                            .setExecutionProfileName(first.getExecutionProfileName());
+        }
+        session.executeAsync(toSend).whenComplete((r, e) -> batch.futures.forEach(f -> {
+            if (e == null) f.complete(null);
+            else f.completeExceptionally(e);
+        }));
+    }
+
+    private enum Added {
+        YES, NO, CLOSED
+    }
+
+    private static final class Pending {
+
+        private final List<BoundStatement> statements = new ArrayList<>();
+
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        private final Set<CqlIdentifier> tables = new HashSet<>();
+
+        private int size = 0;
+
+        private boolean closed = false;
+
+        private synchronized Added add(BoundStatement statement, CqlIdentifier table, int bytes,
+                        CompletableFuture<Void> future) {
+            if (closed) return Added.CLOSED;
+            if (size + bytes > MAX_BATCH_BYTES || tables.contains(table)) return Added.NO;
+            if (!statements.isEmpty() && !alike(statement, statements.get(0))) return Added.NO;
+            statements.add(statement);
+            futures.add(future);
+            tables.add(table);
+            size += bytes;
+            return Added.YES;
+        }
+
+        private static boolean alike(BoundStatement one, BoundStatement other) {
+            return Objects.equals(one.getConsistencyLevel(), other.getConsistencyLevel())
+                            && Objects.equals(one.getExecutionProfileName(), other.getExecutionProfileName());
+        }
+
+        /**
+         * @return the writes to send, or {@code null} if they have been taken to send already
+         */
+        private synchronized List<BoundStatement> close() {
+            if (closed) return null;
+            closed = true;
+            return statements;
+        }
+    }
+
+    private static final class Key {
+
+        private final CqlIdentifier keyspace;
+
+        private final ByteBuffer routingKey;
+
+        private Key(CqlIdentifier keyspace, ByteBuffer routingKey) {
+            this.keyspace = keyspace;
+            this.routingKey = routingKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return Objects.equals(keyspace, other.keyspace) && routingKey.equals(other.routingKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(keyspace, routingKey);
+        }
+    }
+}
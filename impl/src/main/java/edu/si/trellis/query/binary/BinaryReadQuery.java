@@ -4,11 +4,12 @@ import static java.util.stream.StreamSupport.stream;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
-import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 
 import edu.si.trellis.LazyChunkInputStream;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -28,11 +29,11 @@ abstract class BinaryReadQuery extends BinaryQuery {
     private static final String READ_CHUNK_QUERY = "SELECT chunk FROM " + BINARY_TABLENAME
                     + " WHERE identifier = :identifier and chunkIndex = :chunkIndex;";
 
-    private final PreparedStatement readChunkStatement;
+    private final LazyPreparedStatement readChunkStatement;
 
-    BinaryReadQuery(CqlSession session, String queryString, ConsistencyLevel consistency) {
-        super(session, queryString, consistency);
-        this.readChunkStatement = session.prepare(READ_CHUNK_QUERY);
+    BinaryReadQuery(QueryContext context, String queryString, ConsistencyLevel consistency) {
+        super(context, queryString, consistency);
+        this.readChunkStatement = prepare(READ_CHUNK_QUERY);
     }
 
     //@formatter:off
@@ -45,9 +46,9 @@ abstract class BinaryReadQuery extends BinaryQuery {
     protected InputStream retrieve(IRI id, BoundStatement statement) {
         return stream(executeSyncRead(statement).spliterator(), false)
                         .mapToInt(r -> r.getInt("chunkIndex"))
-                        .mapToObj(chunkIndex -> readChunkStatement.bind()
+                        .mapToObj(chunkIndex -> profiled(readChunkStatement.bind()
                                             .setInt("chunkIndex", chunkIndex)
-                                            .set("identifier", id, IRI.class))
+                                            .set("identifier", id, IRI.class), false))
                         .peek(chunkIndex -> log.debug("Retrieving stream for chunk: {}", chunkIndex))
                         .<InputStream> map(s -> new LazyChunkInputStream(session, s))
                         .reduce(SequenceInputStream::new) // chunks now in one large stream
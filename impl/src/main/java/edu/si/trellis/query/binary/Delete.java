@@ -1,10 +1,10 @@
 package edu.si.trellis.query.binary;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 
 import edu.si.trellis.BinaryWriteConsistency;
+import edu.si.trellis.query.QueryContext;
 
 import java.util.concurrent.CompletionStage;
 
@@ -19,8 +19,8 @@ import org.apache.commons.rdf.api.IRI;
 public class Delete extends BinaryQuery {
 
     @Inject
-    public Delete(CqlSession session, @BinaryWriteConsistency ConsistencyLevel consistency) {
-        super(session, "DELETE FROM " + BINARY_TABLENAME + " WHERE identifier = :identifier;", consistency);
+    public Delete(QueryContext context, @BinaryWriteConsistency ConsistencyLevel consistency) {
+        super(context, "DELETE FROM " + BINARY_TABLENAME + " WHERE identifier = :identifier;", consistency);
     }
 
     /**
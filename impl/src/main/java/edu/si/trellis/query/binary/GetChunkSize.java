@@ -3,12 +3,12 @@ package edu.si.trellis.query.binary;
 import static java.util.Objects.requireNonNull;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.Row;
 
 import edu.si.trellis.BinaryReadConsistency;
+import edu.si.trellis.query.QueryContext;
 
 import java.util.concurrent.CompletionStage;
 
@@ -23,8 +23,8 @@ import org.apache.commons.rdf.api.IRI;
 public class GetChunkSize extends BinaryQuery {
 
     @Inject
-    public GetChunkSize(CqlSession session, @BinaryReadConsistency ConsistencyLevel consistency) {
-        super(session, "SELECT chunkSize FROM " + BINARY_TABLENAME + " WHERE identifier = :identifier LIMIT 1;",
+    public GetChunkSize(QueryContext context, @BinaryReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT chunkSize FROM " + BINARY_TABLENAME + " WHERE identifier = :identifier LIMIT 1;",
                         consistency);
     }
 
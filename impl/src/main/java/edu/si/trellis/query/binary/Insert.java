@@ -1,10 +1,10 @@
 package edu.si.trellis.query.binary;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 
 import edu.si.trellis.BinaryWriteConsistency;
+import edu.si.trellis.query.QueryContext;
 
 import java.io.InputStream;
 import java.util.concurrent.CompletionStage;
@@ -20,8 +20,8 @@ import org.apache.commons.rdf.api.IRI;
 public class Insert extends BinaryQuery implements Executor {
 
     @Inject
-    public Insert(CqlSession session, @BinaryWriteConsistency ConsistencyLevel consistency) {
-        super(session, "INSERT INTO " + BINARY_TABLENAME + " (identifier, chunkSize, chunkIndex, chunk) VALUES "
+    public Insert(QueryContext context, @BinaryWriteConsistency ConsistencyLevel consistency) {
+        super(context, "INSERT INTO " + BINARY_TABLENAME + " (identifier, chunkSize, chunkIndex, chunk) VALUES "
                         + "(:identifier, :chunkSize, :chunkIndex, :chunk)", consistency);
     }
 
@@ -1,10 +1,10 @@
 package edu.si.trellis.query.binary;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 
 import edu.si.trellis.BinaryReadConsistency;
+import edu.si.trellis.query.QueryContext;
 
 import java.io.InputStream;
 
@@ -19,8 +19,8 @@ import org.apache.commons.rdf.api.IRI;
 public class Read extends BinaryReadQuery {
 
     @Inject
-    public Read(CqlSession session, @BinaryReadConsistency ConsistencyLevel consistency) {
-        super(session, "SELECT chunkIndex FROM " + BINARY_TABLENAME + " WHERE identifier = :identifier;", consistency);
+    public Read(QueryContext context, @BinaryReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT chunkIndex FROM " + BINARY_TABLENAME + " WHERE identifier = :identifier;", consistency);
     }
 
     /**
@@ -0,0 +1,69 @@
+package edu.si.trellis.query.rdf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+
+import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query that records a change to the RDF of a resource as a delta, and updates its metadata without rewriting its
+ * RDF.
+ */
+public class AppendDelta extends ResourceQuery {
+
+    private final LazyPreparedStatement updateMetadata;
+
+    @Inject
+    public AppendDelta(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        super(context, "INSERT INTO " + MUTABLE_DELTAS_TABLENAME + " (identifier, created, additions, removals) "
+                        + "VALUES (:identifier, :created, :additions, :removals) ;", consistency);
+        this.updateMetadata = prepare("UPDATE " + MUTABLE_TABLENAME
+                        + " SET interactionModel = :interactionModel, mimeType = :mimeType, container = :container,"
+                        + " modified = :modified, binaryIdentifier = :binaryIdentifier, deltas = :deltas"
+                        + " WHERE identifier = :identifier ;");
+    }
+
+    /**
+     * Writes the delta and the metadata in one batch, since both are keyed by identifier.
+     * 
+     * @param id an {@link IRI} that identifies this resource
+     * @param additions quads added to the RDF of this resource
+     * @param removals quads removed from the RDF of this resource
+     * @param deltas the number of deltas this resource will then have
+     * @param ixnModel an {@link IRI} for the interaction model for this resource
+     * @param mimeType if this resource has a binary, the mimeType therefor
+     * @param container if this resource has a container, the {@link IRI} therefor
+     * @param modified the time at which this resource was last modified
+     * @param binaryIdentifier if this resource has a binary, the identifier therefor
+     * @param creation a time-based (version 1) UUID for the moment of this change
+     * @return whether and when it has been written
+     */
+    public CompletionStage<Void> execute(IRI id, Dataset additions, Dataset removals, int deltas, IRI ixnModel,
+                    String mimeType, IRI container, Instant modified, IRI binaryIdentifier, UUID creation) {
+        BoundStatement delta = preparedStatement().bind()
+                        .set("identifier", id, IRI.class)
+                        .setUuid("created", creation)
+                        .set("additions", additions, Dataset.class)
+                        .set("removals", removals, Dataset.class);
+        BoundStatement metadata = updateMetadata.bind()
+                        .set("interactionModel", ixnModel, IRI.class)
+                        .setString("mimeType", mimeType)
+                        .set("container", container, IRI.class)
+                        .set("modified", modified, Instant.class)
+                        .set("binaryIdentifier", binaryIdentifier, IRI.class)
+                        .setInt("deltas", deltas)
+                        .set("identifier", id, IRI.class);
+        return executeBatch(delta, metadata);
+    }
+}
@@ -4,13 +4,13 @@ import static org.trellisldp.vocabulary.LDP.PreferContainment;
 import static org.trellisldp.vocabulary.LDP.contains;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
 
 import edu.si.trellis.AsyncResultSetUtils;
 import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
 
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Stream;
@@ -30,8 +30,8 @@ public class BasicContainment extends ResourceQuery {
     private static final RDF rdfFactory = TrellisUtils.getInstance();
 
     @Inject
-    public BasicContainment(CqlSession session, @MutableReadConsistency ConsistencyLevel consistency) {
-        super(session, "SELECT identifier AS contained FROM " + BASIC_CONTAINMENT_TABLENAME
+    public BasicContainment(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT identifier AS contained FROM " + BASIC_CONTAINMENT_TABLENAME
                         + " WHERE container = :container ;", consistency);
     }
 
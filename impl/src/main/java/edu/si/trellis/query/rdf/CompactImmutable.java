@@ -0,0 +1,62 @@
+package edu.si.trellis.query.rdf;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+
+import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
+
+import java.time.Instant;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query that rolls up the immutable data about a resource into a single snapshot.
+ */
+public class CompactImmutable extends ResourceQuery {
+
+    private final LazyPreparedStatement supersede, deleteCompacted;
+
+    @Inject
+    public CompactImmutable(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        super(context, "INSERT INTO " + IMMUTABLE_SNAPSHOT_TABLENAME
+                        + " (identifier, compactQuads, through) VALUES (?,?,?) IF NOT EXISTS", consistency);
+        this.supersede = prepare("UPDATE " + IMMUTABLE_SNAPSHOT_TABLENAME
+                        + " SET compactQuads = ?, quads = null, through = ? WHERE identifier = ? IF through < ?");
+        this.deleteCompacted = prepare("DELETE FROM " + IMMUTABLE_TABLENAME
+                        + " WHERE identifier = :identifier AND created <= :through ;");
+    }
+
+    /**
+     * Records a snapshot unless a snapshot through the same or a later time is already recorded, and only then removes
+     * the rows it replaces. Were an older snapshot to replace a newer one, rows between their times that the newer
+     * snapshot had replaced would be lost. Readers ignore rows at or before the time of a snapshot, so the removal need
+     * not be atomic with the recording.
+     * 
+     * @param id the {@link IRI} of the resource, immutable data for which is to be compacted
+     * @param snapshot all immutable data for this resource recorded at or before {@code through}
+     * @param through the time up to which (inclusive) immutable data is rolled up in {@code snapshot}
+     * @return whether the snapshot was recorded, when the compaction succeeds
+     */
+    public CompletionStage<Boolean> execute(IRI id, Dataset snapshot, Instant through) {
+        BoundStatement insert = preparedStatement().bind(id, snapshot, through);
+        return executeConditionalWrite(insert)
+                        .<Boolean> thenCompose(inserted -> inserted ? completedFuture(true)
+                                        : executeConditionalWrite(supersede.bind(snapshot, through, id, through)))
+                        .<Boolean> thenCompose(recorded -> recorded ? delete(id, through).thenApply(deleted -> true)
+                                        : completedFuture(false));
+    }
+
+    private CompletionStage<Void> delete(IRI id, Instant through) {
+        return executeWrite(deleteCompacted.bind()
+                        .set("identifier", id, IRI.class)
+                        .set("through", through, Instant.class));
+    }
+}
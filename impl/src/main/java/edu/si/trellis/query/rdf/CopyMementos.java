@@ -0,0 +1,81 @@
+package edu.si.trellis.query.rdf;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.stream.Collectors.joining;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.query.QueryContext;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A query that copies Mementos from the legacy table, clustered by {@code created}, into the table clustered by
+ * {@code mementomodified}, column by column as raw bytes. A copy never overwrites a Memento already there, so where
+ * several legacy rows share a Memento-datetime, the latest created, which is scanned first, is kept.
+ */
+public class CopyMementos extends ResourceQuery {
+
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Built from the columns of the first row copied.
+     */
+    private PreparedStatement insert;
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use
+     */
+    public CopyMementos(QueryContext context, ConsistencyLevel consistency) {
+        super(context, "SELECT * FROM " + LEGACY_MEMENTO_TABLENAME + " ;", consistency);
+    }
+
+    /**
+     * Scans the legacy table, blocking to page through it.
+     *
+     * @return every row in the legacy table
+     */
+    public ResultSet execute() {
+        return executeSyncRead(preparedStatement().bind().setPageSize(PAGE_SIZE));
+    }
+
+    /**
+     * @param row a row from {@link #execute()}
+     * @return whether the row was copied
+     */
+    public CompletionStage<Boolean> execute(Row row) {
+        if (row.isNull("mementomodified")) return completedFuture(false);
+        ColumnDefinitions columns = row.getColumnDefinitions();
+        BoundStatement statement = insert(columns).bind();
+        for (int i = 0; i < columns.size(); i++) {
+            ByteBuffer value = row.getBytesUnsafe(i);
+            // leave nulls unset, so as not to write tombstones
+            if (value != null) statement = statement.setBytesUnsafe(i, value);
+        }
+        return executeConditionalWrite(statement);
+    }
+
+    private synchronized PreparedStatement insert(ColumnDefinitions columns) {
+        if (insert == null) {
+            String names = stream(columns).map(c -> c.getName().asCql(true)).collect(joining(", "));
+            String markers = stream(columns).map(c -> "?").collect(joining(", "));
+            insert = prepare("INSERT INTO " + MEMENTO_MUTABLE_TABLENAME + " (" + names + ") VALUES ("
+                            + markers + ") IF NOT EXISTS ;").get();
+        }
+        return insert;
+    }
+
+    private static Stream<ColumnDefinition> stream(ColumnDefinitions columns) {
+        return StreamSupport.stream(columns.spliterator(), false);
+    }
+}
@@ -1,10 +1,11 @@
 package edu.si.trellis.query.rdf;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 
 import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
 
 import java.util.concurrent.CompletionStage;
 
@@ -17,9 +18,15 @@ import org.apache.commons.rdf.api.IRI;
  */
 public class Delete extends ResourceQuery {
 
+    private final LazyPreparedStatement deleteChunks, deleteDeltas;
+
     @Inject
-    public Delete(CqlSession session, @MutableWriteConsistency ConsistencyLevel consistency) {
-        super(session, "DELETE FROM " + MUTABLE_TABLENAME + " WHERE identifier = :identifier ;", consistency);
+    public Delete(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        super(context, "DELETE FROM " + MUTABLE_TABLENAME + " WHERE identifier = :identifier ;", consistency);
+        this.deleteChunks = prepare("DELETE FROM " + RDF_CHUNKS_TABLENAME
+                        + " WHERE identifier = :identifier ;");
+        this.deleteDeltas = prepare("DELETE FROM " + MUTABLE_DELTAS_TABLENAME
+                        + " WHERE identifier = :identifier ;");
     }
 
     /**
@@ -28,6 +35,8 @@ public class Delete extends ResourceQuery {
      */
     public CompletionStage<Void> execute(IRI id) {
         BoundStatement statement = preparedStatement().bind().set("identifier", id, IRI.class);
-        return executeWrite(statement);
+        // all keyed by identifier, so one round trip
+        return executeBatch(statement, deleteChunks.bind().set("identifier", id, IRI.class),
+                        deleteDeltas.bind().set("identifier", id, IRI.class));
     }
 }
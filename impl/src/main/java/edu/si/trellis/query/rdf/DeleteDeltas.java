@@ -0,0 +1,38 @@
+package edu.si.trellis.query.rdf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+
+import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.query.QueryContext;
+
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query that deletes the deltas of a resource that its RDF, written whole, has superseded.
+ */
+public class DeleteDeltas extends ResourceQuery {
+
+    @Inject
+    public DeleteDeltas(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        super(context, "DELETE FROM " + MUTABLE_DELTAS_TABLENAME
+                        + " WHERE identifier = :identifier AND created < :created ;", consistency);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param base the {@code created} value of the row that supersedes the deltas
+     * @return whether and when they have been deleted
+     */
+    public CompletionStage<Void> execute(IRI id, UUID base) {
+        BoundStatement statement = preparedStatement().bind()
+                        .set("identifier", id, IRI.class)
+                        .setUuid("created", base);
+        return executeWrite(statement);
+    }
+}
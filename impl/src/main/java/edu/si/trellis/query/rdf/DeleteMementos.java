@@ -0,0 +1,57 @@
+package edu.si.trellis.query.rdf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+
+import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query that deletes a range of the Mementos of a resource with one range tombstone.
+ */
+public class DeleteMementos extends ResourceQuery {
+
+    private final LazyPreparedStatement deleteChunks;
+
+    @Inject
+    public DeleteMementos(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        super(context, "DELETE FROM " + MEMENTO_MUTABLE_TABLENAME + " WHERE identifier = :identifier"
+                        + " AND mementomodified >= :from AND mementomodified <= :until ;", consistency);
+        this.deleteChunks = prepare("DELETE FROM " + MEMENTO_CHUNKS_TABLENAME
+                        + " WHERE identifier = :identifier AND created = :created ;");
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param from the earliest Memento-datetime to delete
+     * @param until the latest Memento-datetime to delete
+     * @return whether and when the Mementos have been deleted
+     */
+    public CompletionStage<Void> execute(IRI id, Instant from, Instant until) {
+        BoundStatement statement = preparedStatement().bind()
+                        .set("identifier", id, IRI.class)
+                        .set("from", from, Instant.class)
+                        .set("until", until, Instant.class);
+        return executeWrite(statement);
+    }
+
+    /**
+     * Deletes the chunks of a Memento, which should be done before the Memento itself is deleted.
+     *
+     * @param id the {@link IRI} of a resource
+     * @param created the {@code created} value of a Memento written in chunks
+     * @return whether and when the chunks have been deleted
+     */
+    public CompletionStage<Void> deleteChunks(IRI id, UUID created) {
+        return executeWrite(deleteChunks.bind().set("identifier", id, IRI.class).setUuid("created", created));
+    }
+}
@@ -1,15 +1,36 @@
 package edu.si.trellis.query.rdf;
 
+import static edu.si.trellis.DatasetColumns.ACL_QUADS;
+import static edu.si.trellis.DatasetColumns.COMPACT_QUADS;
+import static edu.si.trellis.DatasetColumns.DELTAS;
+import static edu.si.trellis.DatasetColumns.MEMENTO_RDF;
+import static edu.si.trellis.DatasetColumns.QUADS;
+import static edu.si.trellis.DatasetColumns.RDF_CHUNKS;
+import static edu.si.trellis.GraphSelector.ACL;
+import static edu.si.trellis.GraphSelector.ALL;
+import static edu.si.trellis.GraphSelector.CONTENT;
+import static edu.si.trellis.GraphSelector.METADATA;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
 
+import edu.si.trellis.DatasetColumns;
+import edu.si.trellis.GraphSelector;
 import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
 
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletionStage;
 
 import javax.inject.Inject;
 
+import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.IRI;
 
 /**
@@ -17,12 +38,78 @@ import org.apache.commons.rdf.api.IRI;
  */
 public class Get extends ResourceQuery {
 
+    private static final String METADATA_COLUMNS = "identifier, interactionModel, hasAcl, binaryIdentifier, "
+                    + "mimeType, container, modified, created";
+
+    private final Map<GraphSelector, LazyPreparedStatement> selections = new EnumMap<>(GraphSelector.class);
+
+    private final RdfChunks chunks;
+
+    private final LazyPreparedStatement readMemento;
+
+    private final RdfChunks mementoChunks;
+
     @Inject
-    public Get(CqlSession session, @MutableReadConsistency ConsistencyLevel consistency) {
-        super(session, "SELECT * FROM " + MUTABLE_TABLENAME + " WHERE identifier = :identifier;", consistency);
+    public Get(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, select("*"), consistency);
+        selections.put(ALL, prepare(select("*")));
+        selections.put(CONTENT, prepare(select(METADATA_COLUMNS + ", " + QUADS + ", " + COMPACT_QUADS + ", "
+                        + RDF_CHUNKS + ", " + DELTAS + ", " + MEMENTO_RDF)));
+        selections.put(ACL, prepare(select(METADATA_COLUMNS + ", " + ACL_QUADS)));
+        selections.put(METADATA, prepare(select(METADATA_COLUMNS)));
+        this.chunks = RdfChunks.mutable(context, consistency);
+        this.readMemento = prepare("SELECT " + QUADS + ", " + COMPACT_QUADS + ", " + RDF_CHUNKS
+                        + ", created FROM " + MEMENTO_MUTABLE_TABLENAME
+                        + " WHERE identifier = :identifier AND mementomodified = :time;");
+        this.mementoChunks = RdfChunks.mementos(context, consistency);
+    }
+
+    private static String select(String columns) {
+        return "SELECT " + columns + " FROM " + MUTABLE_TABLENAME + " WHERE identifier = :identifier;";
     }
 
+    /**
+     * @param id the {@link IRI} of a resource
+     * @return the resource with all of its RDF
+     */
     public CompletionStage<AsyncResultSet> execute(IRI id) {
-        return executeRead(preparedStatement().bind().set("identifier", id, IRI.class));
+        return execute(id, ALL);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param graphs which of its RDF to retrieve; rows written before the access-control graph was stored apart carry
+     *            all RDF in the content columns
+     * @return the resource with the selected RDF
+     */
+    public CompletionStage<AsyncResultSet> execute(IRI id, GraphSelector graphs) {
+        return executeRead(selections.get(graphs).bind().set("identifier", id, IRI.class));
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param created the {@code created} value of a row whose RDF was written in chunks
+     * @param count the number of chunks recorded in that row
+     * @return the RDF in the chunks
+     * @see RdfChunks#read(IRI, UUID, int)
+     */
+    public CompletionStage<Dataset> readChunks(IRI id, UUID created, int count) {
+        return chunks.read(id, created, count);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param time the Memento-datetime recorded in a row whose content was written only to a Memento
+     * @return that content
+     * @see DatasetColumns#MEMENTO_RDF
+     */
+    public CompletionStage<Dataset> readMemento(IRI id, Instant time) {
+        BoundStatement statement = readMemento.bind().set("identifier", id, IRI.class).set("time", time, Instant.class);
+        return executeRead(statement).thenApply(AsyncResultSet::one).thenCompose(row -> {
+            if (row == null) throw new IllegalStateException("No Memento of " + id + " at " + time + " to read!");
+            int count = DatasetColumns.chunks(row);
+            return count == 0 ? completedFuture(DatasetColumns.readContent(row))
+                            : mementoChunks.read(id, row.getUuid("created"), count);
+        });
     }
 }
@@ -0,0 +1,39 @@
+package edu.si.trellis.query.rdf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+
+import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
+
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query that retrieves the deltas recorded for a resource since its RDF was last written whole.
+ */
+public class GetDeltas extends ResourceQuery {
+
+    @Inject
+    public GetDeltas(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT additions, removals FROM " + MUTABLE_DELTAS_TABLENAME
+                        + " WHERE identifier = :identifier AND created > :created ;", consistency);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param base the {@code created} value of its row
+     * @return the deltas written after that row, oldest first
+     */
+    public CompletionStage<AsyncResultSet> execute(IRI id, UUID base) {
+        BoundStatement statement = preparedStatement().bind()
+                        .set("identifier", id, IRI.class)
+                        .setUuid("created", base);
+        return executeRead(statement);
+    }
+}
@@ -1,10 +1,10 @@
 package edu.si.trellis.query.rdf;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
 
 import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
 
 import java.util.concurrent.CompletionStage;
 
@@ -18,8 +18,9 @@ import org.apache.commons.rdf.api.IRI;
 public class GetFirstMemento extends ResourceQuery {
 
     @Inject
-    public GetFirstMemento(CqlSession session, @MutableReadConsistency ConsistencyLevel consistency) {
-        super(session, "SELECT * FROM " + MEMENTO_MUTABLE_TABLENAME + " WHERE identifier = :identifier LIMIT 1 ;",
+    public GetFirstMemento(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT * FROM " + MEMENTO_MUTABLE_TABLENAME + " WHERE identifier = :identifier"
+                        + " ORDER BY mementomodified ASC LIMIT 1 ;",
                         consistency);
     }
 
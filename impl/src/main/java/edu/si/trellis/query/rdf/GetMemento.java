@@ -1,35 +1,40 @@
 package edu.si.trellis.query.rdf;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 
 import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
 
 import java.time.Instant;
+import java.util.UUID;
 import java.util.concurrent.CompletionStage;
 
 import javax.inject.Inject;
 
+import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.IRI;
 
 /**
- * Retrieve data for a Memento.
+ * Retrieve data for a Memento: the latest at or before a given time, read as one slice of the partition, which is
+ * clustered by {@code mementomodified} descending.
  */
 public class GetMemento extends ResourceQuery {
 
+    private final RdfChunks chunks;
+
     @Inject
-    public GetMemento(CqlSession session, @MutableReadConsistency ConsistencyLevel consistency) {
-        super(session, "SELECT * FROM " + MEMENTO_MUTABLE_TABLENAME
-                        + " WHERE identifier = :identifier AND mementomodified <= :time " + " LIMIT 1 ALLOW FILTERING;",
-                        consistency);
+    public GetMemento(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT * FROM " + MEMENTO_MUTABLE_TABLENAME
+                        + " WHERE identifier = :identifier AND mementomodified <= :time LIMIT 1 ;", consistency);
+        this.chunks = RdfChunks.mementos(context, consistency);
     }
 
     /**
      * @param id the {@link IRI} of the Memento to retrieve
      * @param time the time for which this Memento is valid
-     * @return the data for the Memento
+     * @return the data for the Memento, or no rows if {@code time} precedes every Memento
      */
     public CompletionStage<AsyncResultSet> execute(IRI id, Instant time) {
         BoundStatement statement = preparedStatement().bind()
@@ -37,4 +42,15 @@ public class GetMemento extends ResourceQuery {
                         .set("identifier", id, IRI.class);
         return executeRead(statement);
     }
+
+    /**
+     * @param id the {@link IRI} of a Memento
+     * @param created the {@code created} value of a row whose RDF was written in chunks
+     * @param count the number of chunks recorded in that row
+     * @return the RDF in the chunks
+     * @see RdfChunks#read(IRI, UUID, int)
+     */
+    public CompletionStage<Dataset> readChunks(IRI id, UUID created, int count) {
+        return chunks.read(id, created, count);
+    }
 }
@@ -0,0 +1,35 @@
+package edu.si.trellis.query.rdf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+
+import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
+
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query to retrieve the summary of the Mementos of a resource, kept in static columns of its partition.
+ *
+ * @see UpdateMementoSummary
+ */
+public class GetMementoSummary extends ResourceQuery {
+
+    @Inject
+    public GetMementoSummary(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT firstMemento, lastMemento, mementoCount FROM " + MEMENTO_MUTABLE_TABLENAME
+                        + " WHERE identifier = :identifier LIMIT 1 ;", consistency);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @return the summary of the Mementos of {@code id}, with a {@code null} count if none is kept
+     */
+    public CompletionStage<AsyncResultSet> execute(IRI id) {
+        return executeRead(preparedStatement().bind().set("identifier", id, IRI.class));
+    }
+}
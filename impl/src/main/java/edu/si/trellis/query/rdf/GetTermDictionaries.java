@@ -0,0 +1,29 @@
+package edu.si.trellis.query.rdf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+
+import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
+
+import javax.inject.Inject;
+
+/**
+ * A query that retrieves every version of the term dictionary.
+ */
+public class GetTermDictionaries extends ResourceQuery {
+
+    @Inject
+    public GetTermDictionaries(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT version, id, term FROM " + TERM_DICTIONARY_TABLENAME + " ;", consistency);
+    }
+
+    /**
+     * Blocks, because dictionaries must be known before any RDF can be read.
+     * 
+     * @return every entry in every version of the term dictionary, ordered by id within each version
+     */
+    public ResultSet execute() {
+        return executeSyncRead(preparedStatement().bind());
+    }
+}
@@ -1,10 +1,10 @@
 package edu.si.trellis.query.rdf;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 
 import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.query.QueryContext;
 
 import java.time.Instant;
 import java.util.concurrent.CompletionStage;
@@ -20,8 +20,8 @@ import org.apache.commons.rdf.api.IRI;
 public class ImmutableInsert extends ResourceQuery {
 
     @Inject
-    public ImmutableInsert(CqlSession session, @MutableWriteConsistency ConsistencyLevel consistency) {
-        super(session, "INSERT INTO " + IMMUTABLE_TABLENAME + " (identifier, quads, created) VALUES (?,?,?)",
+    public ImmutableInsert(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        super(context, "INSERT INTO " + IMMUTABLE_TABLENAME + " (identifier, compactQuads, created) VALUES (?,?,?)",
                         consistency);
     }
 
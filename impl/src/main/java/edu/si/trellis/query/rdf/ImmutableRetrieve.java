@@ -1,13 +1,22 @@
 package edu.si.trellis.query.rdf;
 
+import static java.util.stream.Collectors.toList;
+
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.Row;
 
 import edu.si.trellis.AsyncResultSetUtils;
+import edu.si.trellis.DatasetColumns;
 import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.concurrent.CompletionStage;
+import java.util.function.IntConsumer;
 import java.util.stream.Stream;
 
 import javax.inject.Inject;
@@ -17,13 +26,26 @@ import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.Quad;
 
 /**
- * A query to retrieve immutable data about a resource from Cassandra.
+ * A query to retrieve immutable data about a resource from Cassandra. Any snapshot of compacted data is read first,
+ * and then only the rows recorded after it.
  */
 public class ImmutableRetrieve extends ResourceQuery {
 
+    /**
+     * The earliest and latest times a {@code timestamp} column can hold, for unbounded ranges.
+     */
+    private static final Instant EARLIEST = Instant.ofEpochMilli(Long.MIN_VALUE),
+                    LATEST = Instant.ofEpochMilli(Long.MAX_VALUE);
+
+    private final LazyPreparedStatement snapshotStatement;
+
     @Inject
-    public ImmutableRetrieve(CqlSession session, @MutableReadConsistency ConsistencyLevel consistency) {
-        super(session, "SELECT quads FROM " + IMMUTABLE_TABLENAME + "  WHERE identifier = :identifier ;", consistency);
+    public ImmutableRetrieve(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT quads, compactQuads, created FROM " + IMMUTABLE_TABLENAME
+                        + " WHERE identifier = :identifier AND created > :compacted AND created <= :through ;",
+                        consistency);
+        this.snapshotStatement = prepare("SELECT quads, compactQuads, through FROM " + IMMUTABLE_SNAPSHOT_TABLENAME
+                        + " WHERE identifier = :identifier ;");
     }
 
     /**
@@ -31,13 +53,54 @@ public class ImmutableRetrieve extends ResourceQuery {
      * @return the RDF retrieved
      */
     public CompletionStage<Stream<Quad>> execute(IRI id) {
-        return executeRead(preparedStatement().bind().set("identifier", id, IRI.class))
-                        .thenApply(AsyncResultSetUtils::stream)
-                        .thenApply(row -> row.map(this::getDataset))
-                        .thenApply(r -> r.flatMap(Dataset::stream));
+        return retrieve(id, LATEST, LATEST, rows -> {});
+    }
+
+    /**
+     * @param id the {@link IRI} of the resource, the immutable data of which is to be retrieved
+     * @param compactable the time up to which (inclusive) rows may be compacted
+     * @param uncompacted receives the number of rows found that have not yet been compacted into a snapshot and were
+     *            recorded at or before {@code compactable}
+     * @return the RDF retrieved
+     */
+    public CompletionStage<Stream<Quad>> execute(IRI id, Instant compactable, IntConsumer uncompacted) {
+        return retrieve(id, LATEST, compactable, uncompacted);
+    }
+
+    /**
+     * @param id the {@link IRI} of the resource, the immutable data of which is to be retrieved
+     * @param through the time up to which (inclusive) immutable data is to be retrieved
+     * @return the RDF retrieved
+     */
+    public CompletionStage<Stream<Quad>> execute(IRI id, Instant through) {
+        return retrieve(id, through, through, rows -> {});
+    }
+
+    private CompletionStage<Stream<Quad>> retrieve(IRI id, Instant through, Instant compactable,
+                    IntConsumer uncompacted) {
+        return executeRead(snapshotStatement.bind().set("identifier", id, IRI.class))
+                        .thenApply(AsyncResultSet::one)
+                        .thenCompose(snap -> {
+                            // rows at or before the snapshot's time have already been rolled up into it
+                            Instant compacted = snap == null ? EARLIEST : snap.get("through", Instant.class);
+                            BoundStatement rows = preparedStatement().bind()
+                                            .set("identifier", id, IRI.class)
+                                            .set("compacted", compacted, Instant.class)
+                                            .set("through", through, Instant.class);
+                            return executeRead(rows).thenApply(AsyncResultSetUtils::stream)
+                                            .thenApply(fresh -> combine(snap, fresh.collect(toList()), compactable,
+                                                            uncompacted));
+                        });
+    }
+
+    private Stream<Quad> combine(Row snap, List<Row> fresh, Instant compactable, IntConsumer uncompacted) {
+        uncompacted.accept((int) fresh.stream().filter(r -> !r.get("created", Instant.class).isAfter(compactable))
+                        .count());
+        Stream<? extends Quad> snapQuads = snap == null ? Stream.empty() : getDataset(snap).stream();
+        return Stream.<Quad> concat(snapQuads, fresh.stream().map(this::getDataset).<Quad> flatMap(Dataset::stream));
     }
 
     private Dataset getDataset(Row r) {
-        return r.get("quads", Dataset.class);
+        return DatasetColumns.read(r);
     }
 }
@@ -0,0 +1,43 @@
+package edu.si.trellis.query.rdf;
+
+import static java.util.concurrent.CompletableFuture.allOf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+
+import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.query.QueryContext;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query that records a version of the term dictionary.
+ */
+public class InsertTermDictionary extends ResourceQuery {
+
+    @Inject
+    public InsertTermDictionary(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        super(context, "INSERT INTO " + TERM_DICTIONARY_TABLENAME
+                        + " (version, id, term) VALUES (:version, :id, :term) ;", consistency);
+    }
+
+    /**
+     * @param version the version of the dictionary
+     * @param terms the IRIs in the dictionary, each at the position of its id
+     * @return whether and when the dictionary has been recorded
+     */
+    public CompletionStage<Void> execute(int version, List<IRI> terms) {
+        CompletableFuture<?>[] writes = new CompletableFuture<?>[terms.size()];
+        for (int id = 0; id < terms.size(); id++)
+            writes[id] = executeWrite(preparedStatement().bind()
+                            .setInt("version", version)
+                            .setInt("id", id)
+                            .setString("term", terms.get(id).getIRIString())).toCompletableFuture();
+        return allOf(writes);
+    }
+}
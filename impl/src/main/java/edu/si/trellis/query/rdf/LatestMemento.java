@@ -0,0 +1,33 @@
+package edu.si.trellis.query.rdf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+
+import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
+
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query to retrieve the keys and content hash of the latest Memento of a resource.
+ */
+public class LatestMemento extends ResourceQuery {
+
+    @Inject
+    public LatestMemento(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT mementomodified, created, rdfChunks, contentHash FROM " + MEMENTO_MUTABLE_TABLENAME
+                        + " WHERE identifier = :identifier LIMIT 1 ;", consistency);
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @return the latest Memento of {@code id}, if any, or a row of only the summary columns if it has none
+     */
+    public CompletionStage<AsyncResultSet> execute(IRI id) {
+        return executeRead(preparedStatement().bind().set("identifier", id, IRI.class));
+    }
+}
@@ -0,0 +1,71 @@
+package edu.si.trellis.query.rdf;
+
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query that retrieves a Memento together with the Mementos needed to rebuild it. A Memento written as a delta
+ * records the Memento-datetime of the Memento it is based on, so Mementos written out of order, which are passed over,
+ * do not break the chain.
+ */
+public class MementoChain extends ResourceQuery {
+
+    private static final int PAGE_SIZE = 16;
+
+    @Inject
+    public MementoChain(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT * FROM " + MEMENTO_MUTABLE_TABLENAME
+                        + " WHERE identifier = :identifier AND mementomodified <= :time ;", consistency);
+    }
+
+    /**
+     * @param row a Memento
+     * @return whether {@code row} was written as a delta against an earlier Memento
+     */
+    public static boolean isDelta(Row row) {
+        return !row.isNull("sinceSnapshot") && row.getInt("sinceSnapshot") > 0;
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param time a time
+     * @return the latest Memento of {@code id} at or before {@code time}, followed by the Mementos on which it depends,
+     *         latest first and ending with a snapshot, or nothing if there is no such Memento
+     */
+    public CompletionStage<List<Row>> execute(IRI id, Instant time) {
+        BoundStatement statement = preparedStatement().bind()
+                        .set("identifier", id, IRI.class)
+                        .set("time", time, Instant.class)
+                        .setPageSize(PAGE_SIZE);
+        // paging blocks, which must not happen on a driver thread
+        return supplyAsync(() -> chain(executeSyncRead(statement), id, time), readWorkers);
+    }
+
+    private static List<Row> chain(Iterable<Row> rows, IRI id, Instant time) {
+        List<Row> chain = new ArrayList<>();
+        Instant base = null;
+        for (Row row : rows) {
+            if (base != null && !base.equals(row.get("mementomodified", Instant.class))) continue;
+            chain.add(row);
+            if (!isDelta(row)) return chain;
+            base = row.get("base", Instant.class);
+        }
+        if (chain.isEmpty()) return chain;
+        throw new IllegalStateException("No snapshot found for the Memento of " + id + " at " + time + "!");
+    }
+}
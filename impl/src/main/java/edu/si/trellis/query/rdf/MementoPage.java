@@ -0,0 +1,45 @@
+package edu.si.trellis.query.rdf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+
+import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
+
+import java.time.Instant;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query to retrieve a range of the Memento-datetimes of a resource, read as one slice of its partition.
+ */
+public class MementoPage extends ResourceQuery {
+
+    @Inject
+    public MementoPage(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT mementomodified FROM " + MEMENTO_MUTABLE_TABLENAME
+                        + " WHERE identifier = :identifier AND mementomodified >= :from AND mementomodified <= :until"
+                        + " LIMIT :maximum ;", consistency);
+    }
+
+    /**
+     * @param id the {@link IRI} of the resource the Mementos of which are to be cataloged
+     * @param from the earliest Memento-datetime to retrieve
+     * @param until the latest Memento-datetime to retrieve
+     * @param limit the most Memento-datetimes to retrieve
+     * @return A {@link AsyncResultSet} with the latest {@code limit} Memento-datetimes from {@code from} until
+     *         {@code until}, latest first
+     */
+    public CompletionStage<AsyncResultSet> execute(IRI id, Instant from, Instant until, int limit) {
+        BoundStatement statement = preparedStatement().bind()
+                        .set("identifier", id, IRI.class)
+                        .set("from", from, Instant.class)
+                        .set("until", until, Instant.class)
+                        .setInt("maximum", limit);
+        return executeRead(statement);
+    }
+}
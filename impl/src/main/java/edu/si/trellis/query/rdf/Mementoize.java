@@ -3,12 +3,17 @@ package edu.si.trellis.query.rdf;
 import static java.time.temporal.ChronoUnit.SECONDS;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 
+import edu.si.trellis.DatasetColumns;
 import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.RdfChunkSize;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletionStage;
 
@@ -18,15 +23,35 @@ import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.IRI;
 
 /**
- * A query that records a version of a resource as a Memento.
+ * A query that records a version of a resource as a Memento, either whole, as a snapshot, or as a delta against an
+ * earlier Memento. RDF larger than the configured chunk size is written in chunks first.
+ *
+ * @see MementoChain
  */
 public class Mementoize extends ResourceQuery {
 
+    private final RdfChunks chunks;
+
+    private final int chunkSize;
+
+    private final LazyPreparedStatement insertDelta;
+
     @Inject
-    public Mementoize(CqlSession session, @MutableWriteConsistency ConsistencyLevel consistency) {
-        super(session, "INSERT INTO " + MEMENTO_MUTABLE_TABLENAME
-                        + " (interactionModel, mimeType, container, quads, modified, binaryIdentifier, "
-                        + "created, identifier, mementomodified)" + " VALUES (?,?,?,?,?,?,?,?,?);", consistency);
+    public Mementoize(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency,
+                    @RdfChunkSize int chunkSize) {
+        super(context, "INSERT INTO " + MEMENTO_MUTABLE_TABLENAME
+                        + " (interactionModel, mimeType, container, modified, binaryIdentifier, created, identifier, "
+                        + "mementomodified, compactQuads, aclQuads, hasAcl, rdfChunks, contentHash, "
+                        + "additions, removals, sinceSnapshot, base) "
+                        + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,null,null,null,null);",
+                        consistency);
+        this.chunks = RdfChunks.mementos(context, consistency);
+        this.chunkSize = chunkSize;
+        this.insertDelta = prepare("INSERT INTO " + MEMENTO_MUTABLE_TABLENAME
+                        + " (interactionModel, mimeType, container, modified, binaryIdentifier, created, identifier, "
+                        + "mementomodified, hasAcl, contentHash, additions, removals, sinceSnapshot, base, "
+                        + "compactQuads, aclQuads, rdfChunks, quads) "
+                        + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,null,null,null,null);");
     }
 
     /**
@@ -37,17 +62,57 @@ public class Mementoize extends ResourceQuery {
      * @param mimeType if this resource has a binary, the mimeType therefor
      * @param container if this resource has a container, the {@link IRI} therefor
      * @param data RDF for this resource
+     * @param contentHash a hash of this version of this resource, if any
+     * @param modified the time at which this resource was last modified
+     * @param binaryIdentifier if this resource has a binary, the identifier therefor
+     * @param creation a time-based (version 1) UUID for the moment this resource is created
+     * @param id an {@link IRI} that identifies this resource
+     * @return whether and when it has been inserted
+     */
+    public CompletionStage<Void> execute(IRI ixnModel, String mimeType, IRI container, Dataset data,
+                    ByteBuffer contentHash, Instant modified, IRI binaryIdentifier, UUID creation, IRI id) {
+        Instant mementoModified = modified.truncatedTo(SECONDS);
+        BoundStatement statement = preparedStatement().bind(ixnModel, mimeType, container, modified,
+                        binaryIdentifier, creation, id, mementoModified)
+                        .setBytesUnsafe("contentHash", contentHash);
+        ByteBuffer content = DatasetColumns.content(data, session.getContext().getCodecRegistry());
+        if (content == null || content.remaining() <= chunkSize)
+            return executeWrite(DatasetColumns.bind(statement, data, content, 0));
+        List<ByteBuffer> split = RdfChunks.split(content, chunkSize);
+        return chunks.insert(id, creation, split)
+                        .thenCompose(x -> executeWrite(DatasetColumns.bind(statement, data, null, split.size())));
+    }
+
+    /**
+     * Store a Memento as a delta against an earlier Memento.
+     * 
+     * @param ixnModel an {@link IRI} for the interaction model for this resource
+     * @param mimeType if this resource has a binary, the mimeType therefor
+     * @param container if this resource has a container, the {@link IRI} therefor
+     * @param hasAcl whether this resource has an access-control graph
+     * @param contentHash a hash of this version of this resource, if any
+     * @param additions quads added since the earlier Memento
+     * @param removals quads removed since the earlier Memento
+     * @param base the Memento-datetime of the earlier Memento
+     * @param sinceSnapshot how many Mementos, counting this one, have been written as deltas since the last snapshot
      * @param modified the time at which this resource was last modified
      * @param binaryIdentifier if this resource has a binary, the identifier therefor
      * @param creation a time-based (version 1) UUID for the moment this resource is created
      * @param id an {@link IRI} that identifies this resource
      * @return whether and when it has been inserted
      */
-    public CompletionStage<Void> execute(IRI ixnModel, String mimeType, IRI container, Dataset data, Instant modified,
-                    IRI binaryIdentifier, UUID creation, IRI id) {
+    public CompletionStage<Void> executeDelta(IRI ixnModel, String mimeType, IRI container, boolean hasAcl,
+                    ByteBuffer contentHash, Dataset additions, Dataset removals, Instant base, int sinceSnapshot,
+                    Instant modified, IRI binaryIdentifier, UUID creation, IRI id) {
         Instant mementoModified = modified.truncatedTo(SECONDS);
-        BoundStatement statement = preparedStatement().bind(ixnModel, mimeType, container, data, modified,
-                        binaryIdentifier, creation, id, mementoModified);
+        BoundStatement statement = insertDelta.bind(ixnModel, mimeType, container, modified, binaryIdentifier,
+                        creation, id, mementoModified)
+                        .setBoolean("hasAcl", hasAcl)
+                        .setBytesUnsafe("contentHash", contentHash)
+                        .set("additions", additions, Dataset.class)
+                        .set("removals", removals, Dataset.class)
+                        .setInt("sinceSnapshot", sinceSnapshot)
+                        .set("base", base, Instant.class);
         return executeWrite(statement);
     }
 }
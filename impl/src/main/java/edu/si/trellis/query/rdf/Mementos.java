@@ -1,10 +1,10 @@
 package edu.si.trellis.query.rdf;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
 
 import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
 
 import java.util.concurrent.CompletionStage;
 
@@ -18,15 +18,15 @@ import org.apache.commons.rdf.api.IRI;
 public class Mementos extends ResourceQuery {
 
     @Inject
-    public Mementos(CqlSession session, @MutableReadConsistency ConsistencyLevel consistency) {
-        super(session, "SELECT modified FROM " + MEMENTO_MUTABLE_TABLENAME + " WHERE identifier = :identifier",
+    public Mementos(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT mementomodified FROM " + MEMENTO_MUTABLE_TABLENAME + " WHERE identifier = :identifier",
                         consistency);
     }
 
     /**
      * @param id the {@link IRI} of the resource the Mementos of which are to be cataloged
-     * @return A {@link AsyncResultSet} with the modified-dates of any Mementos for this resource. There will be at least one
-     *         (the most recent one).
+     * @return A {@link AsyncResultSet} with the Memento-datetimes of any Mementos for this resource, latest first.
+     *         There will be at least one (the most recent one).
      */
     public CompletionStage<AsyncResultSet> execute(IRI id) {
         return executeRead(preparedStatement().bind().set("identifier", id, IRI.class));
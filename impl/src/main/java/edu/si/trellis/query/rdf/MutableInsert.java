@@ -1,12 +1,17 @@
 package edu.si.trellis.query.rdf;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 
+import edu.si.trellis.DatasetColumns;
 import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.RdfChunkSize;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletionStage;
 
@@ -16,15 +21,36 @@ import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.IRI;
 
 /**
- * A query to insert mutable data about a resource into Cassandra.
+ * A query to insert mutable data about a resource into Cassandra. RDF larger than the configured chunk size is written
+ * in chunks first, and the chunks of earlier versions are then deleted. Under single-copy storage the content is
+ * instead written only to a Memento, and the row points to it.
  */
 public class MutableInsert extends ResourceQuery {
 
+    private final RdfChunks chunks;
+
+    private final LazyPreparedStatement deleteEarlierChunks;
+
+    private final LazyPreparedStatement insertPointer;
+
+    private final int chunkSize;
+
     @Inject
-    public MutableInsert(CqlSession session, @MutableWriteConsistency ConsistencyLevel consistency) {
-        super(session, "INSERT INTO " + MUTABLE_TABLENAME
-                        + " (interactionModel, mimeType, container, quads, modified, binaryIdentifier, created, identifier)"
-                        + " VALUES (?,?,?,?,?,?,?,?);", consistency);
+    public MutableInsert(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency,
+                    @RdfChunkSize int chunkSize) {
+        super(context, "INSERT INTO " + MUTABLE_TABLENAME
+                        + " (interactionModel, mimeType, container, modified, binaryIdentifier, created, identifier, "
+                        + "compactQuads, aclQuads, hasAcl, rdfChunks, quads, deltas, mementoRdf) "
+                        + "VALUES (?,?,?,?,?,?,?,?,?,?,?,null,null,null);",
+                        consistency);
+        this.insertPointer = prepare("INSERT INTO " + MUTABLE_TABLENAME
+                        + " (interactionModel, mimeType, container, modified, binaryIdentifier, created, identifier, "
+                        + "compactQuads, aclQuads, hasAcl, rdfChunks, mementoRdf, quads, deltas) "
+                        + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,null,null);");
+        this.chunks = RdfChunks.mutable(context, consistency);
+        this.deleteEarlierChunks = prepare("DELETE FROM " + RDF_CHUNKS_TABLENAME
+                        + " WHERE identifier = :identifier AND created < :created ;");
+        this.chunkSize = chunkSize;
     }
 
     /**
@@ -40,8 +66,40 @@ public class MutableInsert extends ResourceQuery {
      */
     public CompletionStage<Void> execute(IRI ixnModel, String mimeType, IRI container, Dataset data, Instant modified,
                     IRI binaryIdentifier, UUID creation, IRI id) {
-        BoundStatement statement = preparedStatement().bind(ixnModel, mimeType, container, data, modified,
+        BoundStatement statement = preparedStatement().bind(ixnModel, mimeType, container, modified,
                         binaryIdentifier, creation, id);
-        return executeWrite(statement);
+        ByteBuffer content = DatasetColumns.content(data, session.getContext().getCodecRegistry());
+        if (content == null || content.remaining() <= chunkSize)
+            return executeWrite(DatasetColumns.bind(statement, data, content, 0));
+        List<ByteBuffer> split = RdfChunks.split(content, chunkSize);
+        BoundStatement deleteEarlier = deleteEarlierChunks.bind().set("identifier", id, IRI.class)
+                        .setUuid("created", creation);
+        return chunks.insert(id, creation, split).thenCompose(
+                        x -> executeBatch(DatasetColumns.bind(statement, data, null, split.size()), deleteEarlier));
+    }
+
+    /**
+     * Inserts a row whose content has been written only to a Memento, keeping just the access-control graph.
+     *
+     * @param ixnModel an {@link IRI} for the interaction model for this resource
+     * @param mimeType if this resource has a binary, the mimeType therefor
+     * @param container if this resource has a container, the {@link IRI} therefor
+     * @param data RDF for this resource
+     * @param modified the time at which this resource was last modified
+     * @param binaryIdentifier if this resource has a binary, the identifier therefor
+     * @param creation a time-based (version 1) UUID for the moment this resource is created
+     * @param id an {@link IRI} that identifies this resource
+     * @param mementoRdf the Memento-datetime of the Memento holding the content of {@code data}
+     * @return whether and when it has been inserted
+     * @see DatasetColumns#MEMENTO_RDF
+     */
+    public CompletionStage<Void> executeSingleCopy(IRI ixnModel, String mimeType, IRI container, Dataset data,
+                    Instant modified, IRI binaryIdentifier, UUID creation, IRI id, Instant mementoRdf) {
+        BoundStatement statement = insertPointer.bind(ixnModel, mimeType, container, modified, binaryIdentifier,
+                        creation, id).set(DatasetColumns.MEMENTO_RDF, mementoRdf, Instant.class);
+        BoundStatement deleteEarlier = deleteEarlierChunks.bind().set("identifier", id, IRI.class)
+                        .setUuid("created", creation);
+        // no content, but any chunks of a version written before remain to be deleted
+        return executeBatch(DatasetColumns.bind(statement, data, null, 0), deleteEarlier);
     }
 }
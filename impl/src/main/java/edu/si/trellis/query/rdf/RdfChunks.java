@@ -0,0 +1,162 @@
+package edu.si.trellis.query.rdf;
+
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.DatasetColumns;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query that reads and writes the serialized RDF of a row in chunks, for RDF too large for one cell. Chunks are keyed
+ * by the {@code identifier} and {@code created} of the row they belong to.
+ *
+ * @see DatasetColumns#RDF_CHUNKS
+ */
+public class RdfChunks extends ResourceQuery {
+
+    private final LazyPreparedStatement insert;
+
+    private RdfChunks(QueryContext context, ConsistencyLevel consistency, String table) {
+        super(context, "SELECT chunkIndex, chunk FROM " + table
+                        + " WHERE identifier = :identifier AND created = :created ;", consistency);
+        this.insert = prepare("INSERT INTO " + table + " (identifier, created, chunkIndex, chunk) VALUES "
+                        + "(:identifier, :created, :chunkIndex, :chunk) ;");
+    }
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use
+     * @return a query for the chunks of the current state of resources
+     */
+    static RdfChunks mutable(QueryContext context, ConsistencyLevel consistency) {
+        return new RdfChunks(context, consistency, RDF_CHUNKS_TABLENAME);
+    }
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use
+     * @return a query for the chunks of Mementos
+     */
+    static RdfChunks mementos(QueryContext context, ConsistencyLevel consistency) {
+        return new RdfChunks(context, consistency, MEMENTO_CHUNKS_TABLENAME);
+    }
+
+    /**
+     * @param content serialized RDF
+     * @param chunkSize the largest chunk to make
+     * @return {@code content} in chunks of {@code chunkSize} bytes, the last perhaps smaller, sharing its bytes
+     */
+    static List<ByteBuffer> split(ByteBuffer content, int chunkSize) {
+        List<ByteBuffer> chunks = new ArrayList<>(content.remaining() / chunkSize + 1);
+        for (int start = content.position(); start < content.limit(); start += chunkSize) {
+            ByteBuffer chunk = content.duplicate();
+            chunk.position(start);
+            chunk.limit(Math.min(start + chunkSize, content.limit()));
+            chunks.add(chunk.slice());
+        }
+        return chunks;
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param created the {@code created} value of the row to which the chunks belong
+     * @param chunks the chunks, in order
+     * @return whether and when all have been written
+     */
+    CompletionStage<Void> insert(IRI id, UUID created, List<ByteBuffer> chunks) {
+        CompletableFuture<?>[] inserts = new CompletableFuture<?>[chunks.size()];
+        for (int i = 0; i < inserts.length; i++) {
+            BoundStatement statement = insert.bind().set("identifier", id, IRI.class).setUuid("created", created)
+                            .setInt("chunkIndex", i).setBytesUnsafe("chunk", chunks.get(i));
+            inserts[i] = executeWrite(statement).toCompletableFuture();
+        }
+        return allOf(inserts);
+    }
+
+    /**
+     * Reads chunks one at a time, deserializing each as it arrives, so that no more than one is held at once.
+     * 
+     * @param id the {@link IRI} of a resource
+     * @param created the {@code created} value of the row to which the chunks belong
+     * @param count the number of chunks recorded in that row
+     * @return the RDF in the chunks
+     */
+    public CompletionStage<Dataset> read(IRI id, UUID created, int count) {
+        BoundStatement statement = preparedStatement().bind().set("identifier", id, IRI.class)
+                        .setUuid("created", created).setPageSize(1);
+        // paging blocks, which must not happen on a driver thread
+        return supplyAsync(() -> {
+            try (InputStream chunks = new ChunksInputStream(executeSyncRead(statement).iterator(), count)) {
+                return DatasetColumns.decode(chunks, session.getContext().getCodecRegistry());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, readWorkers);
+    }
+
+    /**
+     * Streams the chunks of a paged query, fetching each page as the last is exhausted.
+     */
+    private static final class ChunksInputStream extends InputStream {
+
+        private final Iterator<Row> rows;
+
+        private final int count;
+
+        private int index = 0;
+
+        private ByteBuffer current = ByteBuffer.allocate(0);
+
+        private ChunksInputStream(Iterator<Row> rows, int count) {
+            this.rows = rows;
+            this.count = count;
+        }
+
+        private boolean next() throws IOException {
+            while (!current.hasRemaining()) {
+                if (index == count) return false;
+                if (!rows.hasNext()) throw new IOException("Found " + index + " of " + count
+                                + " chunks of RDF; the resource may have been replaced while being read!");
+                Row row = rows.next();
+                if (row.getInt("chunkIndex") != index++)
+                    throw new IOException("Chunk " + (index - 1) + " of RDF is missing!");
+                ByteBuffer chunk = row.getBytesUnsafe("chunk");
+                current = chunk == null ? ByteBuffer.allocate(0) : chunk;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return next() ? current.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!next()) return -1;
+            int n = Math.min(len, current.remaining());
+            current.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package edu.si.trellis.query.rdf;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
+
+import java.util.concurrent.CompletionStage;
+
+import org.apache.commons.rdf.api.Dataset;
+
+/**
+ * A query that migrates the RDF in the rows of one table from the legacy N-Quads column to the compact binary column.
+ */
+public class Reencode extends ResourceQuery {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final LazyPreparedStatement update;
+
+    private final String table;
+
+    /**
+     * The clustering column of the table, if any.
+     */
+    private final String clustering;
+
+    private Reencode(QueryContext context, ConsistencyLevel consistency, String table, String clustering) {
+        super(context, "SELECT identifier, " + (clustering != null ? clustering + ", " : "") + "quads FROM " + table
+                        + " ;", consistency);
+        this.table = table;
+        this.clustering = clustering;
+        // only migrate rows untouched since they were scanned, so as never to overwrite newer data
+        this.update = prepare("UPDATE " + table + " SET compactQuads = :compactQuads, quads = null"
+                        + " WHERE identifier = :identifier"
+                        + (clustering != null ? " AND " + clustering + " = :" + clustering : "")
+                        + " IF compactQuads = null AND quads = :quads ;");
+    }
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use
+     * @return a query that migrates the current state of resources
+     */
+    public static Reencode mutable(QueryContext context, ConsistencyLevel consistency) {
+        return new Reencode(context, consistency, MUTABLE_TABLENAME, null);
+    }
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use
+     * @return a query that migrates Mementos
+     */
+    public static Reencode mementos(QueryContext context, ConsistencyLevel consistency) {
+        return new Reencode(context, consistency, MEMENTO_MUTABLE_TABLENAME, "mementomodified");
+    }
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use
+     * @return a query that migrates immutable data
+     */
+    public static Reencode immutable(QueryContext context, ConsistencyLevel consistency) {
+        return new Reencode(context, consistency, IMMUTABLE_TABLENAME, "created");
+    }
+
+    /**
+     * @param context the {@link QueryContext} in which to query
+     * @param consistency the {@link ConsistencyLevel} to use
+     * @return a query that migrates snapshots of immutable data
+     */
+    public static Reencode immutableSnapshots(QueryContext context, ConsistencyLevel consistency) {
+        return new Reencode(context, consistency, IMMUTABLE_SNAPSHOT_TABLENAME, null);
+    }
+
+    /**
+     * @return the table this query migrates
+     */
+    public String table() {
+        return table;
+    }
+
+    /**
+     * Scans the table, blocking to page through it.
+     * 
+     * @return every row in the table
+     */
+    public ResultSet execute() {
+        return executeSyncRead(preparedStatement().bind().setPageSize(PAGE_SIZE));
+    }
+
+    /**
+     * @param row a row from {@link #execute()}
+     * @return whether the row held N-Quads and was migrated
+     */
+    public CompletionStage<Boolean> execute(Row row) {
+        if (row.isNull("quads")) return completedFuture(false);
+        BoundStatement statement = update.bind()
+                        .setBytesUnsafe("identifier", row.getBytesUnsafe("identifier"))
+                        .setString("quads", row.getString("quads"))
+                        .set("compactQuads", row.get("quads", Dataset.class), Dataset.class);
+        if (clustering != null) statement = statement.setBytesUnsafe(clustering, row.getBytesUnsafe(clustering));
+        return executeConditionalWrite(statement);
+    }
+}
@@ -1,9 +1,9 @@
 package edu.si.trellis.query.rdf;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 
 import edu.si.trellis.query.CassandraQuery;
+import edu.si.trellis.query.QueryContext;
 
 /**
  * A query for use by individual resources to retrieve their contents.
@@ -12,13 +12,28 @@ abstract class ResourceQuery extends CassandraQuery {
 
     static final String MUTABLE_TABLENAME = "mutabledata";
 
-    static final String MEMENTO_MUTABLE_TABLENAME = "mementodata";
+    static final String MEMENTO_MUTABLE_TABLENAME = "mementos";
+
+    /**
+     * Mementos as written by earlier versions, clustered by {@code created}.
+     */
+    static final String LEGACY_MEMENTO_TABLENAME = "mementodata";
 
     static final String IMMUTABLE_TABLENAME = "immutabledata";
 
+    static final String IMMUTABLE_SNAPSHOT_TABLENAME = "immutablesnapshots";
+
     static final String BASIC_CONTAINMENT_TABLENAME = "basiccontainment";
 
-    ResourceQuery(CqlSession session, String queryString, ConsistencyLevel consistency) {
-        super(session, queryString, consistency);
+    static final String RDF_CHUNKS_TABLENAME = "rdfchunks";
+
+    static final String MEMENTO_CHUNKS_TABLENAME = "mementochunks";
+
+    static final String MUTABLE_DELTAS_TABLENAME = "mutabledeltas";
+
+    static final String TERM_DICTIONARY_TABLENAME = "termdictionary";
+
+    ResourceQuery(QueryContext context, String queryString, ConsistencyLevel consistency) {
+        super(context, queryString, consistency);
     }
 }
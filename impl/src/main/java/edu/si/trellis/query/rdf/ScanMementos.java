@@ -0,0 +1,33 @@
+package edu.si.trellis.query.rdf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+
+import edu.si.trellis.MutableReadConsistency;
+import edu.si.trellis.query.QueryContext;
+
+import javax.inject.Inject;
+
+/**
+ * A query that scans the keys of every Memento, with what is needed to delete them, through the token ring in order,
+ * so that the Mementos of each resource arrive together, latest first.
+ */
+public class ScanMementos extends ResourceQuery {
+
+    private static final int PAGE_SIZE = 500;
+
+    @Inject
+    public ScanMementos(QueryContext context, @MutableReadConsistency ConsistencyLevel consistency) {
+        super(context, "SELECT identifier, mementomodified, created, rdfChunks, sinceSnapshot, base FROM "
+                        + MEMENTO_MUTABLE_TABLENAME + " ;", consistency);
+    }
+
+    /**
+     * Scans the table, blocking to page through it.
+     *
+     * @return the keys of every Memento
+     */
+    public ResultSet execute() {
+        return executeSyncRead(preparedStatement().bind().setPageSize(PAGE_SIZE));
+    }
+}
@@ -1,10 +1,13 @@
 package edu.si.trellis.query.rdf;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 
 import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.query.QueryContext;
 
 import java.time.Instant;
 import java.util.concurrent.CompletionStage;
@@ -19,18 +22,24 @@ import org.apache.commons.rdf.api.IRI;
 public class Touch extends ResourceQuery {
 
     @Inject
-    public Touch(CqlSession session, @MutableWriteConsistency ConsistencyLevel consistency) {
-        super(session, "UPDATE " + MUTABLE_TABLENAME + " SET modified = :modified WHERE identifier = :identifier",
+    public Touch(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        super(context, "UPDATE " + MUTABLE_TABLENAME
+                        + " USING TIMESTAMP :touched SET modified = :modified WHERE identifier = :identifier",
                         consistency);
     }
 
     /**
+     * The write is timestamped with {@code modified} rather than with when it is sent, so that a touch sent late does
+     * not overwrite a later modified time written meanwhile.
+     *
      * @param modified the new modification time to record
      * @param id the {@link IRI} of the resource to modify
      * @return whether and when the modification succeeds
      */
     public CompletionStage<Void> execute(Instant modified, IRI id) {
+        long touched = SECONDS.toMicros(modified.getEpochSecond()) + NANOSECONDS.toMicros(modified.getNano());
         BoundStatement statement = preparedStatement().bind()
+                        .setLong("touched", touched)
                         .set("modified", modified, Instant.class)
                         .set("identifier", id, IRI.class);
         return executeWrite(statement);
@@ -0,0 +1,63 @@
+package edu.si.trellis.query.rdf;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+
+import edu.si.trellis.MutableWriteConsistency;
+import edu.si.trellis.query.LazyPreparedStatement;
+import edu.si.trellis.query.QueryContext;
+
+import java.time.Instant;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query that updates the summary of the Mementos of a resource, conditionally on the count it replaces, so that
+ * concurrent updates do not lose counts.
+ *
+ * @see GetMementoSummary
+ */
+public class UpdateMementoSummary extends ResourceQuery {
+
+    private final LazyPreparedStatement clear;
+
+    @Inject
+    public UpdateMementoSummary(QueryContext context, @MutableWriteConsistency ConsistencyLevel consistency) {
+        super(context, "UPDATE " + MEMENTO_MUTABLE_TABLENAME
+                        + " SET firstMemento = :first, lastMemento = :last, mementoCount = :count"
+                        + " WHERE identifier = :identifier IF mementoCount = :expected ;", consistency);
+        this.clear = prepare("UPDATE " + MEMENTO_MUTABLE_TABLENAME
+                        + " SET mementoCount = null WHERE identifier = :identifier ;");
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param first the earliest Memento-datetime of {@code id}
+     * @param last the latest Memento-datetime of {@code id}
+     * @param count the number of Mementos of {@code id}
+     * @param expected the count being replaced, or {@code null} if there is none
+     * @return whether the summary was updated, which it is not if the count being replaced has changed
+     */
+    public CompletionStage<Boolean> execute(IRI id, Instant first, Instant last, int count, Integer expected) {
+        BoundStatement statement = preparedStatement().bind()
+                        .set("identifier", id, IRI.class)
+                        .set("first", first, Instant.class)
+                        .set("last", last, Instant.class)
+                        .setInt("count", count);
+        statement = expected == null ? statement.setToNull("expected") : statement.setInt("expected", expected);
+        return executeConditionalWrite(statement);
+    }
+
+    /**
+     * Discards the summary of the Mementos of a resource, so that it is next recounted from the Mementos themselves.
+     *
+     * @param id the {@link IRI} of a resource
+     * @return whether and when the summary has been discarded
+     */
+    public CompletionStage<Void> clear(IRI id) {
+        return executeWrite(clear.bind().set("identifier", id, IRI.class));
+    }
+}
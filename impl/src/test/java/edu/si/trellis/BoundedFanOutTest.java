@@ -0,0 +1,81 @@
+package edu.si.trellis;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedFanOutTest {
+
+    @Test
+    void shouldDeliverEveryResult() {
+        Map<Integer, Integer> results = new ConcurrentHashMap<>();
+        BoundedFanOut.<Integer, Integer> run(asList(1, 2, 3, 4, 5), 2, i -> completedFuture(i * 10), results::put)
+                        .toCompletableFuture().join();
+        assertEquals(5, results.size());
+        results.forEach((k, v) -> assertEquals(k * 10, v.intValue()));
+    }
+
+    @Test
+    void shouldCompleteForNoInputs() {
+        assertTrue(BoundedFanOut.run(Collections.<Integer> emptyList(), 2, i -> completedFuture(i), (i, r) -> {})
+                        .toCompletableFuture().isDone());
+    }
+
+    @Test
+    void shouldNotExceedBound() {
+        List<CompletableFuture<Integer>> pending = new ArrayList<>();
+        List<Integer> delivered = new ArrayList<>();
+        CompletableFuture<Void> done = BoundedFanOut.<Integer, Integer> run(asList(1, 2, 3), 2, i -> {
+            CompletableFuture<Integer> f = new CompletableFuture<>();
+            pending.add(f);
+            return f;
+        }, (i, r) -> delivered.add(r)).toCompletableFuture();
+        assertEquals(2, pending.size(), "Too many operations launched!");
+        pending.get(1).complete(2);
+        assertEquals(asList(2), delivered, "Results should be delivered in order of completion!");
+        assertEquals(3, pending.size(), "Next operation should have launched!");
+        pending.get(0).complete(1);
+        pending.get(2).complete(3);
+        assertTrue(done.isDone());
+        assertEquals(asList(2, 1, 3), delivered);
+    }
+
+    @Test
+    void shouldNotDeepenStackForCompletedResults() {
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++)
+            inputs.add(i);
+        AtomicInteger delivered = new AtomicInteger();
+        BoundedFanOut.<Integer, Integer> run(inputs, 1, i -> completedFuture(i), (i, r) -> delivered.incrementAndGet())
+                        .toCompletableFuture().join();
+        assertEquals(inputs.size(), delivered.get());
+    }
+
+    @Test
+    void shouldFailOnFirstFailure() {
+        CompletableFuture<Integer> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException());
+        CompletableFuture<Void> done = BoundedFanOut.<Integer, Integer> run(asList(1, 2), 1, i -> failure,
+                        (i, r) -> {}).toCompletableFuture();
+        assertThrows(CompletionException.class, done::join);
+    }
+
+    @Test
+    void shouldRequirePositiveBound() {
+        assertThrows(IllegalArgumentException.class,
+                        () -> BoundedFanOut.run(asList(1), 0, i -> completedFuture(i), (i, r) -> {}));
+    }
+}
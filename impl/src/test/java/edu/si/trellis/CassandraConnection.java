@@ -6,15 +6,31 @@ import static edu.si.trellis.DatasetCodec.DATASET_CODEC;
 import static edu.si.trellis.IRICodec.IRI_CODEC;
 import static edu.si.trellis.InputStreamCodec.INPUTSTREAM_CODEC;
 import static java.net.InetSocketAddress.createUnresolved;
+import static java.util.Collections.emptyMap;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.DefaultConsistencyLevel;
 
+import edu.si.trellis.query.ExecutionProfiles;
+import edu.si.trellis.query.QueryContext;
+import edu.si.trellis.query.WriteBatcher;
+import edu.si.trellis.query.rdf.AppendDelta;
+import edu.si.trellis.query.rdf.CompactImmutable;
+import edu.si.trellis.query.rdf.DeleteDeltas;
+import edu.si.trellis.query.rdf.DeleteMementos;
+import edu.si.trellis.query.rdf.GetDeltas;
 import edu.si.trellis.query.rdf.GetFirstMemento;
 import edu.si.trellis.query.rdf.GetMemento;
+import edu.si.trellis.query.rdf.GetMementoSummary;
+import edu.si.trellis.query.rdf.ImmutableRetrieve;
+import edu.si.trellis.query.rdf.LatestMemento;
+import edu.si.trellis.query.rdf.MementoChain;
+import edu.si.trellis.query.rdf.MementoPage;
 import edu.si.trellis.query.rdf.Mementoize;
 import edu.si.trellis.query.rdf.Mementos;
+import edu.si.trellis.query.rdf.ScanMementos;
+import edu.si.trellis.query.rdf.UpdateMementoSummary;
 
 import java.net.InetSocketAddress;
 
@@ -27,22 +43,79 @@ import org.trellisldp.api.IdentifierService;
 class CassandraConnection implements AfterAllCallback, BeforeAllCallback {
 
     private static final String[] CLEANOUT_QUERIES = new String[] { "TRUNCATE metadata ; ", "TRUNCATE mutabledata ; ",
-            "TRUNCATE immutabledata ;", "TRUNCATE binarydata ;", "TRUNCATE mementodata ;" };
+            "TRUNCATE immutabledata ;", "TRUNCATE immutablesnapshots ;", "TRUNCATE binarydata ;", "TRUNCATE mementos ;",
+            "TRUNCATE rdfchunks ;", "TRUNCATE mementochunks ;", "TRUNCATE mutabledeltas ;" };
 
     private static final DefaultConsistencyLevel testConsistency = ONE;
 
+    private static final int compactionThreshold = 5;
+
+    private static final int aclCacheDuration = 10;
+
+    /**
+     * Small enough that tests exercise chunked RDF.
+     */
+    static final int rdfChunkSize = 16 * 1024;
+
+    private static final int deltaCompactionThreshold = 3;
+
+    private static final int touchWindow = 100;
+
+    private static final int writeBatchWindow = 0;
+
+    private static final int timeMapCacheDuration = 10;
+
+    private static final int mementoSnapshotInterval = 3;
+
+    /**
+     * Long enough that every Memento written in a test would collapse, were collapsing done under single copy.
+     */
+    private static final int singleCopyCollapseWindow = 24 * 60 * 60;
+
     private static final Logger log = getLogger(CassandraConnection.class);
 
     private static final String keyspace = "trellis";
 
     private CqlSession session;
 
+    private QueryContext queryContext;
+
     CassandraResourceService resourceService;
 
+    /**
+     * Writes RDF only to Mementos.
+     */
+    CassandraResourceService singleCopyResourceService;
+
     CassandraBinaryService binaryService;
 
+    ImmutableRetrieve immutableRetrieve;
+
+    edu.si.trellis.query.rdf.Get get;
+
+    GetDeltas getDeltas;
+
+    ImmutableCompactor immutableCompactor;
+
     CassandraMementoService mementoService;
 
+    /**
+     * Pairs with {@link #singleCopyResourceService}, skipping unchanged Mementos and collapsing close ones.
+     */
+    CassandraMementoService singleCopyMementoService;
+
+    MementoRetention mementoRetention;
+
+    MementoDeltas mementoDeltas;
+
+    Mementoize mementoize;
+
+    MementoChain mementoChain;
+
+    GetMemento getMemento;
+
+    DeleteMementos deleteMementos;
+
     private static final String contactAddress = System.getProperty("cassandra.contactAddress", "localhost");
 
     private static final Integer contactPort = Integer.getInteger("cassandra.nativeTransportPort", 9042);
@@ -58,26 +131,69 @@ class CassandraConnection implements AfterAllCallback, BeforeAllCallback {
         this.session = builder()
                         .withLocalDatacenter("datacenter1")
                         .addTypeCodecs(INPUTSTREAM_CODEC, IRI_CODEC, DATASET_CODEC)
+                        .addTypeCodecs(new CompactDatasetCodec(new TermDictionaries()))
                         .withKeyspace("trellis")
                         .addContactPoint(socketAddress).build();
-        this.resourceService = new CassandraResourceService(new edu.si.trellis.query.rdf.Delete(session, ONE),
-                        new edu.si.trellis.query.rdf.Get(session, ONE),
-                        new edu.si.trellis.query.rdf.ImmutableInsert(session, testConsistency),
-                        new edu.si.trellis.query.rdf.MutableInsert(session, testConsistency),
-                        new edu.si.trellis.query.rdf.Touch(session, testConsistency),
-                        new edu.si.trellis.query.rdf.ImmutableRetrieve(session, testConsistency),
-                        new edu.si.trellis.query.rdf.BasicContainment(session, testConsistency));
-        resourceService.initializeRoot();
-        this.mementoService = new CassandraMementoService(new Mementos(session, testConsistency),
-                        new Mementoize(session, testConsistency), new GetMemento(session, testConsistency),
-                        new GetFirstMemento(session, testConsistency));
+        this.queryContext = new QueryContext(session, new ExecutionProfiles(emptyMap()),
+                        new WriteBatcher(writeBatchWindow));
+        this.immutableRetrieve = new ImmutableRetrieve(queryContext, testConsistency);
+        this.get = new edu.si.trellis.query.rdf.Get(queryContext, testConsistency);
+        this.getDeltas = new GetDeltas(queryContext, testConsistency);
+        this.immutableCompactor = new ImmutableCompactor(immutableRetrieve,
+                        new CompactImmutable(queryContext, testConsistency), compactionThreshold);
+        this.resourceService = resourceService(false);
+        this.singleCopyResourceService = resourceService(true);
+        this.mementoChain = new MementoChain(queryContext, testConsistency);
+        this.getMemento = new GetMemento(queryContext, testConsistency);
+        this.deleteMementos = new DeleteMementos(queryContext, testConsistency);
+        this.mementoize = new Mementoize(queryContext, testConsistency, rdfChunkSize);
+        this.mementoDeltas = new MementoDeltas(mementoChain, mementoize, mementoSnapshotInterval);
+        this.mementoService = mementoService(false, false, 0);
+        this.singleCopyMementoService = mementoService(true, true, singleCopyCollapseWindow);
+        this.mementoRetention = new MementoRetention(new ScanMementos(queryContext, testConsistency),
+                        new DeleteMementos(queryContext, testConsistency),
+                        new GetMemento(queryContext, testConsistency), mementoDeltas,
+                        new UpdateMementoSummary(queryContext, testConsistency));
         this.binaryService = new CassandraBinaryService((IdentifierService) null, 1024 * 1024,
-                        new edu.si.trellis.query.binary.GetChunkSize(session, testConsistency),
-                        new edu.si.trellis.query.binary.Insert(session, testConsistency),
-                        new edu.si.trellis.query.binary.Delete(session, testConsistency),
-                        new edu.si.trellis.query.binary.Read(session, testConsistency),
-                        new edu.si.trellis.query.binary.ReadRange(session, testConsistency));
+                        new edu.si.trellis.query.binary.GetChunkSize(queryContext, testConsistency),
+                        new edu.si.trellis.query.binary.Insert(queryContext, testConsistency),
+                        new edu.si.trellis.query.binary.Delete(queryContext, testConsistency),
+                        new edu.si.trellis.query.binary.Read(queryContext, testConsistency),
+                        new edu.si.trellis.query.binary.ReadRange(queryContext, testConsistency));
+        queryContext.preparedStatements().awaitAll();
         if (cleanBefore) cleanOut();
+        resourceService.initializeRoot();
+    }
+
+    private CassandraMementoService mementoService(boolean singleCopy, boolean skipUnchanged, int collapseWindow) {
+        return new CassandraMementoService(new Mementos(queryContext, testConsistency),
+                        new Mementoize(queryContext, testConsistency, rdfChunkSize),
+                        new GetMemento(queryContext, testConsistency),
+                        new GetFirstMemento(queryContext, testConsistency),
+                        new MementoPage(queryContext, testConsistency), new TimeMapCache(timeMapCacheDuration),
+                        mementoDeltas, new MementoSuppression(new LatestMemento(queryContext, testConsistency),
+                                        new DeleteMementos(queryContext, testConsistency), skipUnchanged,
+                                        collapseWindow),
+                        new MementoSummaries(new GetMementoSummary(queryContext, testConsistency),
+                                        new UpdateMementoSummary(queryContext, testConsistency)),
+                        singleCopy);
+    }
+
+    private CassandraResourceService resourceService(boolean singleCopy) {
+        return new CassandraResourceService(new edu.si.trellis.query.rdf.Delete(queryContext, ONE),
+                        new edu.si.trellis.query.rdf.Get(queryContext, ONE),
+                        new edu.si.trellis.query.rdf.ImmutableInsert(queryContext, testConsistency),
+                        new edu.si.trellis.query.rdf.MutableInsert(queryContext, testConsistency, rdfChunkSize),
+                        new TouchCoalescer(new edu.si.trellis.query.rdf.Touch(queryContext, testConsistency),
+                                        touchWindow),
+                        immutableRetrieve,
+                        new edu.si.trellis.query.rdf.BasicContainment(queryContext, testConsistency),
+                        immutableCompactor,
+                        new EffectiveAclCache(aclCacheDuration),
+                        new PatchDeltas(getDeltas,
+                                        new AppendDelta(queryContext, testConsistency),
+                                        new DeleteDeltas(queryContext, testConsistency), deltaCompactionThreshold),
+                        new Mementoize(queryContext, testConsistency, rdfChunkSize), singleCopy);
     }
 
     private void cleanOut() {
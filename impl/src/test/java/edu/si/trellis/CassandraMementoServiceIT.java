@@ -1,15 +1,38 @@
 package edu.si.trellis;
 
+import static java.time.temporal.ChronoUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.trellisldp.api.Metadata.builder;
+import static org.trellisldp.vocabulary.Trellis.PreferUserManaged;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+
+import edu.si.trellis.query.rdf.MementoChain;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.CompletionException;
 import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.Quad;
 import org.junit.jupiter.api.Test;
 import org.trellisldp.api.Metadata;
+import org.trellisldp.api.Resource;
 
 class CassandraMementoServiceIT extends CassandraServiceIT {
 
@@ -38,4 +61,328 @@ class CassandraMementoServiceIT extends CassandraServiceIT {
         mementos = connection.mementoService.mementos(id).toCompletableFuture().join();
         assertEquals(2, mementos.size());
     }
+
+    @Test
+    void timeGate() {
+        IRI id = createIRI("http://example.com/id/foo3");
+        IRI ixnModel = createIRI("http://example.com/ixnModel3");
+        @SuppressWarnings("resource")
+        Dataset quads = rdfFactory.createDataset();
+        quads.add(rdfFactory.createQuad(id, ixnModel, id, ixnModel));
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        connection.resourceService.create(meta, quads).toCompletableFuture().join();
+        connection.mementoService.put(connection.resourceService, id).toCompletableFuture().join();
+        waitTwoSeconds();
+        connection.resourceService.replace(meta, quads).toCompletableFuture().join();
+        connection.mementoService.put(connection.resourceService, id).toCompletableFuture().join();
+
+        SortedSet<Instant> mementos = connection.mementoService.mementos(id).toCompletableFuture().join();
+        assertEquals(2, mementos.size());
+        Instant first = mementos.first(), last = mementos.last();
+        assertEquals(first, memento(id, first.minusSeconds(60)), "Time before all Mementos should get the first!");
+        assertEquals(first, memento(id, first), "Wrong Memento at its own datetime!");
+        assertEquals(first, memento(id, last.minusMillis(1)), "Wrong Memento between Mementos!");
+        assertEquals(last, memento(id, last.plusSeconds(60)), "Time after all Mementos should get the last!");
+    }
+
+    @Test
+    void timeMapPages() {
+        IRI id = createIRI("http://example.com/id/foo4");
+        IRI ixnModel = createIRI("http://example.com/ixnModel4");
+        @SuppressWarnings("resource")
+        Dataset quads = rdfFactory.createDataset();
+        quads.add(rdfFactory.createQuad(id, ixnModel, id, ixnModel));
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        connection.resourceService.create(meta, quads).toCompletableFuture().join();
+        connection.mementoService.put(connection.resourceService, id).toCompletableFuture().join();
+        for (int i = 0; i < 2; i++) {
+            waitTwoSeconds();
+            connection.resourceService.replace(meta, quads).toCompletableFuture().join();
+            connection.mementoService.put(connection.resourceService, id).toCompletableFuture().join();
+        }
+        SortedSet<Instant> all = connection.mementoService.mementos(id).toCompletableFuture().join();
+        assertEquals(3, all.size());
+
+        SortedSet<Instant> page = connection.mementoService.mementos(id, Instant.EPOCH, Instant.now(), 2)
+                        .toCompletableFuture().join();
+        assertEquals(2, page.size());
+        assertEquals(all.tailSet(page.first()), page, "First page should hold the latest Mementos!");
+        page = connection.mementoService.mementos(id, Instant.EPOCH, page.first().minusSeconds(1), 2)
+                        .toCompletableFuture().join();
+        assertEquals(1, page.size(), "Last page should come back short!");
+        assertEquals(all.first(), page.first(), "Wrong second page!");
+    }
+
+    @Test
+    void mementoDeltas() {
+        IRI id = createIRI("http://example.com/id/foo5");
+        IRI ixnModel = createIRI("http://example.com/ixnModel5");
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        @SuppressWarnings("resource")
+        Dataset quads = rdfFactory.createDataset();
+        for (int i = 0; i < 10; i++)
+            quads.add(rdfFactory.createQuad(PreferUserManaged, id, ixnModel, rdfFactory.createLiteral("value " + i)));
+        connection.resourceService.create(meta, quads).toCompletableFuture().join();
+        connection.mementoService.put(connection.resourceService, id).toCompletableFuture().join();
+        // more versions than the snapshot interval, each differing by a quad
+        List<Set<Quad>> versions = new ArrayList<>();
+        versions.add(quadsOf(quads));
+        for (int v = 0; v < 4; v++) {
+            waitTwoSeconds();
+            quads.add(rdfFactory.createQuad(PreferUserManaged, id, ixnModel,
+                            rdfFactory.createLiteral("version " + v)));
+            quads.remove(rdfFactory.createQuad(PreferUserManaged, id, ixnModel,
+                            rdfFactory.createLiteral("value " + v)));
+            connection.resourceService.replace(meta, quads).toCompletableFuture().join();
+            connection.mementoService.put(connection.resourceService, id).toCompletableFuture().join();
+            versions.add(quadsOf(quads));
+        }
+
+        SortedSet<Instant> mementos = connection.mementoService.mementos(id).toCompletableFuture().join();
+        assertEquals(versions.size(), mementos.size());
+        Iterator<Set<Quad>> expected = versions.iterator();
+        for (Instant time : mementos) {
+            Resource memento = connection.mementoService.get(id, time).toCompletableFuture().join();
+            assertEquals(expected.next(), quadsOf(memento.dataset()), "Wrong RDF in Memento at " + time + "!");
+        }
+    }
+
+    @Test
+    void retention() {
+        IRI id = createIRI("http://example.com/id/foo6");
+        IRI ixnModel = createIRI("http://example.com/ixnModel6");
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        @SuppressWarnings("resource")
+        Dataset quads = rdfFactory.createDataset();
+        for (int i = 0; i < 10; i++)
+            quads.add(rdfFactory.createQuad(PreferUserManaged, id, ixnModel, rdfFactory.createLiteral("value " + i)));
+        connection.resourceService.create(meta, quads).toCompletableFuture().join();
+        connection.mementoService.put(connection.resourceService, id).toCompletableFuture().join();
+        for (int v = 0; v < 2; v++) {
+            waitTwoSeconds();
+            quads.add(rdfFactory.createQuad(PreferUserManaged, id, ixnModel, rdfFactory.createLiteral("v" + v)));
+            connection.resourceService.replace(meta, quads).toCompletableFuture().join();
+            connection.mementoService.put(connection.resourceService, id).toCompletableFuture().join();
+        }
+        Set<Quad> latest = quadsOf(quads);
+        SortedSet<Instant> before = connection.mementoService.mementos(id).toCompletableFuture().join();
+        assertEquals(3, before.size());
+
+        // keep the latest two, the earlier of which was written as a delta against the one dropped
+        Map<String, MementoRetentionPolicy> overrides = singletonMap(id.getIRIString(),
+                        MementoRetentionPolicy.parse("keepLast=2"));
+        connection.mementoRetention.enforce(MementoRetentionPolicy.KEEP_ALL, overrides, 1000).toCompletableFuture()
+                        .join();
+        SortedSet<Instant> after = connection.mementoService.mementos(id, Instant.EPOCH, Instant.now(), 10)
+                        .toCompletableFuture().join();
+        assertEquals(before.tailSet(before.first().plusSeconds(1)), after, "Wrong Mementos kept!");
+        Resource last = connection.mementoService.get(id, after.last()).toCompletableFuture().join();
+        assertEquals(latest, quadsOf(last.dataset()), "Wrong RDF in kept Memento!");
+    }
+
+    @Test
+    void singleCopy() {
+        IRI id = createIRI("http://example.com/id/foo7");
+        IRI ixnModel = createIRI("http://example.com/ixnModel7");
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        @SuppressWarnings("resource")
+        Dataset quads = rdfFactory.createDataset();
+        quads.add(rdfFactory.createQuad(PreferUserManaged, id, ixnModel, rdfFactory.createLiteral("first")));
+        connection.singleCopyResourceService.create(meta, quads).toCompletableFuture().join();
+        Set<Quad> first = quadsOf(quads);
+        waitTwoSeconds();
+        quads.add(rdfFactory.createQuad(PreferUserManaged, id, ixnModel, rdfFactory.createLiteral("second")));
+        connection.singleCopyResourceService.replace(meta, quads).toCompletableFuture().join();
+
+        Resource current = connection.singleCopyResourceService.get(id).toCompletableFuture().join();
+        assertEquals(quadsOf(quads), quadsOf(current.dataset()), "Wrong RDF read through Memento!");
+        SortedSet<Instant> mementos = connection.mementoService.mementos(id, Instant.EPOCH, Instant.now(), 10)
+                        .toCompletableFuture().join();
+        assertEquals(2, mementos.size(), "Each version should have been written as a Memento!");
+        Resource earlier = connection.mementoService.get(id, mementos.first()).toCompletableFuture().join();
+        assertEquals(first, quadsOf(earlier.dataset()), "Wrong RDF in earlier Memento!");
+    }
+
+    @Test
+    void summary() {
+        IRI id = createIRI("http://example.com/id/foo8");
+        IRI ixnModel = createIRI("http://example.com/ixnModel8");
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        @SuppressWarnings("resource")
+        Dataset quads = rdfFactory.createDataset();
+        quads.add(rdfFactory.createQuad(PreferUserManaged, id, ixnModel, rdfFactory.createLiteral("value")));
+        assertFalse(connection.mementoService.summary(id).toCompletableFuture().join().isPresent(),
+                        "No Mementos should mean no summary!");
+        connection.resourceService.create(meta, quads).toCompletableFuture().join();
+        connection.mementoService.put(connection.resourceService, id).toCompletableFuture().join();
+        for (int i = 0; i < 2; i++) {
+            waitTwoSeconds();
+            connection.resourceService.replace(meta, quads).toCompletableFuture().join();
+            connection.mementoService.put(connection.resourceService, id).toCompletableFuture().join();
+        }
+        SortedSet<Instant> mementos = connection.mementoService.mementos(id, Instant.EPOCH, Instant.now(), 10)
+                        .toCompletableFuture().join();
+        MementoSummary summary = connection.mementoService.summary(id).toCompletableFuture().join().get();
+        assertEquals(mementos.first(), summary.first(), "Wrong earliest Memento!");
+        assertEquals(mementos.last(), summary.last(), "Wrong latest Memento!");
+        assertEquals(3, summary.count(), "Wrong number of Mementos!");
+    }
+
+    @Test
+    void outOfOrderMementos() {
+        IRI id = createIRI("http://example.com/id/foo9");
+        IRI ixnModel = createIRI("http://example.com/ixnModel9");
+        Instant t0 = Instant.now().truncatedTo(SECONDS).minusSeconds(300), t10 = t0.plusSeconds(10),
+                        t20 = t0.plusSeconds(20), t30 = t0.plusSeconds(30);
+        putMemento(id, ixnModel, t0, 0);
+        putMemento(id, ixnModel, t20, 2);
+        // written late, and so passed over by the Mementos after it
+        putMemento(id, ixnModel, t10, 1);
+        putMemento(id, ixnModel, t30, 3);
+
+        List<Instant> chain = connection.mementoChain.execute(id, t30).toCompletableFuture().join().stream()
+                        .map(row -> row.get("mementomodified", Instant.class)).collect(toList());
+        assertEquals(asList(t30, t20, t0), chain, "Wrong Mementos on which the latest depends!");
+        Instant[] times = { t0, t10, t20, t30 };
+        for (int v = 0; v < times.length; v++) {
+            Resource memento = connection.mementoService.get(id, times[v]).toCompletableFuture().join();
+            assertEquals(quadsOf(version(id, ixnModel, v)), quadsOf(memento.dataset()),
+                            "Wrong RDF in Memento at " + times[v] + "!");
+        }
+    }
+
+    @Test
+    void snapshotOfDelta() {
+        IRI id = createIRI("http://example.com/id/foo10");
+        IRI ixnModel = createIRI("http://example.com/ixnModel10");
+        Instant t0 = Instant.now().truncatedTo(SECONDS).minusSeconds(300), t10 = t0.plusSeconds(10);
+        putMemento(id, ixnModel, t0, 0);
+        putMemento(id, ixnModel, t10, 1);
+        List<Row> chain = connection.mementoChain.execute(id, t10).toCompletableFuture().join();
+        assertTrue(MementoChain.isDelta(chain.get(0)), "Memento should have been written as a delta!");
+
+        // once written whole, the Memento no longer needs the one before it
+        connection.mementoDeltas.snapshot(id, t10, connection.getMemento::readChunks).toCompletableFuture().join();
+        connection.deleteMementos.execute(id, t0, t0).toCompletableFuture().join();
+        chain = connection.mementoChain.execute(id, t10).toCompletableFuture().join();
+        assertEquals(1, chain.size(), "Memento should have been written whole!");
+        assertFalse(MementoChain.isDelta(chain.get(0)), "Memento should have been written whole!");
+        Resource memento = connection.mementoService.get(id, t10).toCompletableFuture().join();
+        assertEquals(quadsOf(version(id, ixnModel, 1)), quadsOf(memento.dataset()), "Wrong RDF in snapshot!");
+    }
+
+    @Test
+    void deltaWithoutSnapshot() {
+        IRI id = createIRI("http://example.com/id/foo11");
+        IRI ixnModel = createIRI("http://example.com/ixnModel11");
+        Instant t0 = Instant.now().truncatedTo(SECONDS).minusSeconds(300), t10 = t0.plusSeconds(10);
+        putMemento(id, ixnModel, t0, 0);
+        putMemento(id, ixnModel, t10, 1);
+        connection.deleteMementos.execute(id, t0, t0).toCompletableFuture().join();
+
+        CompletionException e = assertThrows(CompletionException.class,
+                        () -> connection.mementoService.get(id, t10).toCompletableFuture().join());
+        assertTrue(e.getCause() instanceof IllegalStateException, "Missing snapshot should fail the rebuild!");
+    }
+
+    @Test
+    void singleCopyReadsThroughPointer() {
+        IRI id = createIRI("http://example.com/id/foo12");
+        IRI ixnModel = createIRI("http://example.com/ixnModel12");
+        connection.singleCopyResourceService.create(builder(id).interactionModel(ixnModel).build(),
+                        version(id, ixnModel, 0)).toCompletableFuture().join();
+        Row row = stored(id);
+        Instant pointer = DatasetColumns.mementoRdf(row);
+        assertNotNull(pointer, "Row should name the Memento holding its RDF!");
+        assertEquals(0, DatasetColumns.readContent(row).size(), "RDF should not have been written to the row!");
+        assertEquals(0, DatasetColumns.chunks(row), "RDF should not have been written to the row!");
+
+        // rewrite the Memento named, and the resource should follow it
+        Dataset rewritten = version(id, ixnModel, 4);
+        connection.mementoize.execute(ixnModel, null, null, rewritten, null, pointer, null, Uuids.timeBased(), id)
+                        .toCompletableFuture().join();
+        Resource current = connection.singleCopyResourceService.get(id).toCompletableFuture().join();
+        assertEquals(quadsOf(rewritten), quadsOf(current.dataset()), "RDF should be read from the Memento named!");
+    }
+
+    @Test
+    void singleCopyPutWritesOnlySummary() {
+        IRI id = createIRI("http://example.com/id/foo13");
+        IRI ixnModel = createIRI("http://example.com/ixnModel13");
+        connection.singleCopyResourceService.create(builder(id).interactionModel(ixnModel).build(),
+                        version(id, ixnModel, 0)).toCompletableFuture().join();
+        Instant pointer = DatasetColumns.mementoRdf(stored(id));
+
+        // a put of other RDF at the same time must leave the Memento written by the resource service alone
+        Resource other = new CassandraResource(id, ixnModel, false, null, null, null, pointer,
+                        version(id, ixnModel, 5));
+        connection.singleCopyMementoService.put(other).toCompletableFuture().join();
+        Resource memento = connection.singleCopyMementoService.get(id, pointer).toCompletableFuture().join();
+        assertEquals(quadsOf(version(id, ixnModel, 0)), quadsOf(memento.dataset()), "Memento should be unchanged!");
+        MementoSummary summary = connection.singleCopyMementoService.summary(id).toCompletableFuture().join().get();
+        assertEquals(1, summary.count(), "Wrong number of Mementos!");
+        assertEquals(pointer, summary.last(), "Wrong latest Memento!");
+    }
+
+    @Test
+    void singleCopyPointerSurvivesCollapseAndRetention() {
+        IRI id = createIRI("http://example.com/id/foo14");
+        IRI ixnModel = createIRI("http://example.com/ixnModel14");
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        connection.singleCopyResourceService.create(meta, version(id, ixnModel, 0)).toCompletableFuture().join();
+        connection.singleCopyMementoService.put(connection.singleCopyResourceService, id).toCompletableFuture().join();
+        for (int v = 1; v < 3; v++) {
+            waitTwoSeconds();
+            connection.singleCopyResourceService.replace(meta, version(id, ixnModel, v)).toCompletableFuture()
+                            .join();
+            connection.singleCopyMementoService.put(connection.singleCopyResourceService, id).toCompletableFuture()
+                            .join();
+        }
+        // all within one collapse window, yet none collapsed, for each may be named by the row
+        SortedSet<Instant> mementos = connection.singleCopyMementoService.mementos(id, Instant.EPOCH, Instant.now(),
+                        10).toCompletableFuture().join();
+        assertEquals(3, mementos.size(), "No Memento should have been collapsed under single copy!");
+        assertEquals(mementos.last(), DatasetColumns.mementoRdf(stored(id)), "Row should name the latest Memento!");
+
+        Map<String, MementoRetentionPolicy> overrides = singletonMap(id.getIRIString(),
+                        MementoRetentionPolicy.parse("keepLast=1"));
+        connection.mementoRetention.enforce(MementoRetentionPolicy.KEEP_ALL, overrides, 1000).toCompletableFuture()
+                        .join();
+        SortedSet<Instant> kept = connection.singleCopyMementoService.mementos(id, Instant.EPOCH, Instant.now(), 10)
+                        .toCompletableFuture().join();
+        assertEquals(singleton(mementos.last()), kept, "Only the Memento named by the row should have been kept!");
+        Resource current = connection.singleCopyResourceService.get(id).toCompletableFuture().join();
+        assertEquals(quadsOf(version(id, ixnModel, 2)), quadsOf(current.dataset()), "Wrong RDF after retention!");
+    }
+
+    private Row stored(IRI id) {
+        return connection.get.execute(id).toCompletableFuture().join().one();
+    }
+
+    /**
+     * @return ten quads, the first {@code v} of them changed
+     */
+    @SuppressWarnings("resource")
+    private Dataset version(IRI id, IRI ixnModel, int v) {
+        Dataset quads = rdfFactory.createDataset();
+        for (int i = 0; i < 10; i++)
+            quads.add(rdfFactory.createQuad(PreferUserManaged, id, ixnModel,
+                            rdfFactory.createLiteral((i < v ? "version " : "value ") + i)));
+        return quads;
+    }
+
+    private void putMemento(IRI id, IRI ixnModel, Instant time, int v) {
+        Resource resource = new CassandraResource(id, ixnModel, false, null, null, null, time,
+                        version(id, ixnModel, v));
+        connection.mementoService.put(resource).toCompletableFuture().join();
+    }
+
+    private static Set<Quad> quadsOf(Dataset dataset) {
+        return dataset.stream().collect(toSet());
+    }
+
+    private Instant memento(IRI id, Instant time) {
+        return connection.mementoService.get(id, time).toCompletableFuture().join().getModified()
+                        .truncatedTo(SECONDS);
+    }
 }
@@ -1,10 +1,28 @@
 package edu.si.trellis;
 
+import static java.util.Collections.singleton;
+import static java.util.stream.Collectors.toSet;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.trellisldp.api.Metadata.builder;
+import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
+import static org.trellisldp.vocabulary.Trellis.PreferAccessControl;
+import static org.trellisldp.vocabulary.Trellis.PreferAudit;
+import static org.trellisldp.vocabulary.Trellis.PreferUserManaged;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
 
 import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.Quad;
@@ -51,6 +69,330 @@ class CassandraResourceServiceIT extends CassandraServiceIT implements ResourceS
         assertTrue(modified.compareTo(newModified) < 0);
     }
 
+    @Test
+    void bulkRetrieval() {
+        IRI ixnModel = createIRI("http://example.com/ixnModel");
+        Set<IRI> ids = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            IRI id = createIRI("http://example.com/id/bulk" + i);
+            ids.add(id);
+            Metadata meta = builder(id).interactionModel(ixnModel).build();
+            connection.resourceService.create(meta, null).toCompletableFuture().join();
+        }
+        IRI missing = createIRI("http://example.com/id/bulkMissing");
+        Set<IRI> toRetrieve = new HashSet<>(ids);
+        toRetrieve.add(missing);
+
+        Map<IRI, Resource> retrieved = new ConcurrentHashMap<>();
+        connection.resourceService.getAll(toRetrieve, 3, retrieved::put).toCompletableFuture().join();
+        assertEquals(toRetrieve, retrieved.keySet());
+        assertEquals(MISSING_RESOURCE, retrieved.get(missing));
+        ids.forEach(id -> assertEquals(id, retrieved.get(id).getIdentifier()));
+    }
+
+    @Test
+    void graphSelection() {
+        IRI id = createIRI("http://example.com/id/selective");
+        IRI ixnModel = createIRI("http://example.com/ixnModel");
+        @SuppressWarnings("resource")
+        Dataset quads = rdfFactory.createDataset();
+        Quad content = rdfFactory.createQuad(PreferUserManaged, id, ixnModel, id);
+        Quad acl = rdfFactory.createQuad(PreferAccessControl, id, ixnModel, id);
+        quads.add(content);
+        quads.add(acl);
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        connection.resourceService.create(meta, quads).toCompletableFuture().join();
+
+        Set<Quad> all = connection.resourceService.get(id).toCompletableFuture().join().stream().collect(toSet());
+        assertTrue(all.contains(content) && all.contains(acl));
+        Resource aclOnly = connection.resourceService.get(id, GraphSelector.ACL).toCompletableFuture().join();
+        assertEquals(singleton(acl), aclOnly.stream().collect(toSet()));
+        Resource contentOnly = connection.resourceService.get(id, GraphSelector.CONTENT).toCompletableFuture().join();
+        assertFalse(contentOnly.stream().anyMatch(acl::equals));
+        assertTrue(contentOnly.stream().anyMatch(content::equals));
+        Resource metadataOnly = connection.resourceService.get(id, GraphSelector.METADATA).toCompletableFuture().join();
+        assertEquals(ixnModel, metadataOnly.getInteractionModel());
+        assertEquals(0, metadataOnly.stream().count());
+    }
+
+    @Test
+    void effectiveAcl() {
+        IRI ixnModel = createIRI("http://example.com/ixnModel");
+        IRI parent = createIRI("http://example.com/id/governing");
+        IRI child = createIRI("http://example.com/id/governing/child");
+        IRI grandchild = createIRI("http://example.com/id/governing/child/grandchild");
+        @SuppressWarnings("resource")
+        Dataset acl = rdfFactory.createDataset();
+        acl.add(rdfFactory.createQuad(PreferAccessControl, parent, ixnModel, parent));
+        connection.resourceService.create(builder(parent).interactionModel(ixnModel).build(), acl)
+                        .toCompletableFuture().join();
+        connection.resourceService.create(builder(child).interactionModel(ixnModel).container(parent).build(), null)
+                        .toCompletableFuture().join();
+        connection.resourceService.create(builder(grandchild).interactionModel(ixnModel).container(child).build(),
+                        null).toCompletableFuture().join();
+
+        Resource governing = connection.resourceService.getEffectiveAcl(grandchild).toCompletableFuture().join();
+        assertEquals(parent, governing.getIdentifier());
+        assertTrue(governing.hasAcl());
+
+        // removing the ACL must be seen at once
+        connection.resourceService.replace(builder(parent).interactionModel(ixnModel).build(), null)
+                        .toCompletableFuture().join();
+        governing = connection.resourceService.getEffectiveAcl(grandchild).toCompletableFuture().join();
+        assertEquals(parent, governing.getIdentifier());
+        assertFalse(governing.hasAcl());
+    }
+
+    @Test
+    void chunkedRdf() {
+        IRI id = createIRI("http://example.com/id/large");
+        IRI ixnModel = createIRI("http://example.com/ixnModel");
+        @SuppressWarnings("resource")
+        Dataset data = rdfFactory.createDataset();
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            padding.append("padding ");
+        for (int i = 0; i < 500; i++)
+            data.add(rdfFactory.createQuad(PreferUserManaged, id, createIRI("http://example.com/p"),
+                            rdfFactory.createLiteral(padding.toString() + i)));
+        Quad aclQuad = rdfFactory.createQuad(PreferAccessControl, id, ixnModel, id);
+        data.add(aclQuad);
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        connection.resourceService.create(meta, data).toCompletableFuture().join();
+
+        Resource large = connection.resourceService.get(id).toCompletableFuture().join();
+        assertEquals(501, large.stream().count());
+        assertTrue(large.stream().anyMatch(aclQuad::equals));
+        Resource acl = connection.resourceService.get(id, GraphSelector.ACL).toCompletableFuture().join();
+        assertEquals(singleton(aclQuad), acl.stream().collect(toSet()));
+
+        // a smaller replacement is written in the row
+        @SuppressWarnings("resource")
+        Dataset small = rdfFactory.createDataset();
+        small.add(aclQuad);
+        connection.resourceService.replace(meta, small).toCompletableFuture().join();
+        assertEquals(1, connection.resourceService.get(id).toCompletableFuture().join().stream().count());
+    }
+
+    @Test
+    void patchDeltas() {
+        IRI id = createIRI("http://example.com/id/patched");
+        IRI ixnModel = createIRI("http://example.com/ixnModel");
+        IRI p = createIRI("http://example.com/p");
+        @SuppressWarnings("resource")
+        Dataset data = rdfFactory.createDataset();
+        for (int i = 0; i < 20; i++)
+            data.add(rdfFactory.createQuad(PreferUserManaged, id, p, rdfFactory.createLiteral("value" + i)));
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        connection.resourceService.create(meta, data).toCompletableFuture().join();
+
+        // enough small edits to be stored as deltas and then compacted
+        for (int i = 0; i < 5; i++) {
+            data.remove(rdfFactory.createQuad(PreferUserManaged, id, p, rdfFactory.createLiteral("value" + i)));
+            data.add(rdfFactory.createQuad(PreferUserManaged, id, p, rdfFactory.createLiteral("patched" + i)));
+            connection.resourceService.replace(meta, data).toCompletableFuture().join();
+            Resource patched = connection.resourceService.get(id).toCompletableFuture().join();
+            assertEquals(data.stream().collect(toSet()), patched.stream().collect(toSet()));
+        }
+    }
+
+    @Test
+    void deltasAreAppliedAndThenCompacted() {
+        IRI id = createIRI("http://example.com/id/delta");
+        Metadata meta = builder(id).interactionModel(createIRI("http://example.com/ixnModel")).build();
+        @SuppressWarnings("resource")
+        Dataset data = values(id, 20);
+        connection.resourceService.create(meta, data).toCompletableFuture().join();
+
+        // below the threshold, each small replacement is a delta applied on read
+        for (int i = 1; i <= 2; i++) {
+            edit(id, data, i);
+            connection.resourceService.replace(meta, data).toCompletableFuture().join();
+            assertEquals(i, recordedDeltas(id));
+            assertEquals(i, storedDeltas(id));
+            assertEquals(data.stream().collect(toSet()), stored(id));
+        }
+
+        // at the threshold, the replacement is written whole and the deltas it supersedes are discarded
+        edit(id, data, 3);
+        connection.resourceService.replace(meta, data).toCompletableFuture().join();
+        assertEquals(0, recordedDeltas(id));
+        assertEquals(0, storedDeltas(id));
+        assertEquals(data.stream().collect(toSet()), stored(id));
+    }
+
+    @Test
+    void aclChangeIsWrittenWhole() {
+        IRI id = createIRI("http://example.com/id/deltaAcl");
+        IRI ixnModel = createIRI("http://example.com/ixnModel");
+        Metadata meta = builder(id).interactionModel(ixnModel).build();
+        @SuppressWarnings("resource")
+        Dataset data = values(id, 20);
+        Quad acl = rdfFactory.createQuad(PreferAccessControl, id, ixnModel, id);
+        data.add(acl);
+        connection.resourceService.create(meta, data).toCompletableFuture().join();
+
+        data.remove(acl);
+        data.add(rdfFactory.createQuad(PreferAccessControl, id, ixnModel, ixnModel));
+        connection.resourceService.replace(meta, data).toCompletableFuture().join();
+        assertEquals(0, recordedDeltas(id));
+        assertEquals(0, storedDeltas(id));
+        assertEquals(data.stream().collect(toSet()), stored(id));
+    }
+
+    @Test
+    void blankNodesAreWrittenWhole() {
+        IRI id = createIRI("http://example.com/id/deltaBlank");
+        IRI p = createIRI("http://example.com/p");
+        Metadata meta = builder(id).interactionModel(createIRI("http://example.com/ixnModel")).build();
+        @SuppressWarnings("resource")
+        Dataset data = values(id, 20);
+        data.add(rdfFactory.createQuad(PreferUserManaged, id, p, rdfFactory.createBlankNode()));
+        connection.resourceService.create(meta, data).toCompletableFuture().join();
+
+        edit(id, data, 1);
+        connection.resourceService.replace(meta, data).toCompletableFuture().join();
+        assertEquals(0, recordedDeltas(id));
+        assertEquals(0, storedDeltas(id));
+        assertEquals(data.size(), stored(id).size());
+    }
+
+    @Test
+    void deleteDropsDeltas() {
+        IRI id = createIRI("http://example.com/id/deltaDeleted");
+        Metadata meta = builder(id).interactionModel(createIRI("http://example.com/ixnModel")).build();
+        @SuppressWarnings("resource")
+        Dataset data = values(id, 20);
+        connection.resourceService.create(meta, data).toCompletableFuture().join();
+        edit(id, data, 1);
+        connection.resourceService.replace(meta, data).toCompletableFuture().join();
+        assertEquals(1, storedDeltas(id));
+
+        connection.resourceService.delete(meta).toCompletableFuture().join();
+        assertEquals(0, storedDeltas(id));
+        assertEquals(MISSING_RESOURCE, connection.resourceService.get(id).toCompletableFuture().join());
+    }
+
+    @SuppressWarnings("resource")
+    private Dataset values(IRI id, int count) {
+        Dataset data = rdfFactory.createDataset();
+        for (int i = 0; i < count; i++)
+            data.add(rdfFactory.createQuad(PreferUserManaged, id, createIRI("http://example.com/p"),
+                            rdfFactory.createLiteral("value" + i)));
+        return data;
+    }
+
+    private void edit(IRI id, Dataset data, int i) {
+        IRI p = createIRI("http://example.com/p");
+        data.remove(rdfFactory.createQuad(PreferUserManaged, id, p, rdfFactory.createLiteral("value" + i)));
+        data.add(rdfFactory.createQuad(PreferUserManaged, id, p, rdfFactory.createLiteral("edited" + i)));
+    }
+
+    private Set<Quad> stored(IRI id) {
+        return connection.resourceService.get(id).toCompletableFuture().join().stream().collect(toSet());
+    }
+
+    private int recordedDeltas(IRI id) {
+        return DatasetColumns.deltas(connection.get.execute(id).toCompletableFuture().join().one());
+    }
+
+    private long storedDeltas(IRI id) {
+        return connection.getDeltas.execute(id, Uuids.startOf(0)).thenApply(AsyncResultSetUtils::stream)
+                        .toCompletableFuture().join().count();
+    }
+
+    @Test
+    void immutableCompaction() {
+        IRI id = createIRI("http://example.com/id/audited");
+        IRI p = createIRI("http://example.com/p");
+        Set<Quad> audit = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            @SuppressWarnings("resource")
+            Dataset data = rdfFactory.createDataset();
+            Quad quad = rdfFactory.createQuad(PreferAudit, id, p, rdfFactory.createLiteral("event" + i));
+            data.add(quad);
+            audit.add(quad);
+            connection.resourceService.add(id, data).toCompletableFuture().join();
+        }
+        Instant through = Instant.now();
+        connection.immutableCompactor.compact(id, through).toCompletableFuture().join();
+
+        // everything is now read from the snapshot
+        AtomicInteger uncompacted = new AtomicInteger(-1);
+        Set<Quad> snapshot = connection.immutableRetrieve.execute(id, Instant.now(), uncompacted::set)
+                        .toCompletableFuture().join().collect(toSet());
+        assertEquals(0, uncompacted.get());
+        assertEquals(audit, snapshot);
+        assertEquals(audit, connection.immutableRetrieve.execute(id, through).toCompletableFuture().join()
+                        .collect(toSet()));
+
+        // later rows are read after the snapshot
+        waitTwoSeconds();
+        @SuppressWarnings("resource")
+        Dataset later = rdfFactory.createDataset();
+        Quad laterQuad = rdfFactory.createQuad(PreferAudit, id, p, rdfFactory.createLiteral("later"));
+        later.add(laterQuad);
+        connection.resourceService.add(id, later).toCompletableFuture().join();
+        audit.add(laterQuad);
+        Set<Quad> all = connection.immutableRetrieve.execute(id, Instant.now(), uncompacted::set)
+                        .toCompletableFuture().join().collect(toSet());
+        assertEquals(1, uncompacted.get());
+        assertEquals(audit, all);
+    }
+
+    @Test
+    void competingCompactions() {
+        IRI id = createIRI("http://example.com/id/compacted");
+        IRI ixnModel = createIRI("http://example.com/ixnModel");
+        IRI p = createIRI("http://example.com/p");
+        connection.resourceService.create(builder(id).interactionModel(ixnModel).build(), null)
+                        .toCompletableFuture().join();
+        Set<Quad> audit = new HashSet<>();
+        for (int i = 0; i < 6; i++)
+            audit(id, p, "early" + i, audit);
+        Instant earlier = Instant.now();
+        for (int i = 0; i < 6; i++)
+            audit(id, p, "middle" + i, audit);
+        Instant later = Instant.now();
+
+        // a node compacting through an earlier time, finishing last, must not undo the later compaction
+        connection.immutableCompactor.compact(id, later).toCompletableFuture().join();
+        connection.immutableCompactor.compact(id, earlier).toCompletableFuture().join();
+        for (int i = 0; i < 3; i++)
+            audit(id, p, "late" + i, audit);
+
+        Resource resource = connection.resourceService.get(id).toCompletableFuture().join();
+        assertEquals(audit, resource.stream().filter(q -> q.getGraphName().equals(Optional.of(PreferAudit)))
+                        .collect(toSet()));
+    }
+
+    private void audit(IRI id, IRI p, String event, Set<Quad> audit) {
+        @SuppressWarnings("resource")
+        Dataset data = rdfFactory.createDataset();
+        Quad quad = rdfFactory.createQuad(PreferAudit, id, p, rdfFactory.createLiteral(event));
+        data.add(quad);
+        audit.add(quad);
+        connection.resourceService.add(id, data).toCompletableFuture().join();
+    }
+
+    @Test
+    void ancestorRetrieval() {
+        IRI ixnModel = createIRI("http://example.com/ixnModel");
+        IRI parent = createIRI(TRELLIS_DATA_PREFIX + "ancestry");
+        IRI child = createIRI(TRELLIS_DATA_PREFIX + "ancestry/child");
+        IRI grandchild = createIRI(TRELLIS_DATA_PREFIX + "ancestry/child/grandchild");
+        connection.resourceService.create(builder(parent).interactionModel(ixnModel).build(), null)
+                        .toCompletableFuture().join();
+
+        List<Resource> ancestors = connection.resourceService.getAncestors(grandchild, GraphSelector.METADATA)
+                        .toCompletableFuture().join();
+        assertEquals(3, ancestors.size());
+        assertEquals(MISSING_RESOURCE, ancestors.get(0));
+        assertEquals(parent, ancestors.get(1).getIdentifier());
+        assertEquals(createIRI(TRELLIS_DATA_PREFIX), ancestors.get(2).getIdentifier());
+        assertEquals(MISSING_RESOURCE, connection.resourceService.getEffectiveAcl(child).toCompletableFuture().join());
+    }
+
     @Override
     public ResourceService getResourceService() {
         return connection.resourceService;
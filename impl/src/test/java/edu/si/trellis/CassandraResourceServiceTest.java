@@ -0,0 +1,46 @@
+package edu.si.trellis;
+
+import static edu.si.trellis.CassandraResourceService.ancestors;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+
+class CassandraResourceServiceTest {
+
+    RDF rdf = new SimpleRDF();
+
+    private IRI iri(String path) {
+        return rdf.createIRI(TRELLIS_DATA_PREFIX + path);
+    }
+
+    @Test
+    void ancestorsAreNearestFirst() {
+        assertEquals(asList(iri("a/b"), iri("a"), iri("")), ancestors(iri("a/b/c")));
+    }
+
+    @Test
+    void trailingSlashIsIgnored() {
+        assertEquals(asList(iri("a"), iri("")), ancestors(iri("a/b/")));
+    }
+
+    @Test
+    void rootHasNoAncestors() {
+        assertTrue(ancestors(iri("")).isEmpty());
+    }
+
+    @Test
+    void childOfRoot() {
+        assertEquals(asList(iri("")), ancestors(iri("a")));
+    }
+
+    @Test
+    void foreignIdentifierHasNoAncestors() {
+        assertTrue(ancestors(rdf.createIRI("http://example.com/a/b")).isEmpty());
+    }
+}
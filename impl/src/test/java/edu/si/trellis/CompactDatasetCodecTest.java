@@ -0,0 +1,188 @@
+package edu.si.trellis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.BlankNode;
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+
+class CompactDatasetCodecTest {
+
+    private static final RDF rdf = new SimpleRDF();
+
+    private final CompactDatasetCodec codec = new CompactDatasetCodec(new TermDictionaries());
+
+    @Test
+    void roundTrip() throws Exception {
+        Quad q1 = quad(iri("g"), iri("s"), iri("p"), iri("o"));
+        Quad q2 = quad(null, iri("s"), iri("p"), rdf.createLiteral("foo"));
+        Quad q3 = quad(iri("g"), iri("s"), iri("p2"), rdf.createLiteral("bar", "en"));
+        Quad q4 = quad(iri("g2"), iri("s"), iri("p"), rdf.createLiteral("2", iri("http://example.com/type")));
+        try (Dataset dataset = rdf.createDataset()) {
+            for (Quad q : new Quad[] { q1, q2, q3, q4 })
+                dataset.add(q);
+            ByteBuffer encoded = codec.encode(dataset, null);
+            try (Dataset decoded = codec.decode(encoded, null)) {
+                assertEquals(4, decoded.size());
+                for (Quad q : new Quad[] { q1, q2, q3, q4 })
+                    assertTrue(decoded.contains(q), "Missing quad: " + q);
+            }
+        }
+    }
+
+    @Test
+    void readsFromStream() throws Exception {
+        try (Dataset dataset = rdf.createDataset()) {
+            for (int i = 0; i < 100; i++)
+                dataset.add(quad(iri("g"), iri("s" + i), iri("p"), rdf.createLiteral("value" + i, "en")));
+            ByteBuffer encoded = codec.encode(dataset, null);
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.duplicate().get(bytes);
+            try (Dataset decoded = codec.decode(new ByteArrayInputStream(bytes))) {
+                assertEquals(100, decoded.size());
+                dataset.stream().forEach(q -> assertTrue(decoded.contains(q), "Missing " + q));
+            }
+        }
+    }
+
+    @Test
+    void truncatedStream() throws Exception {
+        try (Dataset dataset = rdf.createDataset()) {
+            dataset.add(quad(null, iri("s"), iri("p"), rdf.createLiteral("foo")));
+            ByteBuffer encoded = codec.encode(dataset, null);
+            byte[] bytes = new byte[encoded.remaining() - 2];
+            encoded.duplicate().get(bytes);
+            assertThrows(IllegalArgumentException.class,
+                            () -> codec.decode(new ByteArrayInputStream(bytes)));
+        }
+    }
+
+    @Test
+    void blankNodesKeepTheirIdentity() throws Exception {
+        BlankNode b1 = rdf.createBlankNode(), b2 = rdf.createBlankNode();
+        try (Dataset dataset = rdf.createDataset()) {
+            dataset.add(quad(null, b1, iri("p"), b2));
+            dataset.add(quad(null, b2, iri("p"), b1));
+            ByteBuffer encoded = codec.encode(dataset, null);
+            try (Dataset decoded = codec.decode(encoded, null)) {
+                assertEquals(2, decoded.size());
+                decoded.stream().forEach(q -> assertTrue(decoded.contains(null, (BlankNodeOrIRI) q.getObject(),
+                                iri("p"), q.getSubject()), "Blank nodes were not linked!"));
+            }
+        }
+    }
+
+    @Test
+    void shouldBeSmallerThanNQuads() throws Exception {
+        try (Dataset dataset = rdf.createDataset()) {
+            for (int i = 0; i < 20; i++)
+                dataset.add(quad(iri("http://example.com/graph"), iri("http://example.com/subject"),
+                                iri("http://example.com/predicate"), rdf.createLiteral("value" + i)));
+            int nQuadsSize = DatasetCodec.DATASET_CODEC.encode(dataset, null).remaining();
+            int compactSize = codec.encode(dataset, null).remaining();
+            assertTrue(compactSize < nQuadsSize / 3, "Compact serialization was not compact!");
+        }
+    }
+
+    @Test
+    void dictionaryTermsAreNotSpelledOut() throws Exception {
+        IRI type = iri("http://www.w3.org/1999/02/22-rdf-syntax-ns#type");
+        try (Dataset dataset = rdf.createDataset()) {
+            dataset.add(quad(null, iri("s"), type, iri("http://pcdm.org/models#Object")));
+            ByteBuffer encoded = codec.encode(dataset, null);
+            assertEquals(CompactQuads.VERSION_2, encoded.get(encoded.position()));
+            assertFalse(UTF_8.decode(encoded.duplicate()).toString().contains("pcdm"));
+            try (Dataset decoded = codec.decode(encoded, null)) {
+                assertTrue(decoded.contains(quad(null, iri("s"), type, iri("http://pcdm.org/models#Object"))));
+            }
+        }
+    }
+
+    @Test
+    void readsWithoutDictionary() throws Exception {
+        IRI xsdInt = iri("http://www.w3.org/2001/XMLSchema#int");
+        Quad q = quad(iri("g"), iri("s"), iri("p"), rdf.createLiteral("1", xsdInt));
+        ByteBuffer encoded = ByteBuffer.wrap(CompactQuads.write(Stream.of(q)));
+        assertEquals(CompactQuads.VERSION_1, encoded.get(0));
+        try (Dataset decoded = codec.decode(encoded, null)) {
+            assertTrue(decoded.contains(q));
+        }
+    }
+
+    @Test
+    void unknownDictionary() {
+        ByteBuffer bad = ByteBuffer.wrap(new byte[] { CompactQuads.VERSION_2, 99, 0, 0 });
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(bad, null));
+    }
+
+    @Test
+    void readsNQuads() throws Exception {
+        ByteBuffer nQuads = ByteBuffer.wrap("<s> <p> <o> <g> .".getBytes(UTF_8));
+        try (Dataset dataset = codec.decode(nQuads, null)) {
+            assertEquals(1, dataset.size());
+            assertTrue(dataset.contains(quad(iri("g"), iri("s"), iri("p"), iri("o"))));
+        }
+    }
+
+    @Test
+    void decodingLeavesBufferUnmoved() throws Exception {
+        try (Dataset dataset = rdf.createDataset()) {
+            dataset.add(quad(null, iri("s"), iri("p"), iri("o")));
+            ByteBuffer encoded = codec.encode(dataset, null);
+            int position = encoded.position();
+            codec.decode(encoded, null).close();
+            assertEquals(position, encoded.position());
+        }
+    }
+
+    @Test
+    void parseAndFormat() throws Exception {
+        try (Dataset dataset = rdf.createDataset()) {
+            Quad q = quad(iri("g"), iri("s"), iri("p"), iri("o"));
+            dataset.add(q);
+            String formatted = codec.format(dataset);
+            assertTrue(formatted.startsWith("0x"));
+            try (Dataset parsed = codec.parse(formatted)) {
+                assertTrue(parsed.contains(q));
+            }
+        }
+    }
+
+    @Test
+    void unknownTerm() {
+        ByteBuffer bad = ByteBuffer.wrap(new byte[] { CompactQuads.VERSION_1, 1, 9 });
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(bad, null));
+    }
+
+    @Test
+    void edgeCases() throws Exception {
+        assertEquals(null, codec.encode(null, null));
+        assertEquals(0, codec.decode(null, null).size());
+        assertEquals(0, codec.parse(null).size());
+        try (Dataset empty = rdf.createDataset()) {
+            assertEquals(null, codec.encode(empty, null));
+        }
+    }
+
+    private Quad quad(BlankNodeOrIRI g, BlankNodeOrIRI s, IRI p, RDFTerm o) {
+        return rdf.createQuad(g, s, p, o);
+    }
+
+    private IRI iri(String v) {
+        return rdf.createIRI(v);
+    }
+}
@@ -0,0 +1,105 @@
+package edu.si.trellis;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+
+class CompactDatasetTest {
+
+    private static final RDF rdf = new SimpleRDF();
+
+    private static final Quad q1 = quad(iri("g"), iri("s"), iri("p"), iri("o")),
+                    q2 = quad(null, iri("s"), iri("p"), rdf.createLiteral("foo")),
+                    q3 = quad(iri("g2"), iri("s2"), iri("p"), iri("o"));
+
+    @Test
+    void addIgnoresDuplicates() throws Exception {
+        try (CompactDataset dataset = new CompactDataset()) {
+            dataset.append(q1);
+            dataset.append(q2);
+            dataset.add(q1);
+            dataset.add(q3);
+            dataset.add(q3);
+            assertEquals(3, dataset.size());
+            assertEquals(3, dataset.stream().count());
+        }
+    }
+
+    @Test
+    void growsPastInitialCapacity() throws Exception {
+        try (CompactDataset dataset = new CompactDataset()) {
+            for (int i = 0; i < 100; i++)
+                dataset.append(quad(null, iri("s"), iri("p"), rdf.createLiteral(Integer.toString(i))));
+            assertEquals(100, dataset.size());
+            assertTrue(dataset.contains(quad(null, iri("s"), iri("p"), rdf.createLiteral("99"))));
+        }
+    }
+
+    @Test
+    void patternMatching() throws Exception {
+        try (CompactDataset dataset = new CompactDataset()) {
+            dataset.append(q1);
+            dataset.append(q2);
+            dataset.append(q3);
+            assertEquals(1, dataset.stream(empty(), null, null, null).count());
+            assertEquals(1, dataset.stream(of(iri("g")), null, null, null).count());
+            assertEquals(2, dataset.stream(null, null, null, iri("o")).count());
+            assertEquals(2, dataset.stream(null, iri("s"), iri("p"), null).count());
+            assertTrue(dataset.contains(of(iri("g2")), iri("s2"), null, null));
+            assertFalse(dataset.contains(of(iri("g")), iri("s2"), null, null));
+            assertEquals(2, dataset.getGraphNames().collect(toSet()).size());
+        }
+    }
+
+    @Test
+    void removalStillWorks() throws Exception {
+        try (CompactDataset dataset = new CompactDataset()) {
+            dataset.append(q1);
+            dataset.append(q2);
+            dataset.remove(q1);
+            assertEquals(1, dataset.size());
+            assertFalse(dataset.contains(q1));
+            dataset.add(q3);
+            assertEquals(2, dataset.size());
+            assertTrue(dataset.getGraph(iri("g2")).isPresent());
+            dataset.clear();
+            assertEquals(0, dataset.size());
+        }
+    }
+
+    @Test
+    void addAllAppendsWithoutChecking() throws Exception {
+        try (CompactDataset dataset = new CompactDataset()) {
+            dataset.append(q1);
+            dataset.addAll(Stream.of(q2, q3));
+            for (int i = 0; i < 20; i++)
+                dataset.addAll(Stream.of(quad(null, iri("s"), iri("p"), rdf.createLiteral(Integer.toString(i)))));
+            assertEquals(23, dataset.size());
+            assertTrue(dataset.contains(q3));
+            dataset.addAll(Stream.of(quad(iri("g3"), iri("s"), iri("p"), iri("o"))));
+            assertTrue(dataset.contains(quad(iri("g3"), iri("s"), iri("p"), iri("o"))));
+            assertEquals(24, dataset.stream().count());
+        }
+    }
+
+    private static IRI iri(String v) {
+        return rdf.createIRI(v);
+    }
+
+    private static Quad quad(BlankNodeOrIRI g, BlankNodeOrIRI s, IRI p, RDFTerm o) {
+        return rdf.createQuad(g, s, p, o);
+    }
+}
@@ -3,6 +3,7 @@ package edu.si.trellis;
 import static edu.si.trellis.DatasetCodec.DATASET_CODEC;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -62,6 +63,30 @@ class DatasetCodecTest {
         }
     }
 
+    @Test
+    void testDeserializeWithoutCopying() throws Exception {
+        byte[] nQuads = "<s> <p> <o> <g> .".getBytes(UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(nQuads.length + 2);
+        direct.put((byte) ' ').put(nQuads).put((byte) ' ').flip();
+        direct.position(1);
+        try (Dataset dataset = DATASET_CODEC.decode(direct, null)) {
+            assertEquals(1, dataset.size());
+            assertTrue(dataset.contains(quad(iri("g"), iri("s"), iri("p"), iri("o"))));
+        }
+        assertEquals(1, direct.position(), "Decoding moved the buffer!");
+    }
+
+    @Test
+    void blankNodesAreScopedToEachDeserialization() throws Exception {
+        ByteBuffer nQuads = ByteBuffer.wrap("_:b <p> <o> .".getBytes(UTF_8));
+        try (Dataset first = DATASET_CODEC.decode(nQuads, null);
+             Dataset second = DATASET_CODEC.decode(nQuads, null)) {
+            Quad fromFirst = first.stream().findFirst().orElseThrow(AssertionError::new);
+            Quad fromSecond = second.stream().findFirst().orElseThrow(AssertionError::new);
+            assertNotEquals(fromFirst.getSubject(), fromSecond.getSubject());
+        }
+    }
+
     @Test
     void testFormat() throws Exception {
         String nQuad = "<s> <p> <o> <g> .";
@@ -0,0 +1,72 @@
+package edu.si.trellis;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+import org.trellisldp.api.Resource;
+
+class EffectiveAclCacheTest {
+
+    private final RDF rdf = new SimpleRDF();
+
+    private final IRI parent = rdf.createIRI("http://example.com/parent");
+
+    private final IRI child = rdf.createIRI("http://example.com/parent/child");
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    private Resource holder() {
+        Resource holder = mock(Resource.class);
+        when(holder.getIdentifier()).thenReturn(parent);
+        return holder;
+    }
+
+    @Test
+    void ancestorFoundAlongTheWayIsRemembered() {
+        EffectiveAclCache cache = new EffectiveAclCache(10);
+        Resource holder = holder();
+        cache.put(child, holder, cache.generation());
+        Resource found = cache.get(child, id -> {
+            lookups.incrementAndGet();
+            return completedFuture(holder);
+        }).toCompletableFuture().join();
+        assertSame(holder, found);
+        assertEquals(0, lookups.get(), "Remembered ACL should not be looked up!");
+    }
+
+    @Test
+    void ancestorFoundBeforeAWriteIsForgotten() {
+        EffectiveAclCache cache = new EffectiveAclCache(10);
+        Resource holder = holder();
+        long started = cache.generation();
+        cache.invalidate(child, false);
+        cache.put(child, holder, started);
+        cache.get(child, id -> {
+            lookups.incrementAndGet();
+            return completedFuture(holder);
+        }).toCompletableFuture().join();
+        assertEquals(1, lookups.get(), "ACL found before a write should not be remembered!");
+    }
+
+    @Test
+    void writeToHolderForgetsAncestors() {
+        EffectiveAclCache cache = new EffectiveAclCache(10);
+        Resource holder = holder();
+        cache.put(child, holder, cache.generation());
+        cache.invalidate(parent, false);
+        cache.get(child, id -> {
+            lookups.incrementAndGet();
+            return completedFuture(holder);
+        }).toCompletableFuture().join();
+        assertEquals(1, lookups.get(), "ACL governed by a written resource should not be remembered!");
+    }
+}
@@ -1,9 +1,13 @@
 package edu.si.trellis;
 
+import static edu.si.trellis.IRICodec.COMPACT_IRI_CODEC;
 import static edu.si.trellis.IRICodec.IRI_CODEC;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
 
 import java.nio.ByteBuffer;
 
@@ -11,6 +15,7 @@ import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.RDF;
 import org.apache.commons.rdf.simple.SimpleRDF;
 import org.junit.jupiter.api.Test;
+import org.trellisldp.vocabulary.LDP;
 
 class IRICodecTest {
 
@@ -21,6 +26,15 @@ class IRICodecTest {
         assertThrows(IllegalArgumentException.class, () -> IRI_CODEC.parse("SGDF   &&$$$dfshgou;sdfhgoudfhogh"));
     }
 
+    @Test
+    void badModelCode() {
+        assertThrows(IllegalArgumentException.class, () -> COMPACT_IRI_CODEC.parse("@99"));
+        assertThrows(IllegalArgumentException.class, () -> COMPACT_IRI_CODEC.parse("@-1"));
+        assertThrows(IllegalArgumentException.class, () -> COMPACT_IRI_CODEC.parse("@"));
+        assertThrows(IllegalArgumentException.class, () -> IRI_CODEC.decode(ByteBuffer.wrap("@x".getBytes(UTF_8)),
+                        null));
+    }
+
     @Test
     void testParse() {
         IRI iri = rdf.createIRI("http://example.com");
@@ -42,6 +56,38 @@ class IRICodecTest {
         assertEquals(iri, IRI_CODEC.decode(fieldForm, null));
     }
 
+    @Test
+    void decodingInterns() {
+        byte[] fieldForm = "http://example.com/interned".getBytes(UTF_8);
+        IRI first = IRI_CODEC.decode(ByteBuffer.wrap(fieldForm), null);
+        ByteBuffer direct = ByteBuffer.allocateDirect(fieldForm.length);
+        direct.put(fieldForm).flip();
+        assertSame(first, IRI_CODEC.decode(direct, null));
+        assertEquals(0, direct.position(), "Decoding moved the buffer!");
+    }
+
+    @Test
+    void interactionModelsAreShared() {
+        ByteBuffer fieldForm = ByteBuffer.wrap(LDP.BasicContainer.getIRIString().getBytes(UTF_8));
+        assertSame(LDP.BasicContainer, IRI_CODEC.decode(fieldForm, null));
+    }
+
+    @Test
+    void compactForm() {
+        IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "a/b");
+        ByteBuffer fieldForm = COMPACT_IRI_CODEC.encode(identifier, null);
+        assertEquals("/a/b", UTF_8.decode(fieldForm.duplicate()).toString());
+        assertEquals(identifier, COMPACT_IRI_CODEC.decode(fieldForm, null));
+        assertEquals(identifier, IRI_CODEC.decode(fieldForm, null));
+
+        fieldForm = COMPACT_IRI_CODEC.encode(LDP.BasicContainer, null);
+        assertTrue(fieldForm.remaining() < 3);
+        assertSame(LDP.BasicContainer, IRI_CODEC.decode(fieldForm, null));
+
+        IRI elsewhere = rdf.createIRI("http://example.com/a/b");
+        assertEquals(elsewhere, COMPACT_IRI_CODEC.decode(COMPACT_IRI_CODEC.encode(elsewhere, null), null));
+    }
+
     @Test
     void nullForNull() {
         assertEquals(null, IRI_CODEC.parse(null));
@@ -0,0 +1,77 @@
+package edu.si.trellis;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class MementoRetentionPolicyTest {
+
+    private static final Instant now = Instant.parse("2026-06-30T12:00:00Z");
+
+    private static Instant daysAgo(double days) {
+        return now.minus(Duration.ofMinutes((long) (days * 24 * 60)));
+    }
+
+    @Test
+    void emptyKeepsAll() {
+        MementoRetentionPolicy policy = MementoRetentionPolicy.parse("");
+        assertTrue(policy.keepsAll());
+        assertEquals(emptyList(), policy.expired(asList(daysAgo(1), daysAgo(1000)), now));
+    }
+
+    @Test
+    void keepLast() {
+        List<Instant> mementos = asList(daysAgo(1), daysAgo(2), daysAgo(3), daysAgo(4));
+        assertEquals(asList(daysAgo(3), daysAgo(4)), MementoRetentionPolicy.parse("keepLast=2").expired(mementos, now));
+    }
+
+    @Test
+    void maxAgeKeepsLatest() {
+        List<Instant> mementos = asList(daysAgo(400), daysAgo(500));
+        assertEquals(asList(daysAgo(500)), MementoRetentionPolicy.parse("maxAge=365").expired(mementos, now));
+    }
+
+    @Test
+    void dailyAfterKeepsLatestOfEachDay() {
+        List<Instant> mementos = new ArrayList<>();
+        // recent versions hours apart, all kept
+        for (double age = 1; age < 2; age += 0.25)
+            mementos.add(daysAgo(age));
+        // old versions hours apart, one kept per day
+        Instant oldDay = daysAgo(40).truncatedTo(DAYS);
+        for (int hour = 20; hour >= 2; hour -= 6)
+            mementos.add(oldDay.plus(Duration.ofHours(hour)));
+        List<Instant> expired = MementoRetentionPolicy.parse("dailyAfter=30").expired(mementos, now);
+        assertEquals(asList(oldDay.plusSeconds(14 * 3600), oldDay.plusSeconds(8 * 3600), oldDay.plusSeconds(2 * 3600)),
+                        expired);
+    }
+
+    @Test
+    void badPolicies() {
+        assertThrows(IllegalArgumentException.class, () -> MementoRetentionPolicy.parse("keepLast"));
+        assertThrows(IllegalArgumentException.class, () -> MementoRetentionPolicy.parse("keepLast=many"));
+        assertThrows(IllegalArgumentException.class, () -> MementoRetentionPolicy.parse("keepLast=0"));
+        assertThrows(IllegalArgumentException.class, () -> MementoRetentionPolicy.parse("keepFirst=2"));
+    }
+
+    @Test
+    void overrides() {
+        Map<String, MementoRetentionPolicy> overrides = MementoRetentionPolicy
+                        .parseOverrides("http://example.com/a/ keepLast=2 ; http://example.com/b/");
+        assertEquals(2, overrides.size());
+        assertFalse(overrides.get("http://example.com/a/").keepsAll());
+        assertTrue(overrides.get("http://example.com/b/").keepsAll());
+    }
+}
@@ -0,0 +1,98 @@
+package edu.si.trellis;
+
+import static java.time.Instant.ofEpochSecond;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.query.rdf.DeleteMementos;
+import edu.si.trellis.query.rdf.LatestMemento;
+
+import java.time.Instant;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.junit.jupiter.api.Test;
+import org.trellisldp.api.Resource;
+import org.trellisldp.api.TrellisUtils;
+
+class MementoSuppressionTest {
+
+    private static final RDF rdf = TrellisUtils.getInstance();
+
+    private static final IRI id = rdf.createIRI("http://example.com/id");
+
+    private static final IRI ixnModel = rdf.createIRI("http://example.com/ixnModel");
+
+    private static Resource resource(Instant modified, String... values) {
+        Dataset data = rdf.createDataset();
+        for (String value : values)
+            data.add(rdf.createQuad(id, id, ixnModel, rdf.createLiteral(value)));
+        return new CassandraResource(id, ixnModel, false, null, null, null, modified, data);
+    }
+
+    private static MementoSuppression suppression(boolean skipUnchanged, int window) {
+        return new MementoSuppression(mock(LatestMemento.class), mock(DeleteMementos.class), skipUnchanged, window);
+    }
+
+    private static Row latest(Instant time) {
+        Row row = mock(Row.class);
+        when(row.get("mementomodified", Instant.class)).thenReturn(time);
+        return row;
+    }
+
+    @Test
+    void hashIgnoresOrderAndModified() {
+        assertEquals(MementoSuppression.contentHash(resource(ofEpochSecond(1), "a", "b")),
+                        MementoSuppression.contentHash(resource(ofEpochSecond(2), "b", "a")));
+    }
+
+    @Test
+    void hashSeesContent() {
+        assertNotEquals(MementoSuppression.contentHash(resource(ofEpochSecond(1), "a", "b")),
+                        MementoSuppression.contentHash(resource(ofEpochSecond(1), "a", "c")));
+    }
+
+    @Test
+    void noHashUnlessSkipping() {
+        assertNull(suppression(false, 60).hash(resource(ofEpochSecond(1), "a")));
+    }
+
+    @Test
+    void collapsesWithinWindow() {
+        MementoSuppression suppression = suppression(false, 60);
+        assertTrue(suppression.enabled());
+        assertTrue(suppression.collapses(latest(ofEpochSecond(120)), ofEpochSecond(179)));
+        assertFalse(suppression.collapses(latest(ofEpochSecond(179)), ofEpochSecond(180)), "Windows are fixed!");
+        assertFalse(suppression.collapses(latest(ofEpochSecond(150)), ofEpochSecond(150)), "Same time is replaced!");
+        assertFalse(suppression.collapses(null, ofEpochSecond(150)));
+    }
+
+    @Test
+    void summaryAloneIsNoLatest() {
+        Row summary = mock(Row.class);
+        when(summary.isNull("mementomodified")).thenReturn(true);
+        AsyncResultSet results = mock(AsyncResultSet.class);
+        when(results.one()).thenReturn(summary);
+        LatestMemento latestMemento = mock(LatestMemento.class);
+        when(latestMemento.execute(id)).thenReturn(completedFuture(results));
+        MementoSuppression suppression = new MementoSuppression(latestMemento, mock(DeleteMementos.class), false, 60);
+        assertNull(suppression.latest(id).toCompletableFuture().join(), "A summary is not a Memento!");
+    }
+
+    @Test
+    void disabled() {
+        MementoSuppression suppression = suppression(false, 0);
+        assertFalse(suppression.enabled());
+        assertFalse(suppression.collapses(latest(ofEpochSecond(120)), ofEpochSecond(121)));
+    }
+}
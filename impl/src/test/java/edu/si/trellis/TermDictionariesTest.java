@@ -0,0 +1,96 @@
+package edu.si.trellis;
+
+import static edu.si.trellis.TermDictionary.BUILTIN;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import edu.si.trellis.query.rdf.GetTermDictionaries;
+import edu.si.trellis.query.rdf.InsertTermDictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TermDictionariesTest {
+
+    private final GetTermDictionaries get = mock(GetTermDictionaries.class);
+
+    private final InsertTermDictionary insert = mock(InsertTermDictionary.class);
+
+    private static Row row(int version, int id, String term) {
+        Row row = mock(Row.class);
+        when(row.getInt("version")).thenReturn(version);
+        when(row.getInt("id")).thenReturn(id);
+        when(row.getString("term")).thenReturn(term);
+        return row;
+    }
+
+    private static List<Row> builtin() {
+        List<Row> rows = new ArrayList<>();
+        for (int id = 0; id < BUILTIN.terms().size(); id++)
+            rows.add(row(BUILTIN.version(), id, BUILTIN.terms().get(id).getIRIString()));
+        return rows;
+    }
+
+    private static ResultSet results(List<Row> rows) {
+        ResultSet results = mock(ResultSet.class);
+        when(results.iterator()).thenReturn(rows.iterator());
+        return results;
+    }
+
+    @Test
+    void recordedBuiltinIsNotRecordedAgain() {
+        List<Row> rows = builtin();
+        rows.add(row(2, 0, "http://example.com/a"));
+        rows.add(row(2, 1, "http://example.com/b"));
+        when(get.execute()).thenReturn(results(rows));
+        TermDictionaries dictionaries = new TermDictionaries();
+        dictionaries.load(get, insert);
+        verify(insert, never()).execute(anyInt(), any());
+        dictionaries.use(2);
+        assertEquals("http://example.com/b", dictionaries.current().term(1).getIRIString());
+    }
+
+    @Test
+    void absentBuiltinIsRecorded() {
+        when(get.execute()).thenReturn(results(emptyList()), results(builtin()));
+        when(insert.execute(BUILTIN.version(), BUILTIN.terms())).thenReturn(completedFuture(null));
+        new TermDictionaries().load(get, insert);
+        verify(insert, times(1)).execute(BUILTIN.version(), BUILTIN.terms());
+    }
+
+    @Test
+    void partlyRecordedBuiltinIsRecordedAgain() {
+        when(get.execute()).thenReturn(results(builtin().subList(0, 3)), results(builtin()));
+        when(insert.execute(BUILTIN.version(), BUILTIN.terms())).thenReturn(completedFuture(null));
+        new TermDictionaries().load(get, insert);
+        verify(insert, times(1)).execute(BUILTIN.version(), BUILTIN.terms());
+    }
+
+    @Test
+    void versionMissingEntries() {
+        List<Row> rows = builtin();
+        rows.addAll(asList(row(2, 0, "http://example.com/a"), row(2, 2, "http://example.com/c")));
+        when(get.execute()).thenReturn(results(rows));
+        assertThrows(IllegalStateException.class, () -> new TermDictionaries().load(get, insert));
+    }
+
+    @Test
+    void unknownVersion() {
+        assertThrows(IllegalArgumentException.class, () -> new TermDictionaries().use(2));
+    }
+}
@@ -0,0 +1,68 @@
+package edu.si.trellis;
+
+import static java.time.Instant.ofEpochSecond;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.si.trellis.query.rdf.Touch;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.rdf.api.IRI;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.trellisldp.api.TrellisUtils;
+
+@ExtendWith(MockitoExtension.class)
+class TouchCoalescerTest {
+
+    private static final IRI container = TrellisUtils.getInstance().createIRI("http://example.com/container");
+
+    @Mock
+    private Touch mockTouch;
+
+    @BeforeEach
+    void setUp() {
+        when(mockTouch.execute(any(), any())).thenReturn(completedFuture(null));
+    }
+
+    @Test
+    void noWindowWritesEveryTouch() {
+        TouchCoalescer coalescer = new TouchCoalescer(mockTouch, 0);
+        coalescer.touch(container, ofEpochSecond(1)).toCompletableFuture().join();
+        coalescer.touch(container, ofEpochSecond(2)).toCompletableFuture().join();
+        verify(mockTouch).execute(ofEpochSecond(1), container);
+        verify(mockTouch).execute(ofEpochSecond(2), container);
+    }
+
+    @Test
+    void firstTouchWritesAtOnce() {
+        TouchCoalescer coalescer = new TouchCoalescer(mockTouch, 60_000);
+        coalescer.touch(container, ofEpochSecond(1)).toCompletableFuture().join();
+        verify(mockTouch).execute(ofEpochSecond(1), container);
+    }
+
+    @Test
+    void laterTouchesMergeToLatest() throws Exception {
+        TouchCoalescer coalescer = new TouchCoalescer(mockTouch, 200);
+        coalescer.touch(container, ofEpochSecond(1));
+        CompletableFuture<Void> second = coalescer.touch(container, ofEpochSecond(3)).toCompletableFuture();
+        CompletableFuture<Void> third = coalescer.touch(container, ofEpochSecond(2)).toCompletableFuture();
+        assertFalse(second.isDone(), "Merged touch completed before it was written!");
+        CompletableFuture.allOf(second, third).get(5, SECONDS);
+        verify(mockTouch).execute(ofEpochSecond(1), container);
+        verify(mockTouch).execute(ofEpochSecond(3), container);
+        verify(mockTouch, never()).execute(ofEpochSecond(2), container);
+        verify(mockTouch, times(2)).execute(any(), eq(container));
+    }
+}
@@ -0,0 +1,64 @@
+package edu.si.trellis.query;
+
+import static com.datastax.oss.driver.api.core.DefaultConsistencyLevel.LOCAL_ONE;
+import static com.datastax.oss.driver.api.core.DefaultConsistencyLevel.ONE;
+import static com.datastax.oss.driver.api.core.DefaultConsistencyLevel.QUORUM;
+import static edu.si.trellis.query.ExecutionProfiles.WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+
+import edu.si.trellis.query.binary.Read;
+import edu.si.trellis.query.rdf.Get;
+import edu.si.trellis.query.rdf.Touch;
+
+import org.junit.jupiter.api.Test;
+
+class ExecutionProfilesTest {
+
+    private static final SimpleStatement statement = SimpleStatement.newInstance("SELECT * FROM mutabledata ;");
+
+    @Test
+    void names() {
+        assertEquals("rdf-Get", ExecutionProfiles.name(Get.class));
+        assertEquals("binary-Read", ExecutionProfiles.name(Read.class));
+        assertEquals("Rekey", ExecutionProfiles.name(Rekey.class));
+    }
+
+    @Test
+    void profileForClass() {
+        ExecutionProfiles profiles = new ExecutionProfiles(
+                        ExecutionProfile.parseAll("rdf-Get consistency=QUORUM,pageSize=10; read timeout=100"));
+        SimpleStatement profiled = profiles.apply(statement, Get.class, false, ONE);
+        assertEquals("rdf-Get", profiled.getExecutionProfileName());
+        assertEquals(QUORUM, profiled.getConsistencyLevel(), "Profile should set consistency!");
+    }
+
+    @Test
+    void profileForKind() {
+        ExecutionProfiles profiles = new ExecutionProfiles(
+                        ExecutionProfile.parseAll("write timeout=100,idempotent=true"));
+        SimpleStatement profiled = profiles.apply(statement, Touch.class, true, LOCAL_ONE);
+        assertEquals(WRITE, profiled.getExecutionProfileName());
+        assertEquals(LOCAL_ONE, profiled.getConsistencyLevel(), "Query should set consistency!");
+    }
+
+    @Test
+    void noProfile() {
+        ExecutionProfiles profiles = new ExecutionProfiles(ExecutionProfile.parseAll("write timeout=100"));
+        SimpleStatement profiled = profiles.apply(statement, Get.class, false, LOCAL_ONE);
+        assertNull(profiled.getExecutionProfileName());
+        assertEquals(LOCAL_ONE, profiled.getConsistencyLevel());
+    }
+
+    @Test
+    void badSettings() {
+        assertThrows(IllegalArgumentException.class, () -> ExecutionProfile.parse("timeout"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionProfile.parse("timeout=-1"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionProfile.parse("pageSize=many"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionProfile.parse("consistency=SOME"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionProfile.parse("retries=3"));
+    }
+}
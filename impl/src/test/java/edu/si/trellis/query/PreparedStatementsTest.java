@@ -0,0 +1,77 @@
+package edu.si.trellis.query;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class PreparedStatementsTest {
+
+    private static final String CQL = "SELECT * FROM mutabledata WHERE identifier = :identifier ;";
+
+    @Mock
+    private CqlSession mockSession;
+
+    @Mock
+    private PreparedStatement mockStatement;
+
+    @Test
+    void identicalCqlIsPreparedOnce() {
+        when(mockSession.prepareAsync(CQL)).thenReturn(completedFuture(mockStatement));
+        PreparedStatements statements = new PreparedStatements(mockSession);
+        LazyPreparedStatement first = statements.prepare(CQL);
+        LazyPreparedStatement second = statements.prepare(CQL);
+        assertSame(mockStatement, first.get());
+        assertSame(mockStatement, second.get());
+        verify(mockSession, times(1)).prepareAsync(CQL);
+    }
+
+    @Test
+    void failedPreparationStopsStartup() {
+        when(mockSession.prepareAsync(CQL)).thenReturn(failure());
+        PreparedStatements statements = new PreparedStatements(mockSession);
+        statements.prepare(CQL);
+        assertThrows(IllegalStateException.class, statements::awaitAll);
+    }
+
+    @Test
+    void statementsAreReadyAfterStartup() {
+        CompletableFuture<PreparedStatement> preparation = new CompletableFuture<>();
+        when(mockSession.prepareAsync(CQL)).thenReturn(preparation);
+        PreparedStatements statements = new PreparedStatements(mockSession);
+        LazyPreparedStatement statement = statements.prepare(CQL);
+        preparation.complete(mockStatement);
+        assertEquals(1, statements.awaitAll());
+        assertSame(mockStatement, statement.get());
+    }
+
+    @Test
+    void failedPreparationAfterStartupIsReportedAtOnce() {
+        when(mockSession.prepareAsync(CQL)).thenReturn(failure(), completedFuture(mockStatement));
+        PreparedStatements statements = new PreparedStatements(mockSession);
+        statements.awaitAll();
+        assertThrows(IllegalStateException.class, () -> statements.prepare(CQL));
+        assertSame(mockStatement, statements.prepare(CQL).get(), "Failed preparation should be tried again!");
+        verify(mockSession, times(2)).prepareAsync(CQL);
+    }
+
+    private static CompletableFuture<PreparedStatement> failure() {
+        CompletableFuture<PreparedStatement> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("No such table!"));
+        return failure;
+    }
+}
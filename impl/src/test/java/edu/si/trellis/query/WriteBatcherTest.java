@@ -0,0 +1,138 @@
+package edu.si.trellis.query;
+
+import static com.datastax.oss.driver.api.core.DefaultConsistencyLevel.ONE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBatcherTest {
+
+    @Mock
+    private CqlSession mockSession;
+
+    @Mock
+    private AsyncResultSet mockResults;
+
+    @BeforeEach
+    void setUp() {
+        when(mockSession.executeAsync(any(Statement.class))).thenReturn(completedFuture(mockResults));
+    }
+
+    private static BoundStatement statement(String key, String table, int size) {
+        BoundStatement statement = mock(BoundStatement.class);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        ColumnDefinitions variables = mock(ColumnDefinitions.class);
+        ColumnDefinition variable = mock(ColumnDefinition.class);
+        when(statement.getRoutingKey()).thenReturn(ByteBuffer.wrap(key.getBytes(UTF_8)));
+        lenient().when(statement.getPreparedStatement()).thenReturn(prepared);
+        lenient().when(prepared.getVariableDefinitions()).thenReturn(variables);
+        lenient().when(statement.getValues()).thenReturn(singletonList(ByteBuffer.allocate(size)));
+        lenient().when(variables.size()).thenReturn(1);
+        lenient().when(variables.get(0)).thenReturn(variable);
+        lenient().when(variable.getTable()).thenReturn(CqlIdentifier.fromInternal(table));
+        return statement;
+    }
+
+    private static BoundStatement batchable(String key, String table, int size) {
+        BoundStatement statement = statement(key, table, size);
+        lenient().when(statement.getConsistencyLevel()).thenReturn(ONE);
+        return statement;
+    }
+
+    @Test
+    void noWindowSendsAtOnce() {
+        BoundStatement statement = statement("a", "mutabledata", 10);
+        new WriteBatcher(0).execute(mockSession, statement).toCompletableFuture().join();
+        verify(mockSession).executeAsync(statement);
+    }
+
+    @Test
+    void samePartitionIsBatched() {
+        WriteBatcher batcher = new WriteBatcher(50);
+        CompletableFuture<Void> first = batcher.execute(mockSession, batchable("a", "mutabledata", 10))
+                        .toCompletableFuture();
+        CompletableFuture<Void> second = batcher.execute(mockSession, batchable("a", "mementos", 10))
+                        .toCompletableFuture();
+        CompletableFuture.allOf(first, second).join();
+        @SuppressWarnings("rawtypes")
+        ArgumentCaptor<Statement> sent = ArgumentCaptor.forClass(Statement.class);
+        verify(mockSession).executeAsync(sent.capture());
+        assertTrue(sent.getValue() instanceof BatchStatement, "Writes were not batched!");
+        assertEquals(2, ((BatchStatement) sent.getValue()).size());
+    }
+
+    @Test
+    void differentPartitionsAreNotBatched() {
+        WriteBatcher batcher = new WriteBatcher(50);
+        BoundStatement a = batchable("a", "mutabledata", 10), b = batchable("b", "mutabledata", 10);
+        CompletableFuture.allOf(batcher.execute(mockSession, a).toCompletableFuture(),
+                        batcher.execute(mockSession, b).toCompletableFuture()).join();
+        verify(mockSession).executeAsync(a);
+        verify(mockSession).executeAsync(b);
+    }
+
+    @Test
+    void sameRowIsNotBatched() {
+        WriteBatcher batcher = new WriteBatcher(50);
+        BoundStatement delete = batchable("a", "mutabledata", 10), insert = batchable("a", "mutabledata", 10);
+        CompletableFuture.allOf(batcher.execute(mockSession, delete).toCompletableFuture(),
+                        batcher.execute(mockSession, insert).toCompletableFuture()).join();
+        InOrder order = inOrder(mockSession);
+        order.verify(mockSession).executeAsync(delete);
+        order.verify(mockSession).executeAsync(insert);
+    }
+
+    @Test
+    void largeWritesAreNotBatched() {
+        WriteBatcher batcher = new WriteBatcher(10_000);
+        BoundStatement small = batchable("a", "mutabledata", 10),
+                        large = statement("a", "mementos", WriteBatcher.MAX_BATCH_BYTES + 1);
+        CompletableFuture.allOf(batcher.execute(mockSession, small).toCompletableFuture(),
+                        batcher.execute(mockSession, large).toCompletableFuture()).join();
+        verify(mockSession, times(2)).executeAsync(any(Statement.class));
+        InOrder order = inOrder(mockSession);
+        order.verify(mockSession).executeAsync(small);
+        order.verify(mockSession).executeAsync(large);
+    }
+
+    @Test
+    void writeSentApartSendsHeldWritesFirst() {
+        WriteBatcher batcher = new WriteBatcher(10_000);
+        BoundStatement held = batchable("a", "mutabledata", 10);
+        CompletableFuture<Void> written = batcher.execute(mockSession, held).toCompletableFuture();
+        batcher.flush(mockSession, statement("a", "mementos", 10));
+        written.join();
+        verify(mockSession).executeAsync(held);
+    }
+}
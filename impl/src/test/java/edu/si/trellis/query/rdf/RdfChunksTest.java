@@ -0,0 +1,34 @@
+package edu.si.trellis.query.rdf;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RdfChunksTest {
+
+    @Test
+    void shouldSplitIntoChunks() {
+        ByteBuffer content = ByteBuffer.wrap("onetwothree".getBytes(UTF_8));
+        List<ByteBuffer> chunks = RdfChunks.split(content, 3);
+        assertEquals(4, chunks.size(), "Wrong number of chunks!");
+        assertEquals("one", UTF_8.decode(chunks.get(0)).toString());
+        assertEquals("two", UTF_8.decode(chunks.get(1)).toString());
+        assertEquals("thr", UTF_8.decode(chunks.get(2)).toString());
+        assertEquals("ee", UTF_8.decode(chunks.get(3)).toString(), "Last chunk should hold the remainder!");
+        assertEquals(0, content.position(), "Content should not have been consumed!");
+    }
+
+    @Test
+    void shouldSplitFromPosition() {
+        ByteBuffer content = ByteBuffer.wrap("xxonetwo".getBytes(UTF_8));
+        content.position(2);
+        List<ByteBuffer> chunks = RdfChunks.split(content, 3);
+        assertEquals(2, chunks.size(), "Wrong number of chunks!");
+        assertEquals("one", UTF_8.decode(chunks.get(0)).toString());
+        assertEquals("two", UTF_8.decode(chunks.get(1)).toString());
+    }
+}
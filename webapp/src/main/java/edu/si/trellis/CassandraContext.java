@@ -1,21 +1,49 @@
 package edu.si.trellis;
 
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.CONNECTION_MAX_REQUESTS;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.CONNECTION_POOL_LOCAL_SIZE;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.CONNECTION_POOL_REMOTE_SIZE;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.PROTOCOL_COMPRESSION;
 import static edu.si.trellis.DatasetCodec.DATASET_CODEC;
+import static edu.si.trellis.IRICodec.COMPACT_IRI_CODEC;
 import static edu.si.trellis.IRICodec.IRI_CODEC;
 import static edu.si.trellis.InputStreamCodec.INPUTSTREAM_CODEC;
+import static java.lang.Boolean.parseBoolean;
 import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
 import static java.net.InetSocketAddress.createUnresolved;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Locale.ROOT;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.DefaultConsistencyLevel;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import com.datastax.oss.driver.api.core.config.ProgrammaticDriverConfigLoaderBuilder;
 import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
 
+import edu.si.trellis.query.CassandraQuery;
+import edu.si.trellis.query.ExecutionProfile;
+import edu.si.trellis.query.ExecutionProfiles;
+import edu.si.trellis.query.QueryContext;
+import edu.si.trellis.query.WriteBatcher;
+import edu.si.trellis.query.rdf.GetTermDictionaries;
+import edu.si.trellis.query.rdf.InsertTermDictionary;
+
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 
@@ -40,11 +68,110 @@ public class CassandraContext {
             "CASSANDRA_CONTACT_ADDRESS" }, defaultValue = "localhost")
     private String contactAddress;
 
+    @Inject
+    @Config(key = "cassandra.contactPoints", alternateKeys = { "CASSANDRA_CONTACT_POINTS" }, defaultValue = "")
+    private String contactPoints;
+
+    @Inject
+    @Config(key = "cassandra.localDatacenter", alternateKeys = {
+            "CASSANDRA_LOCAL_DATACENTER" }, defaultValue = "datacenter1")
+    private String localDatacenter;
+
+    @Inject
+    @Config(key = "cassandra.keyspace", alternateKeys = { "CASSANDRA_KEYSPACE" }, defaultValue = "trellis")
+    private String keyspace;
+
+    @Inject
+    @Config(key = "cassandra.localPoolSize", alternateKeys = { "CASSANDRA_LOCAL_POOL_SIZE" }, defaultValue = "1")
+    private String localPoolSize;
+
+    @Inject
+    @Config(key = "cassandra.remotePoolSize", alternateKeys = { "CASSANDRA_REMOTE_POOL_SIZE" }, defaultValue = "1")
+    private String remotePoolSize;
+
+    @Inject
+    @Config(key = "cassandra.maxRequestsPerConnection", alternateKeys = {
+            "CASSANDRA_MAX_REQUESTS_PER_CONNECTION" }, defaultValue = "1024")
+    private String maxRequestsPerConnection;
+
+    @Inject
+    @Config(key = "cassandra.compression", alternateKeys = { "CASSANDRA_COMPRESSION" }, defaultValue = "none")
+    private String compression;
+
     @Inject
     @Config(key = "cassandra.maxChunkSize", alternateKeys = {
             "CASSANDRA_MAX_CHUNK_SIZE" }, defaultValue = DefaultChunkSize.value)
     private String defaultChunkSize;
 
+    @Inject
+    @Config(key = "cassandra.rdfChunkSize", alternateKeys = {
+            "CASSANDRA_RDF_CHUNK_SIZE" }, defaultValue = RdfChunkSize.value)
+    private String rdfChunkSize;
+
+    @Inject
+    @Config(key = "cassandra.immutableCompactionThreshold", alternateKeys = {
+            "CASSANDRA_IMMUTABLE_COMPACTION_THRESHOLD" }, defaultValue = ImmutableCompactionThreshold.value)
+    private String immutableCompactionThreshold;
+
+    @Inject
+    @Config(key = "cassandra.deltaCompactionThreshold", alternateKeys = {
+            "CASSANDRA_DELTA_COMPACTION_THRESHOLD" }, defaultValue = DeltaCompactionThreshold.value)
+    private String deltaCompactionThreshold;
+
+    @Inject
+    @Config(key = "cassandra.touchWindow", alternateKeys = {
+            "CASSANDRA_TOUCH_WINDOW" }, defaultValue = TouchWindow.value)
+    private String touchWindow;
+
+    @Inject
+    @Config(key = "cassandra.aclCacheDuration", alternateKeys = {
+            "CASSANDRA_ACL_CACHE_DURATION" }, defaultValue = AclCacheDuration.value)
+    private String aclCacheDuration;
+
+    @Inject
+    @Config(key = "cassandra.timeMapCacheDuration", alternateKeys = {
+            "CASSANDRA_TIME_MAP_CACHE_DURATION" }, defaultValue = TimeMapCacheDuration.value)
+    private String timeMapCacheDuration;
+
+    @Inject
+    @Config(key = "cassandra.mementoSnapshotInterval", alternateKeys = {
+            "CASSANDRA_MEMENTO_SNAPSHOT_INTERVAL" }, defaultValue = MementoSnapshotInterval.value)
+    private String mementoSnapshotInterval;
+
+    @Inject
+    @Config(key = "cassandra.skipUnchangedMementos", alternateKeys = {
+            "CASSANDRA_SKIP_UNCHANGED_MEMENTOS" }, defaultValue = SkipUnchangedMementos.value)
+    private String skipUnchangedMementos;
+
+    @Inject
+    @Config(key = "cassandra.mementoCollapseWindow", alternateKeys = {
+            "CASSANDRA_MEMENTO_COLLAPSE_WINDOW" }, defaultValue = MementoCollapseWindow.value)
+    private String mementoCollapseWindow;
+
+    @Inject
+    @Config(key = "cassandra.singleCopy", alternateKeys = {
+            "CASSANDRA_SINGLE_COPY" }, defaultValue = SingleCopy.value)
+    private String singleCopy;
+
+    @Inject
+    @Config(key = "cassandra.compactIRIs", alternateKeys = { "CASSANDRA_COMPACT_IRIS" }, defaultValue = "false")
+    private String compactIRIs;
+
+    @Inject
+    @Config(key = "cassandra.writeBatchWindow", alternateKeys = {
+            "CASSANDRA_WRITE_BATCH_WINDOW" }, defaultValue = "0")
+    private String writeBatchWindow;
+
+    @Inject
+    @Config(key = "cassandra.executionProfiles", alternateKeys = {
+            "CASSANDRA_EXECUTION_PROFILES" }, defaultValue = "read idempotent=true")
+    private String executionProfiles;
+
+    @Inject
+    @Config(key = "cassandra.termDictionaryVersion", alternateKeys = {
+            "CASSANDRA_TERM_DICTIONARY_VERSION" }, defaultValue = "1")
+    private String termDictionaryVersion;
+
     @Inject
     @Config(key = "cassandra.binaryReadConsistency", alternateKeys = {
             "CASSANDRA_BINARY_READ_CONSISTENCY" }, defaultValue = "ONE")
@@ -74,6 +201,96 @@ public class CassandraContext {
         return parseInt(defaultChunkSize);
     }
 
+    /**
+     * @return the size in bytes above which RDF is written in chunks
+     */
+    @Produces
+    @RdfChunkSize
+    public int rdfChunkSize() {
+        return parseInt(rdfChunkSize);
+    }
+
+    /**
+     * @return the number of uncompacted rows of immutable data that triggers compaction for a resource
+     */
+    @Produces
+    @ImmutableCompactionThreshold
+    public int immutableCompactionThreshold() {
+        return parseInt(immutableCompactionThreshold);
+    }
+
+    /**
+     * @return the number of deltas that triggers compaction of a resource, or less than 1 to store no deltas
+     */
+    @Produces
+    @DeltaCompactionThreshold
+    public int deltaCompactionThreshold() {
+        return parseInt(deltaCompactionThreshold);
+    }
+
+    /**
+     * @return the number of milliseconds over which to merge touches to a resource
+     */
+    @Produces
+    @TouchWindow
+    public int touchWindow() {
+        return parseInt(touchWindow);
+    }
+
+    /**
+     * @return the number of seconds for which to cache effective ACLs
+     */
+    @Produces
+    @AclCacheDuration
+    public int aclCacheDuration() {
+        return parseInt(aclCacheDuration);
+    }
+
+    /**
+     * @return the number of seconds for which to cache TimeMaps
+     */
+    @Produces
+    @TimeMapCacheDuration
+    public int timeMapCacheDuration() {
+        return parseInt(timeMapCacheDuration);
+    }
+
+    /**
+     * @return how often to write a Memento whole
+     */
+    @Produces
+    @MementoSnapshotInterval
+    public int mementoSnapshotInterval() {
+        return parseInt(mementoSnapshotInterval);
+    }
+
+    /**
+     * @return whether to skip Mementos identical to the latest
+     */
+    @Produces
+    @SkipUnchangedMementos
+    public boolean skipUnchangedMementos() {
+        return parseBoolean(skipUnchangedMementos);
+    }
+
+    /**
+     * @return the number of seconds into which to collapse Mementos
+     */
+    @Produces
+    @MementoCollapseWindow
+    public int mementoCollapseWindow() {
+        return parseInt(mementoCollapseWindow);
+    }
+
+    /**
+     * @return whether to write RDF only to Mementos
+     */
+    @Produces
+    @SingleCopy
+    public boolean singleCopy() {
+        return parseBoolean(singleCopy);
+    }
+
     /**
      * @return the read-consistency to use querying Cassandra binary data
      */
@@ -112,24 +329,128 @@ public class CassandraContext {
 
     private CqlSession session;
 
-    private static final TypeCodec<?>[] STANDARD_CODECS = new TypeCodec<?>[] { INPUTSTREAM_CODEC, IRI_CODEC,
-            DATASET_CODEC };
+    private QueryContext queryContext;
+
+    @Inject
+    @Any
+    private Instance<CassandraQuery> queries;
+
+    @Inject
+    private Instance<CassandraResourceService> resourceServices;
+
+    private static final TypeCodec<?>[] STANDARD_CODECS = new TypeCodec<?>[] { INPUTSTREAM_CODEC, DATASET_CODEC };
+
+    /**
+     * Protocol compression algorithms that the driver supports, given their libraries. Protocol v5 drops Snappy, so
+     * Snappy is refused if v5 is negotiated.
+     */
+    private static final Set<String> COMPRESSIONS = new HashSet<>(asList("none", "lz4", "snappy"));
+
+    private static final String SNAPPY = "snappy";
 
     /**
      * Connect to Cassandra, lazily.
      */
     @PostConstruct
     public void connect() {
-        log.info("Using Cassandra node address: {} and port: {}", contactAddress, contactPort);
+        final int port = parseInt(contactPort);
+        final List<InetSocketAddress> points = contactPoints.trim().isEmpty()
+                        ? singletonList(createUnresolved(contactAddress, port))
+                        : contactPoints(contactPoints, port);
+        log.info("Using Cassandra contact points: {} in local datacenter: {}", points, localDatacenter);
         log.debug("Looking for connection...");
-        final InetSocketAddress socketAddress = createUnresolved(contactAddress, parseInt(contactPort));
+        final boolean compact = parseBoolean(compactIRIs);
+        log.info("Writing IRIs in {} form", compact ? "compact" : "full");
+        final String compression = compression(this.compression);
+        log.info("Using {} connections per local node and {} per remote node, {} requests per connection",
+                        localPoolSize, remotePoolSize, maxRequestsPerConnection);
+        log.info("Using protocol compression: {}", compression);
+        final ExecutionProfiles profiles = new ExecutionProfiles(ExecutionProfile.parseAll(executionProfiles));
+        ProgrammaticDriverConfigLoaderBuilder config = DriverConfigLoader.programmaticBuilder()
+                        .withInt(CONNECTION_POOL_LOCAL_SIZE, parseInt(localPoolSize))
+                        .withInt(CONNECTION_POOL_REMOTE_SIZE, parseInt(remotePoolSize))
+                        .withInt(CONNECTION_MAX_REQUESTS, parseInt(maxRequestsPerConnection))
+                        .withString(PROTOCOL_COMPRESSION, compression);
 
+        // loaded once the session is up, since they are recorded in Cassandra
+        final TermDictionaries dictionaries = new TermDictionaries();
         this.session = CqlSession.builder()
+                        .withConfigLoader(profiles.configure(config).build())
                         .addTypeCodecs(STANDARD_CODECS)
-                        .withKeyspace("trellis")
-                        .withLocalDatacenter("datacenter1")
-                        .addContactPoint(socketAddress)
+                        .addTypeCodecs(new CompactDatasetCodec(dictionaries))
+                        .addTypeCodecs(compact ? COMPACT_IRI_CODEC : IRI_CODEC)
+                        .withKeyspace(keyspace)
+                        .withLocalDatacenter(localDatacenter)
+                        .addContactPoints(points)
                         .build();
+        if (SNAPPY.equals(compression) && session.getContext().getProtocolVersion().getCode() >= 5) {
+            session.close();
+            throw new IllegalStateException("Protocol compression snappy is not supported by protocol v5!");
+        }
+        log.info("Using write batching window of {} ms", writeBatchWindow);
+        this.queryContext = new QueryContext(session, profiles, new WriteBatcher(parseLong(writeBatchWindow)));
+
+        dictionaries.load(new GetTermDictionaries(queryContext, rdfReadConsistency),
+                        new InsertTermDictionary(queryContext, rdfWriteConsistency));
+        dictionaries.use(parseInt(termDictionaryVersion));
+    }
+
+    /**
+     * Builds every query once, so that all their statements are prepared together, and waits for them before the
+     * application serves requests, so that bad CQL stops startup and no statement is still being prepared when a
+     * query is first used. Only then is the repository root built.
+     *
+     * @param initialized ignored
+     */
+    public void prepare(@Observes @Initialized(ApplicationScoped.class) Object initialized) {
+        for (CassandraQuery query : queries)
+            queries.destroy(query);
+        log.info("Prepared {} CQL statements", queryContext.preparedStatements().awaitAll());
+        CassandraResourceService resourceService = resourceServices.get();
+        try {
+            resourceService.initializeRoot();
+        } finally {
+            resourceServices.destroy(resourceService);
+        }
+    }
+
+    /**
+     * @param configured a protocol compression algorithm, in any case
+     * @return {@code configured}, in the lower case the driver expects
+     */
+    static String compression(String configured) {
+        String compression = configured.trim().toLowerCase(ROOT);
+        if (!COMPRESSIONS.contains(compression))
+            throw new IllegalArgumentException("Unknown protocol compression: " + configured + "!");
+        return compression;
+    }
+
+    /**
+     * @param points comma-separated host names or addresses, each with an optional colon and port; an IPv6 address
+     *            with a port must be bracketed, as {@code [::1]:9042}
+     * @param defaultPort the port for a contact point without one
+     * @return the contact points
+     */
+    static List<InetSocketAddress> contactPoints(String points, int defaultPort) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String point : points.split(",")) {
+            point = point.trim();
+            if (point.isEmpty()) continue;
+            if (point.startsWith("[")) {
+                int close = point.indexOf(']');
+                if (close < 0) throw new IllegalArgumentException("Unclosed bracket in contact point: " + point + "!");
+                String rest = point.substring(close + 1);
+                int port = rest.isEmpty() ? defaultPort : rest.startsWith(":") ? parseInt(rest.substring(1)) : -1;
+                if (port < 0) throw new IllegalArgumentException("Bad contact point: " + point + "!");
+                addresses.add(createUnresolved(point.substring(1, close), port));
+                continue;
+            }
+            int colon = point.lastIndexOf(':');
+            // a bare IPv6 address has colons but no port
+            if (colon < 0 || point.indexOf(':') != colon) addresses.add(createUnresolved(point, defaultPort));
+            else addresses.add(createUnresolved(point.substring(0, colon), parseInt(point.substring(colon + 1))));
+        }
+        return addresses;
     }
 
     /**
@@ -141,6 +462,14 @@ public class CassandraContext {
         return session;
     }
 
+    /**
+     * @return the {@link QueryContext} in which all queries run
+     */
+    @Produces
+    public QueryContext queryContext() {
+        return queryContext;
+    }
+
     /**
      * Release resources.
      */
@@ -0,0 +1,134 @@
+package edu.si.trellis;
+
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import org.apache.tamaya.inject.api.Config;
+import org.slf4j.Logger;
+
+/**
+ * Starts background maintenance of the data in Cassandra, as configured.
+ *
+ */
+@ApplicationScoped
+public class CassandraMaintenance {
+
+    private static final Logger log = getLogger(CassandraMaintenance.class);
+
+    @Inject
+    @Config(key = "cassandra.reencodeQuads", alternateKeys = { "CASSANDRA_REENCODE_QUADS" }, defaultValue = "false")
+    private String reencodeQuads;
+
+    @Inject
+    @Config(key = "cassandra.reencodeRate", alternateKeys = { "CASSANDRA_REENCODE_RATE" }, defaultValue = "100")
+    private String reencodeRate;
+
+    @Inject
+    @Config(key = "cassandra.migrateIRIs", alternateKeys = { "CASSANDRA_MIGRATE_IRIS" }, defaultValue = "false")
+    private String migrateIRIs;
+
+    @Inject
+    @Config(key = "cassandra.compactIRIs", alternateKeys = { "CASSANDRA_COMPACT_IRIS" }, defaultValue = "false")
+    private String compactIRIs;
+
+    @Inject
+    @Config(key = "cassandra.migrateMementos", alternateKeys = { "CASSANDRA_MIGRATE_MEMENTOS" },
+                    defaultValue = "false")
+    private String migrateMementos;
+
+    @Inject
+    @Config(key = "cassandra.mementoRetention", alternateKeys = { "CASSANDRA_MEMENTO_RETENTION" },
+                    defaultValue = "")
+    private String mementoRetention;
+
+    @Inject
+    @Config(key = "cassandra.mementoRetentionOverrides", alternateKeys = {
+            "CASSANDRA_MEMENTO_RETENTION_OVERRIDES" }, defaultValue = "")
+    private String mementoRetentionOverrides;
+
+    @Inject
+    @Config(key = "cassandra.mementoRetentionRate", alternateKeys = { "CASSANDRA_MEMENTO_RETENTION_RATE" },
+                    defaultValue = "100")
+    private String mementoRetentionRate;
+
+    @Inject
+    @Config(key = "cassandra.mementoRetentionPeriod", alternateKeys = { "CASSANDRA_MEMENTO_RETENTION_PERIOD" },
+                    defaultValue = "24")
+    private String mementoRetentionPeriod;
+
+    @Inject
+    private QuadsReencoder reencoder;
+
+    @Inject
+    private Instance<IRIMigrator> iriMigrator;
+
+    @Inject
+    private Instance<MementoMigrator> mementoMigrator;
+
+    @Inject
+    private Instance<MementoRetention> retention;
+
+    private final ScheduledExecutorService scheduler = newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "trellis-cassandra-memento-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Begin any configured maintenance once the application has started.
+     * 
+     * @param initialized ignored
+     */
+    public void start(@Observes @Initialized(ApplicationScoped.class) Object initialized) {
+        if (parseBoolean(migrateIRIs)) {
+            if (!parseBoolean(compactIRIs))
+                log.error("Not migrating stored IRIs into compact form, because compact IRIs are not in use!");
+            else {
+                // resources are missing until migrated, so finish before the application is available
+                log.info("Migrating stored IRIs into compact form.");
+                log.info("Migrated {} partitions of stored IRIs.", iriMigrator.get().migrate());
+            }
+        }
+        if (parseBoolean(migrateMementos)) {
+            // Mementos are missing until copied, so finish before the application is available
+            log.info("Copying legacy Mementos.");
+            log.info("Copied {} legacy Mementos.", mementoMigrator.get().migrate());
+        }
+        if (parseBoolean(reencodeQuads)) {
+            log.info("Beginning to re-encode stored RDF into compact form.");
+            reencoder.reencode(parseInt(reencodeRate)).whenComplete((count, e) -> {
+                if (e != null) log.error("Failed to re-encode stored RDF!", e);
+                else log.info("Re-encoded {} rows of stored RDF.", count);
+            });
+        }
+        MementoRetentionPolicy defaults = MementoRetentionPolicy.parse(mementoRetention);
+        Map<String, MementoRetentionPolicy> overrides = MementoRetentionPolicy
+                        .parseOverrides(mementoRetentionOverrides);
+        if (!defaults.keepsAll() || overrides.values().stream().anyMatch(p -> !p.keepsAll())) {
+            long period = parseLong(mementoRetentionPeriod);
+            log.info("Enforcing Memento retention every {} hours.", period);
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    retention.get().enforce(defaults, overrides, parseInt(mementoRetentionRate)).toCompletableFuture()
+                                    .join();
+                } catch (RuntimeException e) {
+                    // keep the schedule
+                    log.error("Failed to enforce Memento retention!", e);
+                }
+            }, 0, period, HOURS);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package edu.si.trellis;
+
+import static java.net.InetSocketAddress.createUnresolved;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CassandraContextTest {
+
+    private static final int defaultPort = 9042;
+
+    @Test
+    void hostWithoutPort() {
+        assertEquals(asList(createUnresolved("cassandra1", defaultPort)),
+                        CassandraContext.contactPoints("cassandra1", defaultPort));
+    }
+
+    @Test
+    void hostWithPort() {
+        assertEquals(asList(createUnresolved("cassandra1", 9043), createUnresolved("10.0.0.2", 9044)),
+                        CassandraContext.contactPoints("cassandra1:9043,10.0.0.2:9044", defaultPort));
+    }
+
+    @Test
+    void whitespaceAndEmptyEntries() {
+        assertEquals(asList(createUnresolved("cassandra1", defaultPort), createUnresolved("cassandra2", 9043)),
+                        CassandraContext.contactPoints(" cassandra1 , cassandra2:9043 ,, ", defaultPort));
+        assertTrue(CassandraContext.contactPoints(" , ", defaultPort).isEmpty());
+    }
+
+    @Test
+    void bareIPv6() {
+        assertEquals(asList(createUnresolved("::1", defaultPort), createUnresolved("fe80::1:2", defaultPort)),
+                        CassandraContext.contactPoints("::1,fe80::1:2", defaultPort));
+    }
+
+    @Test
+    void bracketedIPv6() {
+        assertEquals(asList(createUnresolved("::1", 9043), createUnresolved("fe80::1", defaultPort)),
+                        CassandraContext.contactPoints("[::1]:9043, [fe80::1]", defaultPort));
+    }
+
+    @Test
+    void badContactPoints() {
+        assertThrows(IllegalArgumentException.class, () -> CassandraContext.contactPoints("cassandra1:many", 1));
+        assertThrows(IllegalArgumentException.class, () -> CassandraContext.contactPoints("[::1:9043", 1));
+        assertThrows(IllegalArgumentException.class, () -> CassandraContext.contactPoints("[::1]9043", 1));
+    }
+
+    @Test
+    void compressionInAnyCase() {
+        assertEquals("lz4", CassandraContext.compression("LZ4"));
+        assertEquals("snappy", CassandraContext.compression(" Snappy "));
+        assertEquals("none", CassandraContext.compression("none"));
+        assertThrows(IllegalArgumentException.class, () -> CassandraContext.compression("gzip"));
+    }
+}